@@ -0,0 +1,70 @@
+package org.jdbcdslog;
+
+import java.text.SimpleDateFormat;
+import java.util.Map;
+
+/**
+ * Fixed-size ring of the most recent statement executions of a connection, kept as raw references
+ * in reused slots.  Nothing is rendered until the ring is dumped, which happens when an error
+ * occurs or a slow query is detected, so that the statements preceding it can be seen even when
+ * statement logging is off.
+ */
+public class BlackBoxRecorder {
+    private final StatementEvent[] events;
+    private int next = 0;
+    private int count = 0;
+
+    /**
+     * @return a recorder of configured size, or null if black box recording is disabled
+     */
+    public static BlackBoxRecorder create() {
+        if (ConfigurationParameters.blackBoxSize <= 0) {
+            return null;
+        }
+        return new BlackBoxRecorder(ConfigurationParameters.blackBoxSize);
+    }
+
+    public BlackBoxRecorder(int size) {
+        this.events = new StatementEvent[size];
+        for (int i = 0; i < size; ++i) {
+            events[i] = new StatementEvent();
+        }
+    }
+
+    /**
+     * Record a statement execution in the slot of the oldest event.  The slot is filled under the
+     * recorder's lock, so that a concurrent {@link #dump()} never renders a half-written event.
+     */
+    public synchronized void record(String methodName,
+                                    String sql,
+                                    Map<Integer, Object> parameters,
+                                    Map<String, Object> namedParameters,
+                                    long elapsedTimeInNano,
+                                    boolean failed) {
+        events[next].set(methodName, sql, parameters, namedParameters, elapsedTimeInNano, failed);
+        next = (next + 1) % events.length;
+        if (count < events.length) {
+            ++count;
+        }
+    }
+
+    /**
+     * Render the recorded events, oldest first.
+     *
+     * @return rendered events, or null if nothing is recorded
+     */
+    public synchronized String dump() {
+        if (count == 0) {
+            return null;
+        }
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        StringBuilder sb = new StringBuilder("Recent statements, oldest first:");
+        int start = (next - count + events.length) % events.length;
+        for (int i = 0; i < count; ++i) {
+            StatementEvent e = events[(start + i) % events.length];
+            sb.append("\n  [").append(i + 1).append("] ");
+            e.appendTo(sb, timeFormat);
+        }
+        return sb.toString();
+    }
+}
@@ -27,14 +27,26 @@ public class CallableStatementLoggingHandler extends PreparedStatementLoggingHan
     }
 
     @Override
-    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args) {
-        LogUtils.appendSql(sb, sql, parameters, namedParameters);
+    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args, Configuration config) {
+        LogUtils.appendSql(sb, sql, parameters, namedParameters, config);
     }
 
     @Override
-    protected void doAddBatch(Object proxy, Method method, Object[] args) {
+    protected void encodeStatement(JsonEventEncoder encoder, Object proxy, Method method, Object[] args) {
+        LogUtils.encodeSql(encoder, sql, parameters, namedParameters);
+    }
+
+    @Override
+    protected void encodeBatchStatements(JsonEventEncoder encoder) {
+        LogUtils.encodeSql(encoder, sql, null, null);
+        encoder.batchParameters("batchParameters", batchParameters);
+        encoder.batchParameters("batchNamedParameters", batchNamedParameters);
+    }
+
+    @Override
+    protected void doAddBatch(Object proxy, Method method, Object[] args, Configuration config) {
         if (namedParameters.isEmpty()) {
-            super.doAddBatch(proxy,method,args);
+            super.doAddBatch(proxy, method, args, config);
         } else {
             if (this.batchNamedParameters == null) {
                 this.batchNamedParameters = new ArrayList<Map<String,Object>>();
@@ -44,8 +56,8 @@ public class CallableStatementLoggingHandler extends PreparedStatementLoggingHan
     }
 
     @Override
-    protected void appendBatchStatements(StringBuilder sb) {
-        LogUtils.appendBatchSqls(sb, sql, batchParameters, batchNamedParameters);
+    protected void appendBatchStatements(StringBuilder sb, Configuration config) {
+        LogUtils.appendBatchSqls(sb, sql, batchParameters, batchNamedParameters, config);
     }
 
     @Override
@@ -62,7 +74,7 @@ public class CallableStatementLoggingHandler extends PreparedStatementLoggingHan
         }
 
         if (r instanceof ResultSet) {
-            r = wrapByResultSetProxy(logMetaData, (ResultSet) r);
+            r = wrapByResultSetProxy(logMetaData, (ResultSet) r, createResultSetContext(proxy, method, args));
         }
 
         if (SET_METHODS.contains(method.getName())) {
@@ -80,8 +92,22 @@ public class CallableStatementLoggingHandler extends PreparedStatementLoggingHan
     }
 
     @Override
-    protected void handleException(Throwable t, Object proxy, Method method, Object[] args) throws Throwable {
-        LogUtils.handleException(t, statementLogger, LogUtils.createLogEntry(method, sql, parameters, namedParameters));
+    protected Map<String, Object> getNamedParameters() {
+        return namedParameters;
+    }
+
+    @Override
+    protected StatementContext createStatementContext(Object proxy, Method method, Object[] args) {
+        return new StatementContext(sql,
+                                    new TreeMap<Integer, Object>(parameters),
+                                    new TreeMap<String, Object>(namedParameters),
+                                    lastExecuteStartTimeInNano,
+                                    lastExecuteTimeInNano);
+    }
+
+    @Override
+    protected void handleException(Throwable t, Object proxy, Method method, Object[] args, Configuration config) throws Throwable {
+        LogUtils.handleException(t, statementLogger, LogUtils.createLogEntry(method, sql, parameters, namedParameters, config));
     }
 
 }
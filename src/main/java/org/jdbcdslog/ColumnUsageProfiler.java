@@ -0,0 +1,174 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.advisorLogger;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records which columns of ResultSets are actually read by application, per statement fingerprint, and
+ * periodically logs statements which fetch columns that are mostly never read, with an estimation of
+ * bytes per row wasted by them.
+ */
+public class ColumnUsageProfiler {
+    /** estimated size of columns with unknown or unbounded size */
+    static final int UNKNOWN_COLUMN_BYTES = 16;
+    static final int MAX_COLUMN_BYTES = 4000;
+
+    private static final ConcurrentMap<String, ColumnUsage> usages = new ConcurrentHashMap<String, ColumnUsage>();
+
+    private static final ReportInterval reportInterval = new ReportInterval(ConfigurationParameters.columnUsageProfilerReportIntervalInNano);
+
+    static class ColumnUsage {
+        final String normalizedSql;
+        final String[] columnNames;
+        final int[] columnBytes;
+        final long[] usedColumns;
+        long resultSetCount = 0;
+
+        ColumnUsage(String normalizedSql, ResultSetMetaData metaData) throws SQLException {
+            this.normalizedSql = normalizedSql;
+            int columnCount = metaData.getColumnCount();
+            columnNames = new String[columnCount];
+            columnBytes = new int[columnCount];
+            usedColumns = newColumnSet(columnCount);
+            for (int i = 0; i < columnCount; ++i) {
+                columnNames[i] = metaData.getColumnLabel(i + 1);
+                columnBytes[i] = estimateColumnBytes(metaData, i + 1);
+            }
+        }
+
+        synchronized void merge(long[] used) {
+            ++resultSetCount;
+            for (int i = 0; i < usedColumns.length && i < used.length; ++i) {
+                usedColumns[i] |= used[i];
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ConfigurationParameters.columnUsageProfiler;
+    }
+
+    /**
+     * Create an empty set of columns, to be marked by {@link #markColumn(long[], int)}.
+     */
+    public static long[] newColumnSet(int columnCount) {
+        return new long[(columnCount + 63) / 64];
+    }
+
+    /**
+     * Mark column (1-based) as read in the column set.
+     */
+    public static void markColumn(long[] columnSet, int column) {
+        int index = column - 1;
+        if (index >= 0 && (index >> 6) < columnSet.length) {
+            columnSet[index >> 6] |= 1L << (index & 63);
+        }
+    }
+
+    static boolean isMarked(long[] columnSet, int index) {
+        return (columnSet[index >> 6] & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * Record columns read from a ResultSet.
+     */
+    public static void record(SqlFingerprint fingerprint, ResultSetMetaData metaData, long[] usedColumns) throws SQLException {
+        if (fingerprint == null || metaData == null) {
+            return;
+        }
+        ColumnUsage usage = usages.get(fingerprint.getId());
+        if (usage == null) {
+            if (usages.size() >= ConfigurationParameters.columnUsageProfilerMaxFingerprints) {
+                return;
+            }
+            usage = new ColumnUsage(fingerprint.getNormalizedSql(), metaData);
+            ColumnUsage existing = usages.putIfAbsent(fingerprint.getId(), usage);
+            if (existing != null) {
+                usage = existing;
+            }
+        }
+        usage.merge(usedColumns);
+
+        if (reportInterval.isDue()) {
+            report();
+        }
+    }
+
+    /**
+     * Log over-fetching statements found, and start a new collection period.
+     */
+    static void report() {
+        for (Map.Entry<String, ColumnUsage> entry : usages.entrySet()) {
+            usages.remove(entry.getKey());
+            String message = describeOverFetching(entry.getKey(), entry.getValue());
+            if (message != null && advisorLogger.isInfoEnabled()) {
+                advisorLogger.info(message);
+            }
+        }
+    }
+
+    static String describeOverFetching(String fingerprintId, ColumnUsage usage) {
+        synchronized (usage) {
+            int columnCount = usage.columnNames.length;
+            int usedCount = 0;
+            int totalBytes = 0;
+            int unusedBytes = 0;
+            StringBuilder unused = new StringBuilder();
+            for (int i = 0; i < columnCount; ++i) {
+                totalBytes += usage.columnBytes[i];
+                if (isMarked(usage.usedColumns, i)) {
+                    ++usedCount;
+                } else {
+                    unusedBytes += usage.columnBytes[i];
+                    if (unused.length() > 0) {
+                        unused.append(", ");
+                    }
+                    unused.append(usage.columnNames[i]);
+                }
+            }
+            if (columnCount == 0 || (columnCount - usedCount) < columnCount * ConfigurationParameters.columnUsageProfilerMinUnusedRatio) {
+                return null;
+            }
+            return new StringBuilder("Column usage: fingerprint ").append(fingerprintId)
+                    .append(" reads ").append(usedCount).append(" of ").append(columnCount)
+                    .append(" columns in ").append(usage.resultSetCount).append(" ResultSets; never read: [").append(unused)
+                    .append("], ~").append(unusedBytes).append(" of ").append(totalBytes).append(" bytes per row.")
+                    .append("  SQL: ").append(usage.normalizedSql)
+                    .toString();
+        }
+    }
+
+    static int estimateColumnBytes(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+                return 1;
+            case Types.SMALLINT:
+                return 2;
+            case Types.INTEGER:
+            case Types.REAL:
+                return 4;
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.DATE:
+            case Types.TIME:
+                return 8;
+            case Types.TIMESTAMP:
+                return 12;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return metaData.getPrecision(column) > 0 ? metaData.getPrecision(column) / 2 + 2 : UNKNOWN_COLUMN_BYTES;
+            default:
+                int size = metaData.getColumnDisplaySize(column);
+                return (size <= 0) ? UNKNOWN_COLUMN_BYTES : Math.min(size, MAX_COLUMN_BYTES);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.jdbcdslog;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable snapshot of the settings which may change while running, through JMX or reload of
+ * jdbcdslog.properties, and which may differ by {@link ConfigurationProfile}.  A statement handler reads
+ * the configuration of its connection once per invocation, so that all its decisions are made on the
+ * same settings.
+ */
+public final class Configuration {
+    private static Logger logger = LoggerFactory.getLogger(Configuration.class);
+
+    final long slowQueryThresholdInNano;
+    final boolean showTime;
+    final boolean printStackTrace;
+    final boolean printFullStackTrace;
+    final String printStackTracePattern;
+    final boolean logBeforeStatement;
+    final boolean logDetailAfterStatement;
+    final boolean logAddBatch;
+    final boolean logAddBatchDetail;
+    final boolean logExecuteBatchDetail;
+    final boolean jsonOutput;
+    final boolean inlineQueryParams;
+    final double samplingRate;
+    final StatementSampler.Scope samplingScope;
+    final long samplingFingerprintIntervalInNano;
+    final double governorSamplingRate;
+    final boolean passthrough;
+    final Map<String, Integer> fetchSizes;
+
+    // resolved from the settings above, for hot paths
+    final StackTraceMode stackTraceMode;
+    final Pattern stackTracePattern;
+    final ElapsedTimeMode elapsedTimeMode;
+
+    private Configuration(long slowQueryThresholdInNano, boolean showTime, boolean printStackTrace, boolean printFullStackTrace,
+                          String printStackTracePattern, boolean logBeforeStatement, boolean logDetailAfterStatement,
+                          boolean logAddBatch, boolean logAddBatchDetail, boolean logExecuteBatchDetail, boolean jsonOutput,
+                          boolean inlineQueryParams, double samplingRate, StatementSampler.Scope samplingScope,
+                          long samplingFingerprintIntervalInNano, double governorSamplingRate, boolean passthrough,
+                          Map<String, Integer> fetchSizes) {
+        this.slowQueryThresholdInNano = slowQueryThresholdInNano;
+        this.showTime = showTime;
+        this.printStackTrace = printStackTrace;
+        this.printFullStackTrace = printFullStackTrace;
+        this.printStackTracePattern = printStackTracePattern == null ? "" : printStackTracePattern;
+        this.logBeforeStatement = logBeforeStatement;
+        this.logDetailAfterStatement = logDetailAfterStatement || !logBeforeStatement;
+        this.logAddBatch = logAddBatch;
+        this.logAddBatchDetail = logAddBatchDetail;
+        this.logExecuteBatchDetail = logExecuteBatchDetail;
+        this.jsonOutput = jsonOutput;
+        this.inlineQueryParams = inlineQueryParams;
+        this.samplingRate = samplingRate;
+        this.samplingScope = samplingScope;
+        this.samplingFingerprintIntervalInNano = samplingFingerprintIntervalInNano;
+        this.governorSamplingRate = governorSamplingRate;
+        this.passthrough = passthrough;
+        this.fetchSizes = fetchSizes;
+
+        StackTraceMode mode = StackTraceMode.of(printStackTrace, printFullStackTrace, this.printStackTracePattern);
+        Pattern pattern = null;
+        if (mode == StackTraceMode.PATTERN) {
+            try {
+                pattern = Pattern.compile(this.printStackTracePattern);
+            } catch (PatternSyntaxException e) {
+                mode = StackTraceMode.CALLER;       // rejected by validation on reload, only possible at startup
+            }
+        }
+        this.stackTraceMode = mode;
+        this.stackTracePattern = pattern;
+        this.elapsedTimeMode = showTime ? ElapsedTimeMode.SHOWN : ElapsedTimeMode.HIDDEN;
+    }
+
+    /**
+     * Snapshot of the current values of {@link ConfigurationParameters}.
+     */
+    static Configuration fromParameters() {
+        return new Configuration(ConfigurationParameters.slowQueryThresholdInNano,
+                                 ConfigurationParameters.showTime,
+                                 ConfigurationParameters.printStackTrace,
+                                 ConfigurationParameters.printFullStackTrace,
+                                 ConfigurationParameters.printStackTracePattern,
+                                 ConfigurationParameters.logBeforeStatement,
+                                 ConfigurationParameters.logDetailAfterStatement,
+                                 ConfigurationParameters.logAddBatch,
+                                 ConfigurationParameters.logAddBatchDetail,
+                                 ConfigurationParameters.logExecuteBatchDetail,
+                                 ConfigurationParameters.jsonOutput,
+                                 ConfigurationParameters.inlineQueryParams,
+                                 ConfigurationParameters.samplingRate,
+                                 ConfigurationParameters.samplingScope,
+                                 ConfigurationParameters.samplingFingerprintIntervalInNano,
+                                 ConfigurationParameters.governorSamplingRate,
+                                 ConfigurationParameters.passthrough,
+                                 Collections.unmodifiableMap(new HashMap<String, Integer>(ConfigurationParameters.fetchSizes)));
+    }
+
+    /**
+     * This configuration with settings overridden by properties of the given prefix, such as
+     * <code>jdbcdslog.profile.reporting.slowQueryThreshold</code> for prefix
+     * <code>jdbcdslog.profile.reporting.</code>.  Invalid values are ignored with a warning.
+     */
+    Configuration withOverrides(Properties props, String prefix) {
+        long threshold = slowQueryThresholdInNano;
+        String value = props.getProperty(prefix + "slowQueryThreshold");
+        if (value != null) {
+            try {
+                threshold = ConfigurationParameters.parseTimeInNano(value);
+                if (threshold <= 0) {
+                    threshold = Long.MAX_VALUE;
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid {}slowQueryThreshold {}, ignored", prefix, value);
+            }
+        }
+        double rate = samplingRate;
+        value = props.getProperty(prefix + "sampling.rate");
+        if (value != null) {
+            try {
+                rate = Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid {}sampling.rate {}, ignored", prefix, value);
+            }
+        }
+        return new Configuration(threshold,
+                                 booleanOf(props, prefix + "showTime", showTime),
+                                 booleanOf(props, prefix + "printStackTrace", printStackTrace),
+                                 booleanOf(props, prefix + "printFullStackTrace", printFullStackTrace),
+                                 props.getProperty(prefix + "printStackTracePattern", printStackTracePattern),
+                                 booleanOf(props, prefix + "logBeforeStatement", logBeforeStatement),
+                                 booleanOf(props, prefix + "logDetailAfterStatement", logDetailAfterStatement),
+                                 booleanOf(props, prefix + "logAddBatch", logAddBatch),
+                                 booleanOf(props, prefix + "logAddBatchDetail", logAddBatchDetail),
+                                 booleanOf(props, prefix + "logExecuteBatchDetail", logExecuteBatchDetail),
+                                 jsonOutput,
+                                 inlineQueryParams,
+                                 rate,
+                                 samplingScope,
+                                 samplingFingerprintIntervalInNano,
+                                 governorSamplingRate,
+                                 booleanOf(props, prefix + "passthrough", passthrough),
+                                 fetchSizes);
+    }
+
+    private static boolean booleanOf(Properties props, String name, boolean defaultValue) {
+        String value = props.getProperty(name);
+        return value == null ? defaultValue : "true".equalsIgnoreCase(value.trim());
+    }
+
+    public long getSlowQueryThresholdInNano() {
+        return slowQueryThresholdInNano;
+    }
+
+    public boolean isShowTime() {
+        return showTime;
+    }
+
+    public boolean isPrintStackTrace() {
+        return printStackTrace;
+    }
+
+    public boolean isPrintFullStackTrace() {
+        return printFullStackTrace;
+    }
+
+    public String getPrintStackTracePattern() {
+        return printStackTracePattern;
+    }
+
+    public boolean isLogBeforeStatement() {
+        return logBeforeStatement;
+    }
+
+    public boolean isLogDetailAfterStatement() {
+        return logDetailAfterStatement;
+    }
+
+    public boolean isLogAddBatch() {
+        return logAddBatch;
+    }
+
+    public boolean isLogAddBatchDetail() {
+        return logAddBatchDetail;
+    }
+
+    public boolean isLogExecuteBatchDetail() {
+        return logExecuteBatchDetail;
+    }
+
+    public boolean isJsonOutput() {
+        return jsonOutput;
+    }
+
+    public boolean isInlineQueryParams() {
+        return inlineQueryParams;
+    }
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    public StatementSampler.Scope getSamplingScope() {
+        return samplingScope;
+    }
+
+    public long getSamplingFingerprintIntervalInNano() {
+        return samplingFingerprintIntervalInNano;
+    }
+
+    public double getGovernorSamplingRate() {
+        return governorSamplingRate;
+    }
+
+    public boolean isPassthrough() {
+        return passthrough;
+    }
+
+    /**
+     * @return fetch sizes configured by statement fingerprint id
+     */
+    public Map<String, Integer> getFetchSizes() {
+        return fetchSizes;
+    }
+}
@@ -2,7 +2,16 @@ package org.jdbcdslog;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,11 +33,76 @@ public class ConfigurationParameters {
     static boolean logAddBatchDetail = true;
     static boolean logAddBatch = true;
     static boolean logExecuteBatchDetail =true;
+    static ResultSetRowSampling resultSetRowSampling = ResultSetRowSampling.ALL;
+    static int resultSetRowSampleSize = 10;
+    static boolean logFetchTimings = false;
+    static boolean fetchSizeAdvisor = false;
+    static long fetchSizeAdvisorReportIntervalInNano = 600L * 1000000000L;
+    static long fetchSizeAdvisorMinRows = 1000;
+    static int fetchSizeAdvisorMaxFingerprints = 1000;
+    static Map<String, Integer> fetchSizes = new HashMap<String, Integer>();
+    static boolean columnUsageProfiler = false;
+    static long columnUsageProfilerReportIntervalInNano = 600L * 1000000000L;
+    static double columnUsageProfilerMinUnusedRatio = 0.5;
+    static int columnUsageProfilerMaxFingerprints = 1000;
+    static boolean resultSizeGuard = false;
+    static long resultSetRowWarnThreshold = 0;
+    static long resultSetRowLimit = 0;
+    static boolean resultSetRowLimitEnforced = false;
+    static Map<String, Long> resultSetRowWarnThresholds = new HashMap<String, Long>();
+    static Map<String, Long> resultSetRowLimits = new HashMap<String, Long>();
+    static double samplingRate = 1.0;
+    static StatementSampler.Scope samplingScope = StatementSampler.Scope.STATEMENT;
+    static long samplingFingerprintIntervalInNano = 0;
+    static boolean coalesce = false;
+    static long coalesceWindowInNano = 1000L * 1000000L;
+    static boolean governor = false;
+    static int blackBoxSize = 0;
+    static boolean transactionTail = false;
+    static long transactionTailThresholdInNano = 1000L * 1000000L;
+    static int transactionTailMaxStatements = 1000;
+    static boolean sqlDictionary = false;
+    static int sqlDictionaryMaxEntries = 10000;
+    static boolean jsonOutput = false;
+    static List<String> listenerClassNames = new ArrayList<String>();
+    static String journalDirectory = null;
+    static int journalSegmentSize = 64 * 1024 * 1024;
+    static int journalSegments = 8;
+    static String fileSinkDirectory = null;
+    static Set<String> fileSinkCategories = new HashSet<String>();
+    static long fileSinkMaxFileSize = 100L * 1024 * 1024;
+    static int fileSinkMaxFiles = 10;
+    static boolean fileSinkCompress = false;
+    static long fileSinkFlushIntervalInNano = 200L * 1000000L;
+    static boolean flightRecorder = true;
+    static int flightRecorderMaxSqlLength = 1000;
+    static String flightRecorderThreshold = "0 ms";
+    static List<String> spanExporterNames = new ArrayList<String>();
+    static int spanExporterMemoryCapacity = 10000;
+    static String spanExporterFile = "jdbcdslog-spans.log";
+    static boolean sqlCommentConnectionId = false;
+    static boolean sqlCommentCallSite = false;
+    static boolean sqlCommentTraceId = false;
+    static long summaryIntervalInNano = 0;
+    static int summaryTopStatements = 5;
+    static int summaryMaxFingerprints = 1000;
+    static String metricsHost = "127.0.0.1";
+    static int metricsPort = 0;
+    static int metricsMaxFingerprints = 100;
+    static boolean jmx = false;
+    static URL propertiesUrl = null;
+    static long reloadIntervalInNano = 0;
+    static boolean passthrough = false;
+    private static volatile Configuration configuration;
+    static double governorBudget = 0.05;
+    static long governorIntervalInNano = 5L * 1000000000L;
+    static double governorSamplingRate = 0.1;
 
     static {
         ClassLoader loader = ConfigurationParameters.class.getClassLoader();
         InputStream in = null;
         try {
+            propertiesUrl = loader.getResource("jdbcdslog.properties");
             in = loader.getResourceAsStream("jdbcdslog.properties");
             props = new Properties(System.getProperties());
             if (in != null){
@@ -47,6 +121,29 @@ public class ConfigurationParameters {
             initLogAddBatch();
             initLogAddBatchDetail();
             initLogExecuteBatchDetail();
+            initResultSetRowSampling();
+            initLogFetchTimings();
+            initFetchSizeAdvisor();
+            initColumnUsageProfiler();
+            initResultSizeGuard();
+            initSampling();
+            initCoalesce();
+            initGovernor();
+            initBlackBox();
+            initTransactionTail();
+            initSqlDictionary();
+            initOutputFormat();
+            initListeners();
+            initJournal();
+            initFileSink();
+            initFlightRecorder();
+            initTracing();
+            initSqlComment();
+            initSummary();
+            initMetrics();
+            initJmx();
+            initReload();
+            initPassthrough();
 
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -58,23 +155,163 @@ public class ConfigurationParameters {
                     logger.error(e.getMessage(), e);
                 }
         }
+        publish();
+        ConfigurationWatcher.startIfConfigured();
+        SummaryReporter.startIfConfigured();
+        MetricsExporter.startIfConfigured();
+        JdbcDsLogControl.registerIfConfigured();
+    }
+
+    /**
+     * Parse time with unit of ns, ms or s.  Milli-second is assumed if no unit is given.
+     */
+    static long parseTimeInNano(String time) throws NumberFormatException {
+        time = time.trim();
+        if (time.endsWith("ns")) {
+            return Long.parseLong(time.substring(0, time.length() - 2));
+        } else if (time.endsWith("ms")) {
+            return Long.parseLong(time.substring(0, time.length() - 2)) * 1000000;
+        } else if (time.endsWith("s")) {
+            return Long.parseLong(time.substring(0, time.length() - 1)) * 1000000 * 1000;
+        } else {
+            return Long.parseLong(time) * 1000000;  // assume ms by default
+        }
+    }
+
+    /**
+     * Settings in effect, which handlers read once per invocation.
+     */
+    static Configuration current() {
+        return configuration;
+    }
+
+    /**
+     * Publish current values of the runtime settings as the configuration in effect.  Also to be called
+     * after changing them directly, as tests do.
+     */
+    static void publish() {
+        configuration = Configuration.fromParameters();
+        ConfigurationProfile.publishAll(configuration, props);
+    }
+
+    /**
+     * Change a setting at runtime, if its value is valid, and re-apply the settings which may be changed while
+     * running.
+     *
+     * @throws IllegalArgumentException if the value is not valid for the setting, in which case nothing is changed
+     */
+    static synchronized void update(String name, String value) {
+        Properties newProps = new Properties(System.getProperties());
+        newProps.putAll(props);
+        newProps.setProperty(name, value);
+        for (String problem : validate(newProps)) {
+            if (problem.startsWith(name + "=")) {       // other settings are as loaded at startup
+                throw new IllegalArgumentException(problem);
+            }
+        }
+        props = newProps;
+        applyRuntimeSettings();
+    }
+
+    /**
+     * Replace all properties by newly loaded ones, if they are valid, and re-apply the settings which may
+     * be changed while running.  Other settings take effect on restart.
+     *
+     * @return problems found, in which case nothing is changed
+     */
+    static synchronized List<String> reload(Properties newProps) {
+        List<String> problems = validate(newProps);
+        if (problems.isEmpty()) {
+            props = newProps;
+            applyRuntimeSettings();
+        }
+        return problems;
+    }
+
+    private static void applyRuntimeSettings() {
+        initSlowQueryThreshold();
+        initPrintStackTrace();
+        initPrintFullStackTrace();
+        initPrintStackTracePattern();
+        initShowTime();
+        initInlineQueryParams();
+        initLogBeforeStatement();
+        initLogDetailAfterStatement();
+        initLogAddBatch();
+        initLogAddBatchDetail();
+        initLogExecuteBatchDetail();
+        initOutputFormat();
+        initSampling();
+        initFetchSizes();
+        initPassthrough();
+        publish();
+        Passthrough.refresh();
+    }
+
+    /**
+     * Check values of the settings which may be changed while running, globally and in profiles.
+     */
+    static List<String> validate(Properties newProps) {
+        List<String> problems = new ArrayList<String>();
+        validate(newProps, "jdbcdslog.", problems);
+        for (String name : ConfigurationProfile.namesIn(newProps)) {
+            validate(newProps, ConfigurationProfile.PREFIX + name + ".", problems);
+        }
+        return problems;
+    }
+
+    private static void validate(Properties newProps, String prefix, List<String> problems) {
+        for (String name : new String[] { "slowQueryThreshold", "sampling.fingerprintInterval" }) {
+            String value = newProps.getProperty(prefix + name);
+            if (value != null) {
+                try {
+                    parseTimeInNano(value);
+                } catch (NumberFormatException e) {
+                    problems.add(prefix + name + "=" + value + " is not a time");
+                }
+            }
+        }
+        for (String name : new String[] { "printStackTrace", "printFullStackTrace", "showTime", "inlineQueryParams",
+                                          "logBeforeStatement", "logDetailAfterStatement", "logAddBatch",
+                                          "logAddBatchDetail", "logExecuteBatchDetail", "passthrough" }) {
+            String value = newProps.getProperty(prefix + name);
+            if (value != null && !value.trim().equalsIgnoreCase("true") && !value.trim().equalsIgnoreCase("false")) {
+                problems.add(prefix + name + "=" + value + " is not true or false");
+            }
+        }
+        String pattern = newProps.getProperty(prefix + "printStackTracePattern");
+        if (pattern != null && pattern.length() > 0) {
+            try {
+                Pattern.compile(pattern);
+            } catch (PatternSyntaxException e) {
+                problems.add(prefix + "printStackTracePattern=" + pattern + " is not a regular expression");
+            }
+        }
+        String outputFormat = newProps.getProperty(prefix + "outputFormat", "text").trim();
+        if (!outputFormat.equalsIgnoreCase("text") && !outputFormat.equalsIgnoreCase("json")) {
+            problems.add(prefix + "outputFormat=" + outputFormat + " is not text or json");
+        }
+        String samplingRate = newProps.getProperty(prefix + "sampling.rate");
+        if (samplingRate != null) {
+            try {
+                double rate = Double.parseDouble(samplingRate.trim());
+                if (rate < 0 || rate > 1) {
+                    problems.add(prefix + "sampling.rate=" + samplingRate + " is not between 0 and 1");
+                }
+            } catch (NumberFormatException e) {
+                problems.add(prefix + "sampling.rate=" + samplingRate + " is not a number");
+            }
+        }
     }
 
     /* init parameters start. */
     static void initSlowQueryThreshold() {
+        slowQueryThresholdInNano = Long.MAX_VALUE;      // default, also when the setting is removed on reload
         String slowQueryThresholdString = props.getProperty("jdbcdslog.slowQueryThreshold");
         if (slowQueryThresholdString != null)  {
             slowQueryThresholdString = slowQueryThresholdString.trim();
             try {
-                if (slowQueryThresholdString.endsWith("ns")) {
-                    slowQueryThresholdInNano = Long.parseLong(slowQueryThresholdString.substring(0, slowQueryThresholdString.length() - 2));
-                } else if (slowQueryThresholdString.endsWith("ms")) {
-                    slowQueryThresholdInNano = Long.parseLong(slowQueryThresholdString.substring(0, slowQueryThresholdString.length() - 2)) * 1000000;
-                } else if (slowQueryThresholdString.endsWith("s")) {
-                    slowQueryThresholdInNano = Long.parseLong(slowQueryThresholdString.substring(0, slowQueryThresholdString.length() - 1)) * 1000000 * 1000;
-                } else {
-                    slowQueryThresholdInNano = Long.parseLong(slowQueryThresholdString) * 1000000;  // assume ms by default
-                }
+                slowQueryThresholdInNano = parseTimeInNano(slowQueryThresholdString);
             } catch (NumberFormatException ignored) {
                 slowQueryThresholdInNano = 0;
             }
@@ -143,5 +380,298 @@ public class ConfigurationParameters {
         logExecuteBatchDetail = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.logExecuteBatchDetail", "false"));
     }
 
+    static void initResultSetRowSampling() {
+        String sampling = props.getProperty("jdbcdslog.resultSetRowSampling", "all").trim();
+        try {
+            resultSetRowSampling = ResultSetRowSampling.valueOf(sampling.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown jdbcdslog.resultSetRowSampling {}, all rows will be logged", sampling);
+            resultSetRowSampling = ResultSetRowSampling.ALL;
+        }
+
+        try {
+            resultSetRowSampleSize = Integer.parseInt(props.getProperty("jdbcdslog.resultSetRowSampleSize", "10").trim());
+        } catch (NumberFormatException e) {
+            resultSetRowSampleSize = 10;
+        }
+        if (resultSetRowSampleSize <= 0) {
+            resultSetRowSampleSize = 1;
+        }
+    }
+
+    private static void initLogFetchTimings() {
+        logFetchTimings = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.logFetchTimings", "false"));
+    }
+
+    static void initFetchSizeAdvisor() {
+        fetchSizeAdvisor = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.fetchSizeAdvisor", "false"));
+        try {
+            fetchSizeAdvisorReportIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.fetchSizeAdvisor.reportInterval", "600s"));
+            fetchSizeAdvisorMinRows = Long.parseLong(props.getProperty("jdbcdslog.fetchSizeAdvisor.minRows", "1000").trim());
+            fetchSizeAdvisorMaxFingerprints = Integer.parseInt(props.getProperty("jdbcdslog.fetchSizeAdvisor.maxFingerprints", "1000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.fetchSizeAdvisor settings, fetch size advisor is disabled", e);
+            fetchSizeAdvisor = false;
+        }
+        initFetchSizes();
+    }
+
+    static void initFetchSizes() {
+        fetchSizes = new HashMap<String, Integer>();
+        String prefix = "jdbcdslog.fetchSize.";
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                try {
+                    fetchSizes.put(name.substring(prefix.length()), Integer.valueOf(props.getProperty(name).trim()));
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid fetch size {}={}", name, props.getProperty(name));
+                }
+            }
+        }
+    }
+
+    static void initColumnUsageProfiler() {
+        columnUsageProfiler = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.columnUsageProfiler", "false"));
+        try {
+            columnUsageProfilerReportIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.columnUsageProfiler.reportInterval", "600s"));
+            columnUsageProfilerMinUnusedRatio = Double.parseDouble(props.getProperty("jdbcdslog.columnUsageProfiler.minUnusedRatio", "0.5").trim());
+            columnUsageProfilerMaxFingerprints = Integer.parseInt(props.getProperty("jdbcdslog.columnUsageProfiler.maxFingerprints", "1000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.columnUsageProfiler settings, column usage profiler is disabled", e);
+            columnUsageProfiler = false;
+        }
+    }
+
+    static void initResultSizeGuard() {
+        try {
+            resultSetRowWarnThreshold = Long.parseLong(props.getProperty("jdbcdslog.resultSetRowWarnThreshold", "0").trim());
+            resultSetRowLimit = Long.parseLong(props.getProperty("jdbcdslog.resultSetRowLimit", "0").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.resultSetRowWarnThreshold or jdbcdslog.resultSetRowLimit", e);
+        }
+        resultSetRowLimitEnforced = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.resultSetRowLimitEnforced", "false"));
+        resultSetRowWarnThresholds = initLongsByFingerprint("jdbcdslog.resultSetRowWarnThreshold.");
+        resultSetRowLimits = initLongsByFingerprint("jdbcdslog.resultSetRowLimit.");
+
+        resultSizeGuard = resultSetRowWarnThreshold > 0 || resultSetRowLimit > 0
+                        || !resultSetRowWarnThresholds.isEmpty() || !resultSetRowLimits.isEmpty();
+    }
+
+    private static Map<String, Long> initLongsByFingerprint(String prefix) {
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                try {
+                    result.put(name.substring(prefix.length()), Long.valueOf(props.getProperty(name).trim()));
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid value {}={}", name, props.getProperty(name));
+                }
+            }
+        }
+        return result;
+    }
+
+    static void initSampling() {
+        try {
+            samplingRate = Double.parseDouble(props.getProperty("jdbcdslog.sampling.rate", "1.0").trim());
+            samplingFingerprintIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.sampling.fingerprintInterval", "0"));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.sampling settings, sampling is disabled", e);
+            samplingRate = 1.0;
+            samplingFingerprintIntervalInNano = 0;
+        }
+
+        String scope = props.getProperty("jdbcdslog.sampling.scope", "statement").trim();
+        try {
+            samplingScope = StatementSampler.Scope.valueOf(scope.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown jdbcdslog.sampling.scope {}, statement scope is used", scope);
+            samplingScope = StatementSampler.Scope.STATEMENT;
+        }
+    }
+
+    static void initCoalesce() {
+        coalesce = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.coalesce", "false"));
+        try {
+            coalesceWindowInNano = parseTimeInNano(props.getProperty("jdbcdslog.coalesce.window", "1000ms"));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.coalesce.window, 1000ms is used", e);
+            coalesceWindowInNano = 1000L * 1000000L;
+        }
+    }
+
+    static void initGovernor() {
+        governor = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.governor", "false"));
+        try {
+            governorBudget = Double.parseDouble(props.getProperty("jdbcdslog.governor.budget", "0.05").trim());
+            governorIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.governor.interval", "5s"));
+            governorSamplingRate = Double.parseDouble(props.getProperty("jdbcdslog.governor.samplingRate", "0.1").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.governor settings, overhead governor is disabled", e);
+            governor = false;
+        }
+    }
+
+    static void initBlackBox() {
+        try {
+            blackBoxSize = Integer.parseInt(props.getProperty("jdbcdslog.blackBox.size", "0").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.blackBox.size, black box recording is disabled", e);
+            blackBoxSize = 0;
+        }
+    }
+
+    static void initTransactionTail() {
+        transactionTail = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.transactionTail", "false"));
+        try {
+            transactionTailThresholdInNano = parseTimeInNano(props.getProperty("jdbcdslog.transactionTail.threshold", "1000"));
+            transactionTailMaxStatements = Integer.parseInt(props.getProperty("jdbcdslog.transactionTail.maxStatements", "1000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.transactionTail settings, tail-based transaction logging is disabled", e);
+            transactionTail = false;
+        }
+    }
+
+    static void initSqlDictionary() {
+        sqlDictionary = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.sqlDictionary", "false"));
+        try {
+            sqlDictionaryMaxEntries = Integer.parseInt(props.getProperty("jdbcdslog.sqlDictionary.maxEntries", "10000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.sqlDictionary.maxEntries, SQL dictionary is disabled", e);
+            sqlDictionary = false;
+        }
+    }
+
+    static void initOutputFormat() {
+        String outputFormat = props.getProperty("jdbcdslog.outputFormat", "text").trim();
+        if (!outputFormat.equalsIgnoreCase("text") && !outputFormat.equalsIgnoreCase("json")) {
+            logger.warn("Invalid jdbcdslog.outputFormat {}, text output is used", outputFormat);
+        }
+        jsonOutput = outputFormat.equalsIgnoreCase("json");
+    }
+
+    static void initListeners() {
+        listenerClassNames = new ArrayList<String>();
+        for (String className : props.getProperty("jdbcdslog.listeners", "").split(",")) {
+            if (className.trim().length() > 0) {
+                listenerClassNames.add(className.trim());
+            }
+        }
+    }
+
+    static void initJournal() {
+        journalDirectory = props.getProperty("jdbcdslog.journal.dir");
+        try {
+            journalSegmentSize = Integer.parseInt(props.getProperty("jdbcdslog.journal.segmentSize", String.valueOf(64 * 1024 * 1024)).trim());
+            journalSegments = Integer.parseInt(props.getProperty("jdbcdslog.journal.segments", "8").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.journal settings, event journal is disabled", e);
+            journalDirectory = null;
+        }
+    }
+
+    static void initFileSink() {
+        fileSinkDirectory = props.getProperty("jdbcdslog.fileSink.dir");
+        fileSinkCategories = new HashSet<String>();
+        for (String category : props.getProperty("jdbcdslog.fileSink.categories", "statement,slowQuery,resultSet,connection").split(",")) {
+            if (category.trim().length() > 0) {
+                fileSinkCategories.add(category.trim());
+            }
+        }
+        fileSinkCompress = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.fileSink.compress", "false"));
+        try {
+            fileSinkMaxFileSize = Long.parseLong(props.getProperty("jdbcdslog.fileSink.maxFileSize", String.valueOf(100L * 1024 * 1024)).trim());
+            fileSinkMaxFiles = Integer.parseInt(props.getProperty("jdbcdslog.fileSink.maxFiles", "10").trim());
+            fileSinkFlushIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.fileSink.flushInterval", "200ms"));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.fileSink settings, file sink is disabled", e);
+            fileSinkDirectory = null;
+        }
+    }
+
+    static void initFlightRecorder() {
+        flightRecorder = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.jfr", "true"));
+        flightRecorderThreshold = props.getProperty("jdbcdslog.jfr.threshold", "0 ms").trim();
+        try {
+            flightRecorderMaxSqlLength = Integer.parseInt(props.getProperty("jdbcdslog.jfr.maxSqlLength", "1000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.jfr.maxSqlLength, default is used", e);
+            flightRecorderMaxSqlLength = 1000;
+        }
+    }
+
+    static void initTracing() {
+        spanExporterNames = new ArrayList<String>();
+        for (String exporter : props.getProperty("jdbcdslog.tracing.exporters", "").split(",")) {
+            if (exporter.trim().length() > 0) {
+                spanExporterNames.add(exporter.trim());
+            }
+        }
+        spanExporterFile = props.getProperty("jdbcdslog.tracing.file", "jdbcdslog-spans.log");
+        try {
+            spanExporterMemoryCapacity = Integer.parseInt(props.getProperty("jdbcdslog.tracing.memoryCapacity", "10000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.tracing.memoryCapacity, default is used", e);
+            spanExporterMemoryCapacity = 10000;
+        }
+    }
+
+    static void initSqlComment() {
+        sqlCommentConnectionId = false;
+        sqlCommentCallSite = false;
+        sqlCommentTraceId = false;
+        for (String tag : props.getProperty("jdbcdslog.sqlComment", "").split(",")) {
+            tag = tag.trim();
+            if (tag.equalsIgnoreCase("connectionId")) {
+                sqlCommentConnectionId = true;
+            } else if (tag.equalsIgnoreCase("callSite")) {
+                sqlCommentCallSite = true;
+            } else if (tag.equalsIgnoreCase("traceId")) {
+                sqlCommentTraceId = true;
+            } else if (tag.length() > 0) {
+                logger.warn("Unknown jdbcdslog.sqlComment tag " + tag + ", ignored");
+            }
+        }
+    }
+
+    static void initSummary() {
+        try {
+            summaryIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.summary.interval", "0"));
+            summaryTopStatements = Integer.parseInt(props.getProperty("jdbcdslog.summary.topStatements", "5").trim());
+            summaryMaxFingerprints = Integer.parseInt(props.getProperty("jdbcdslog.summary.maxFingerprints", "1000").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.summary settings, summary is disabled", e);
+            summaryIntervalInNano = 0;
+        }
+    }
+
+    static void initMetrics() {
+        metricsHost = props.getProperty("jdbcdslog.metrics.host", "127.0.0.1").trim();
+        try {
+            metricsPort = Integer.parseInt(props.getProperty("jdbcdslog.metrics.port", "0").trim());
+            metricsMaxFingerprints = Integer.parseInt(props.getProperty("jdbcdslog.metrics.maxFingerprints", "100").trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.metrics settings, metrics endpoint is disabled", e);
+            metricsPort = 0;
+        }
+    }
+
+    static void initJmx() {
+        jmx = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.jmx", "false"));
+    }
+
+    static void initPassthrough() {
+        passthrough = "true".equalsIgnoreCase(props.getProperty("jdbcdslog.passthrough", "false"));
+    }
+
+    static void initReload() {
+        try {
+            reloadIntervalInNano = parseTimeInNano(props.getProperty("jdbcdslog.reload.interval", "0"));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid jdbcdslog.reload.interval, reload is disabled", e);
+            reloadIntervalInNano = 0;
+        }
+    }
+
     /* init parameters end. */
 }
@@ -0,0 +1,142 @@
+package org.jdbcdslog;
+
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Named set of settings overriding the global ones, for connections of one data source or driver URL.
+ * Settings of profile <code>reporting</code> are given as <code>jdbcdslog.profile.reporting.&lt;setting&gt;</code>
+ * in jdbcdslog.properties, for settings <code>slowQueryThreshold</code>, <code>printStackTrace</code>,
+ * <code>printFullStackTrace</code>, <code>printStackTracePattern</code>, <code>showTime</code>,
+ * <code>logBeforeStatement</code>, <code>logDetailAfterStatement</code>, <code>logAddBatch</code>,
+ * <code>logAddBatchDetail</code>, <code>logExecuteBatchDetail</code>, <code>sampling.rate</code> and
+ * <code>passthrough</code>; other settings are those of the global configuration.
+ * <p>
+ * A data source proxy selects its profile by its <code>profile</code> property, and a driver URL by a
+ * <code>profile=reporting</code> parameter.  The profile is resolved when a connection is acquired and kept in
+ * its {@link LogMetaData}, so that handlers read the configuration of their profile without lookup.  Profile
+ * configurations are rebuilt whenever the global configuration is published, so that they follow reload and
+ * JMX changes.
+ */
+public final class ConfigurationProfile {
+    static final String PREFIX = "jdbcdslog.profile.";
+
+    static final String URL_PARAMETER = "profile";
+
+    private static final Pattern URL_PARAMETER_PATTERN = Pattern.compile("([;&?])" + URL_PARAMETER + "=([^;&?]*)");
+
+    /** profile of connections which select none, i.e. the global configuration */
+    static final ConfigurationProfile DEFAULT = new ConfigurationProfile(null);
+
+    private static final ConcurrentMap<String, ConfigurationProfile> profiles = new ConcurrentHashMap<String, ConfigurationProfile>();
+
+    static {
+        ConfigurationParameters.current();      // load the settings, which publishes the default profile
+    }
+
+    private final String name;
+
+    private volatile Configuration configuration;
+
+    private ConfigurationProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Profile of the given name, or the default profile if name is null or empty.  A profile without
+     * settings has the global configuration.
+     */
+    public static ConfigurationProfile forName(String name) {
+        if (name == null || name.trim().length() == 0) {
+            return DEFAULT;
+        }
+        name = name.trim();
+        ConfigurationProfile profile = profiles.get(name);
+        if (profile == null) {
+            synchronized (ConfigurationParameters.class) {      // not to miss a concurrent publish
+                profile = profiles.get(name);
+                if (profile == null) {
+                    profile = new ConfigurationProfile(name);
+                    profile.publish(ConfigurationParameters.current(), ConfigurationParameters.props);
+                    profiles.put(name, profile);
+                }
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Rebuild configuration of all profiles from the newly published global configuration.
+     */
+    static void publishAll(Configuration global, Properties props) {
+        DEFAULT.configuration = global;
+        for (ConfigurationProfile profile : profiles.values()) {
+            profile.publish(global, props);
+        }
+    }
+
+    private void publish(Configuration global, Properties props) {
+        configuration = (props == null || global == null) ? global : global.withOverrides(props, PREFIX + name + ".");
+    }
+
+    /**
+     * Names of the profiles having settings in the given properties.
+     */
+    static Set<String> namesIn(Properties props) {
+        Set<String> names = new TreeSet<String>();
+        for (Enumeration<?> e = props.propertyNames(); e.hasMoreElements();) {
+            String key = String.valueOf(e.nextElement());
+            int end = key.indexOf('.', PREFIX.length());
+            if (key.startsWith(PREFIX) && end > PREFIX.length()) {
+                names.add(key.substring(PREFIX.length(), end));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Split the <code>profile</code> parameter from a URL.
+     *
+     * @return the URL without the parameter, and the profile name or null if there is no such parameter
+     */
+    static String[] splitUrl(String url) {
+        if (url == null) {
+            return new String[] { null, null };
+        }
+        Matcher m = URL_PARAMETER_PATTERN.matcher(url);
+        if (!m.find()) {
+            return new String[] { url, null };
+        }
+        String rest = url.substring(m.end());
+        if (m.group(1).equals("?") && rest.length() > 0) {
+            rest = rest.substring(1);       // keep "?" for the next parameter
+            return new String[] { url.substring(0, m.start() + 1) + rest, m.group(2) };
+        }
+        return new String[] { url.substring(0, m.start()) + rest, m.group(2) };
+    }
+
+    /**
+     * @return name of the profile, null for the default profile
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Configuration in effect for connections of this profile.
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? "default" : name;
+    }
+}
@@ -0,0 +1,115 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reloads jdbcdslog.properties every <code>jdbcdslog.reload.interval</code> if the file changed, and
+ * publishes the new settings through {@link ConfigurationParameters#reload(Properties)}.  Only a
+ * properties file on the file system, not in a jar, is watched.
+ */
+public class ConfigurationWatcher implements Runnable {
+    private static Logger logger = LoggerFactory.getLogger(ConfigurationWatcher.class);
+
+    private static ScheduledExecutorService scheduler;
+
+    private final File file;
+    private long lastModified;
+    private long lastLength;
+
+    ConfigurationWatcher(File file) {
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.lastLength = file.length();
+    }
+
+    static synchronized void startIfConfigured() {
+        if (scheduler != null || ConfigurationParameters.reloadIntervalInNano <= 0) {
+            return;
+        }
+        File file = toFile(ConfigurationParameters.propertiesUrl);
+        if (file == null) {
+            logger.warn("jdbcdslog.properties is not a file, jdbcdslog.reload.interval is ignored");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jdbcdslog-config-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new ConfigurationWatcher(file),
+                                         ConfigurationParameters.reloadIntervalInNano,
+                                         ConfigurationParameters.reloadIntervalInNano,
+                                         TimeUnit.NANOSECONDS);
+    }
+
+    static File toFile(URL url) {
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        }
+    }
+
+    public void run() {
+        try {
+            checkForChange();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to reload " + file, e);     // keep the schedule going
+        }
+    }
+
+    /**
+     * Reload properties if the file changed since last check.
+     *
+     * @return whether new properties are in effect
+     */
+    boolean checkForChange() {
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == lastModified && length == lastLength) {
+            return false;
+        }
+        lastModified = modified;
+        lastLength = length;
+
+        Properties newProps = new Properties(System.getProperties());
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                newProps.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to read " + file + ", configuration is not changed", e);
+            return false;
+        }
+
+        List<String> problems = ConfigurationParameters.reload(newProps);
+        if (!problems.isEmpty()) {
+            logger.warn("Invalid settings in " + file + ", configuration is not changed: " + problems);
+            return false;
+        }
+        logger.info("Reloaded settings from " + file);
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package org.jdbcdslog;
 
 import static org.jdbcdslog.Loggers.connectionLogger;
+import static org.jdbcdslog.Loggers.statementLogger;
 import static org.jdbcdslog.ProxyUtils.*;
 
 import java.lang.reflect.Method;
@@ -14,6 +15,7 @@ import java.util.Map;
 
 public class ConnectionLoggingHandler extends LoggingHandlerSupport<Connection> {
     protected LogMetaData logMetaData = null;
+    private boolean closed = false;
 
     public ConnectionLoggingHandler(Connection target) {
         this(null, target);
@@ -27,31 +29,100 @@ public class ConnectionLoggingHandler extends LoggingHandlerSupport<Connection>
             this.logMetaData = logMetaData;
         }
 
+        TransactionBuffer transaction = this.logMetaData.getTransactionBuffer();
+        if (transaction != null) {
+            try {
+                transaction.setAutoCommit(target.getAutoCommit());
+            } catch (SQLException ex) {
+                connectionLogger.error("Problem reading connection auto-commit mode", ex);
+            }
+        }
+
         // Logging for Connection creation
         Map<String,String> oldMdc = LogUtils.setMdc(this.logMetaData);
         if (connectionLogger.isInfoEnabled()) {
             try {
                 DatabaseMetaData md = target.getMetaData();
-                connectionLogger.info("Connected to URL {} for user {}", md.getURL(), md.getUserName());
+                if (this.logMetaData.getConfiguration().jsonOutput) {
+                    connectionLogger.info(JsonEventEncoder.begin("connect")
+                                                          .field("url", md.getURL())
+                                                          .field("user", md.getUserName())
+                                                          .end());
+                } else {
+                    connectionLogger.info("Connected to URL {} for user {}", md.getURL(), md.getUserName());
+                }
             } catch (SQLException ex) {
                 connectionLogger.error("Problem reading connection metadata", ex);
             } finally {
                 LogUtils.resetMdc(oldMdc);
             }
         }
+
+        if (JdbcStatistics.isEnabled()) {
+            JdbcStatistics.connectionOpened();
+        }
+
+        if (!JdbcEventListeners.isEmpty()) {
+            JdbcEventListeners.fire(JdbcEventListeners.EventType.CONNECTION_OPENED, JdbcEvent.acquire(this.logMetaData, "open"));
+        }
     }
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         Map<String, String> oldMdc = LogUtils.setMdc(this.logMetaData);
+        Configuration config = logMetaData.getConfiguration();
+        TransactionBuffer transaction = logMetaData.getTransactionBuffer();
+        String transactionOutcome = (transaction == null) ? null : getTransactionOutcome(transaction, method, args);
+        Object flightRecorderEvent = null;
+        Span span = null;
 
         try {
             if (method.getName().equals("commit") ||
                     method.getName().equals("rollback")) {
-                if (connectionLogger.isInfoEnabled()) {
-                    connectionLogger.info(LogUtils.appendStackTrace(method.getName()));
+                flushCoalescer();
+                if (connectionLogger.isInfoEnabled() && config.jsonOutput) {
+                    connectionLogger.info(LogUtils.encodeStackTrace(JsonEventEncoder.begin(method.getName()), config).end());
+                } else if (connectionLogger.isInfoEnabled()) {
+                    connectionLogger.info(LogUtils.appendStackTrace(method.getName(), config));
                 }
             }
+            if (SqlCommenter.isEnabled() && args != null && args.length > 0 && args[0] instanceof String
+                    && (method.getName().equals("prepareStatement") || method.getName().equals("prepareCall"))) {
+                args[0] = SqlCommenter.comment(logMetaData, (String) args[0]);
+            }
+            if (JdbcFlightRecorder.isRecording() && (method.getName().equals("commit") || method.getName().equals("rollback"))) {
+                flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.TRANSACTION);
+            }
+            if (!SpanExporters.isEmpty() && (method.getName().equals("commit") || method.getName().equals("rollback"))) {
+                span = SpanExporters.start(logMetaData, method.getName());
+            }
+            long startTimeInNano = System.nanoTime();
             Object r = method.invoke(target, args);
+            if (span != null) {
+                SpanExporters.finish(span, null, -1, -1, null);
+                span = null;
+            }
+            if (flightRecorderEvent != null) {
+                if (JdbcFlightRecorder.end(flightRecorderEvent)) {
+                    JdbcFlightRecorder.commit(flightRecorderEvent, logMetaData.getConnectionId(), method.getName(), null);
+                }
+                flightRecorderEvent = null;
+            }
+            if (!JdbcEventListeners.isEmpty()
+                    && (method.getName().equals("commit") || method.getName().equals("rollback"))) {
+                JdbcEventListeners.fire(method.getName().equals("commit") ? JdbcEventListeners.EventType.COMMIT : JdbcEventListeners.EventType.ROLLBACK,
+                                        JdbcEvent.acquire(logMetaData, method.getName()).elapsedTime(System.nanoTime() - startTimeInNano));
+            }
+            if (transactionOutcome != null) {
+                endTransaction(transaction, transactionOutcome, transactionOutcome.equals("committed"));
+            }
+            if (transaction != null && method.getName().equals("setAutoCommit")) {
+                transaction.setAutoCommit((Boolean) args[0]);
+            }
+            if (config.samplingScope == StatementSampler.Scope.TRANSACTION
+                    && (method.getName().equals("commit")
+                        || (method.getName().equals("rollback") && (args == null || args.length == 0)))) {
+                logMetaData.resample();
+            }
             if (UNWRAP_METHOD_NAME.equals(method.getName())) {
                 Class<?> unwrapClass = (Class<?>) args[0];
                 if (r == target && unwrapClass.isInstance(proxy)) {
@@ -59,6 +130,14 @@ public class ConnectionLoggingHandler extends LoggingHandlerSupport<Connection>
                 } else if (unwrapClass.isInterface() && Connection.class.isAssignableFrom(unwrapClass)) {
                     r = wrapByConnectionProxy(logMetaData, (Connection)r);
                 }
+            } else if (method.getName().equals("close")) {
+                flushCoalescer();
+                if (!closed && JdbcStatistics.isEnabled()) {
+                    JdbcStatistics.connectionClosed();
+                }
+                closed = true;
+            } else if (Passthrough.isActive(config)) {
+                return r;       // statements and other objects created while passing through are not wrapped
             } else if (method.getName().equals("createStatement")) {
                 r = wrapByStatementProxy(logMetaData, (Statement) r);
             } else if (method.getName().equals("prepareCall")) {
@@ -70,10 +149,63 @@ public class ConnectionLoggingHandler extends LoggingHandlerSupport<Connection>
             }
             return r;
         } catch (Throwable t) {
-            LogUtils.handleException(t, connectionLogger, LogUtils.createLogEntry(method, null, null, null));
+            if (flightRecorderEvent != null && JdbcFlightRecorder.end(flightRecorderEvent)) {
+                JdbcFlightRecorder.commit(flightRecorderEvent, logMetaData.getConnectionId(), method.getName(),
+                                          LogUtils.unwrap(t).toString());
+            }
+            if (span != null) {
+                SpanExporters.finish(span, null, -1, -1, t);
+            }
+            LogUtils.logBlackBox(connectionLogger, logMetaData, true);
+            if (transactionOutcome != null) {
+                transaction.markFailed();
+                endTransaction(transaction, "failed to end by " + method.getName(), false);
+            }
+            if (JdbcStatistics.isEnabled()) {
+                JdbcStatistics.recordError(t);
+            }
+            if (!JdbcEventListeners.isEmpty()) {
+                JdbcEventListeners.fire(JdbcEventListeners.EventType.ERROR,
+                                        JdbcEvent.acquire(logMetaData, method.getName()).throwable(LogUtils.unwrap(t)));
+            }
+            LogUtils.handleException(t, connectionLogger, LogUtils.createLogEntry(method, null, null, null, config));
         } finally {
             LogUtils.resetMdc(oldMdc);
         }
         return null;
     }
+
+    private void flushCoalescer() {
+        StatementCoalescer coalescer = logMetaData.getStatementCoalescer();
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+    }
+
+    /**
+     * @return outcome of the current transaction if the method ends it, null otherwise
+     */
+    protected String getTransactionOutcome(TransactionBuffer transaction, Method method, Object[] args) {
+        if (!transaction.isInTransaction()) {
+            return null;
+        }
+        String name = method.getName();
+        if (name.equals("commit")) {
+            return "committed";
+        } else if (name.equals("rollback") && (args == null || args.length == 0)) {
+            return "rolled back";
+        } else if (name.equals("setAutoCommit") && (Boolean) args[0]) {
+            return "committed";
+        } else if (name.equals("close")) {
+            return "closed without commit";
+        }
+        return null;
+    }
+
+    protected void endTransaction(TransactionBuffer transaction, String outcome, boolean committed) {
+        String message = transaction.end(outcome, committed);
+        if (message != null && statementLogger.isInfoEnabled()) {
+            statementLogger.info(message);
+        }
+    }
 }
@@ -17,6 +17,7 @@ import static org.jdbcdslog.Loggers.connectionLogger;
 import static org.jdbcdslog.ProxyUtils.wrap;
 
 import java.lang.reflect.Method;
+import java.sql.Connection;
 
 /**
  * Logging handler for objects that can directly or indirectly create Connection from.  For example,
@@ -25,19 +26,42 @@ import java.lang.reflect.Method;
  * @author a511990
  */
 public class ConnectionSourceLoggingHandler extends LoggingHandlerSupport<Object> {
+    // profile of the connections created
+    private final ConfigurationProfile profile;
+
     public ConnectionSourceLoggingHandler(Object target) {
+        this(target, ConfigurationProfile.DEFAULT);
+    }
+
+    public ConnectionSourceLoggingHandler(Object target, ConfigurationProfile profile) {
         super(target);
+        this.profile = profile;
     }
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 
+        Object flightRecorderEvent = null;
         try {
+            if (method.getName().equals("getConnection")) {
+                flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.CONNECTION_ACQUISITION);
+            }
             Object r = method.invoke(target, args);
 
-            return wrap(null, r);
+            if (r instanceof Connection) {
+                if (!Passthrough.refresh(profile)) {
+                    r = wrap(LogMetaData.create(profile), r);
+                }
+            } else {
+                r = wrap(null, r);
+            }
+            if (flightRecorderEvent != null) {
+                JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, (Connection) r, null);
+            }
+            return r;
 
         } catch (Throwable t) {
-            LogUtils.handleException(t, connectionLogger, LogUtils.createLogEntry(method, null, null, null));
+            JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, null, t);
+            LogUtils.handleException(t, connectionLogger, LogUtils.createLogEntry(method, null, null, null, profile.getConfiguration()));
         }
         return null;
     }
@@ -0,0 +1,71 @@
+package org.jdbcdslog;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copy-on-write array of registered plug-ins, e.g. event listeners or span exporters, so that iterating
+ * them on every JDBC call needs no lock.  Registering and unregistering copy the array under lock.
+ */
+class CopyOnWriteRegistry<T> {
+    private final Class<T> type;
+
+    private final T[] none;
+
+    private volatile T[] elements;
+
+    CopyOnWriteRegistry(Class<T> type) {
+        this.type = type;
+        this.none = newArray(0);
+        this.elements = none;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] newArray(int size) {
+        return (T[]) Array.newInstance(type, size);
+    }
+
+    /**
+     * @return registered elements, never to be modified by caller
+     */
+    T[] get() {
+        return elements;
+    }
+
+    boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    synchronized void register(T element) {
+        List<T> newElements = new ArrayList<T>(Arrays.asList(elements));
+        newElements.add(element);
+        elements = newElements.toArray(newArray(newElements.size()));
+    }
+
+    synchronized void unregister(T element) {
+        List<T> newElements = new ArrayList<T>(Arrays.asList(elements));
+        newElements.remove(element);
+        elements = newElements.isEmpty() ? none : newElements.toArray(newArray(newElements.size()));
+    }
+
+    /**
+     * Instantiate and register a configured class, loaded by the context class loader if possible.
+     */
+    void register(String className) throws Exception {
+        register(type.cast(loadClass(className).newInstance()));
+    }
+
+    private static Class<?> loadClass(String className) throws ClassNotFoundException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader != null) {
+            try {
+                return loader.loadClass(className);
+            } catch (ClassNotFoundException e) {
+                // fall back to class loader of JDBC DS Log
+            }
+        }
+        return Class.forName(className);
+    }
+}
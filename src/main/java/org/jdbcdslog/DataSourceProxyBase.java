@@ -35,6 +35,11 @@ public class DataSourceProxyBase implements Serializable {
 
     protected Map<String, Class<?>> propClasses = new HashMap<String, Class<?>>();
 
+    protected String profileName = null;
+
+    // resolved from profileName on first connection
+    private transient volatile ConfigurationProfile profile = null;
+
     public DataSourceProxyBase() throws JdbcDsLogRuntimeException {
     }
 
@@ -44,8 +49,19 @@ public class DataSourceProxyBase implements Serializable {
             throw new SQLException("targetDS parameter has not been passed to Database or URL property.");
         }
         if (targetDs instanceof DataSource) {
-            Connection con = ((DataSource) targetDs).getConnection();
-            return ProxyUtils.wrapByConnectionProxy(con);
+            Object flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.CONNECTION_ACQUISITION);
+            Connection con;
+            try {
+                con = ((DataSource) targetDs).getConnection();
+                if (!Passthrough.refresh(getConfigurationProfile())) {
+                    con = ProxyUtils.wrapByConnectionProxy(LogMetaData.create(getConfigurationProfile()), con);
+                }
+            } catch (SQLException e) {
+                JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, null, e);
+                throw e;
+            }
+            JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, con, null);
+            return con;
         } else {
             throw new SQLException("targetDS doesn't implement DataSource interface.");
         }
@@ -56,8 +72,19 @@ public class DataSourceProxyBase implements Serializable {
             throw new SQLException("targetDS parameter has not been passed to Database or URL property.");
         }
         if (targetDs instanceof DataSource) {
-            Connection con = ((DataSource) targetDs).getConnection(username, password);
-            return ProxyUtils.wrapByConnectionProxy(con);
+            Object flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.CONNECTION_ACQUISITION);
+            Connection con;
+            try {
+                con = ((DataSource) targetDs).getConnection(username, password);
+                if (!Passthrough.refresh(getConfigurationProfile())) {
+                    con = ProxyUtils.wrapByConnectionProxy(LogMetaData.create(getConfigurationProfile()), con);
+                }
+            } catch (SQLException e) {
+                JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, null, e);
+                throw e;
+            }
+            JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, con, null);
+            return con;
         } else {
             throw new SQLException("targetDS doesn't implement DataSource interface.");
         }
@@ -113,7 +140,7 @@ public class DataSourceProxyBase implements Serializable {
         }
         if (targetDs instanceof XADataSource) {
             XAConnection con = ((XADataSource) targetDs).getXAConnection();
-            return ProxyUtils.wrapByXaConnection(con);
+            return Passthrough.refresh(getConfigurationProfile()) ? con : ProxyUtils.wrapByXaConnection(con, getConfigurationProfile());
         } else {
             throw new SQLException("targetDS doesn't implement XADataSource interface.");
         }
@@ -122,27 +149,30 @@ public class DataSourceProxyBase implements Serializable {
     public XAConnection getXAConnection(String user, String password) throws SQLException {
         if (targetDs == null)
             throw new SQLException("targetDS parameter has not been passed to Database or URL property.");
-        if (targetDs instanceof XADataSource)
-            return ProxyUtils.wrapByXaConnection(((XADataSource) targetDs).getXAConnection(user, password));
-        else
+        if (targetDs instanceof XADataSource) {
+            XAConnection con = ((XADataSource) targetDs).getXAConnection(user, password);
+            return Passthrough.refresh(getConfigurationProfile()) ? con : ProxyUtils.wrapByXaConnection(con, getConfigurationProfile());
+        } else
             throw new SQLException("targetDS doesn't implement XADataSource interface.");
     }
 
     public PooledConnection getPooledConnection() throws SQLException {
         if (targetDs == null)
             throw new SQLException("targetDS parameter has not been passed to Database or URL property.");
-        if (targetDs instanceof ConnectionPoolDataSource)
-            return ProxyUtils.wrapByPooledConnection(((ConnectionPoolDataSource) targetDs).getPooledConnection());
-        else
+        if (targetDs instanceof ConnectionPoolDataSource) {
+            PooledConnection con = ((ConnectionPoolDataSource) targetDs).getPooledConnection();
+            return Passthrough.refresh(getConfigurationProfile()) ? con : ProxyUtils.wrapByPooledConnection(con, getConfigurationProfile());
+        } else
             throw new SQLException("targetDS doesn't implement ConnectionPoolDataSource interface.");
     }
 
     public PooledConnection getPooledConnection(String user, String password) throws SQLException {
         if (targetDs == null)
             throw new SQLException("targetDS parameter has not been passed to Database or URL property.");
-        if (targetDs instanceof ConnectionPoolDataSource)
-            return ProxyUtils.wrapByPooledConnection(((ConnectionPoolDataSource) targetDs).getPooledConnection(user, password));
-        else
+        if (targetDs instanceof ConnectionPoolDataSource) {
+            PooledConnection con = ((ConnectionPoolDataSource) targetDs).getPooledConnection(user, password);
+            return Passthrough.refresh(getConfigurationProfile()) ? con : ProxyUtils.wrapByPooledConnection(con, getConfigurationProfile());
+        } else
             throw new SQLException("targetDS doesn't implement ConnectionPoolDataSource interface.");
     }
 
@@ -162,8 +192,29 @@ public class DataSourceProxyBase implements Serializable {
         }
     }
 
+    /**
+     * Configuration profile of connections of this data source, see {@link ConfigurationProfile}.
+     */
+    public void setProfile(String profileName) {
+        this.profileName = profileName;
+        this.profile = null;
+    }
+
+    public String getProfile() {
+        return profileName;
+    }
+
+    protected ConfigurationProfile getConfigurationProfile() {
+        ConfigurationProfile p = profile;
+        if (p == null) {
+            p = ConfigurationProfile.forName(profileName);
+            profile = p;
+        }
+        return p;
+    }
+
     public void setURL(String url) throws JdbcDsLogRuntimeException {
-        url = initTargetDS(url);
+        url = initTargetDS(initProfile(url));
         invokeTargetSetMethod("setURL", url, String.class);
     }
 
@@ -194,6 +245,17 @@ public class DataSourceProxyBase implements Serializable {
         }
     }
 
+    /**
+     * Take profile parameter out of URL, if any.
+     */
+    private String initProfile(String url) {
+        String[] urlAndProfile = ConfigurationProfile.splitUrl(url);
+        if (urlAndProfile[1] != null) {
+            setProfile(urlAndProfile[1]);
+        }
+        return urlAndProfile[0];
+    }
+
     public void setTargetDSDirect(Object dataSource) {
         targetDs = dataSource;
         logger.debug("setTargetDSDirect(): targetDS initialized.");
@@ -265,7 +327,7 @@ public class DataSourceProxyBase implements Serializable {
     }
 
     public void setDatabase(String p) throws JdbcDsLogRuntimeException {
-        p = initTargetDS(p);
+        p = initTargetDS(initProfile(p));
         invokeTargetSetMethod("setDatabase", p, String.class);
     }
 
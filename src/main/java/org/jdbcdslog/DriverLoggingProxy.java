@@ -46,6 +46,9 @@ public class DriverLoggingProxy implements Driver {
             throw new SQLException("Invalid URL" + url);
         }
         url = "jdbc:" + url.substring(urlPrefix.length());
+        String[] urlAndProfile = ConfigurationProfile.splitUrl(url);
+        url = urlAndProfile[0];
+        ConfigurationProfile profile = ConfigurationProfile.forName(urlAndProfile[1]);
         StringTokenizer ts = new StringTokenizer(url, ":/;=&?", false);
         String targetDriver = null;
         while (ts.hasMoreTokens()) {
@@ -60,10 +63,17 @@ public class DriverLoggingProxy implements Driver {
             throw new SQLException("Can't find targetDriver parameter in URL: " + url);
         }
         url = url.substring(0, url.length() - targetDriver.length() - targetDriverParameter.length() - 2);
+        Object flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.CONNECTION_ACQUISITION);
         try {
             Class.forName(targetDriver);
-            return ProxyUtils.wrapByConnectionProxy(DriverManager.getConnection(url, info));
+            Connection con = DriverManager.getConnection(url, info);
+            if (!Passthrough.refresh(profile)) {
+                con = ProxyUtils.wrapByConnectionProxy(LogMetaData.create(profile), con);
+            }
+            JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, con, null);
+            return con;
         } catch (Exception e) {
+            JdbcFlightRecorder.commitConnectionAcquisition(flightRecorderEvent, null, e);
             connectionLogger.error("Error in getting connection for targetDriver {}, for url {} with properties: {}",
                                         targetDriver, url, info, e);
             throw new SQLException(e.getMessage());
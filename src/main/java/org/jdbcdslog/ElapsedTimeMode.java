@@ -0,0 +1,23 @@
+package org.jdbcdslog;
+
+/**
+ * Whether elapsed time is written to log messages, resolved once per {@link Configuration}, so that a
+ * hidden elapsed time costs a class check at compiled call sites, see {@link StackTraceMode}.
+ */
+enum ElapsedTimeMode {
+    HIDDEN {
+        @Override
+        StringBuilder append(StringBuilder sb, long elapsedTimeInNano) {
+            return sb;
+        }
+    },
+
+    SHOWN {
+        @Override
+        StringBuilder append(StringBuilder sb, long elapsedTimeInNano) {
+            return sb.append("\nElapsed Time: ").append(String.format("%.9f", elapsedTimeInNano/1000000000.0)).append(" s.");
+        }
+    };
+
+    abstract StringBuilder append(StringBuilder sb, long elapsedTimeInNano);
+}
@@ -0,0 +1,354 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary journal of JDBC events in memory-mapped segment files of fixed size.  Each writer encodes a record
+ * in its own buffer, then claims space in current segment by an atomic cursor and copies the record there,
+ * so that many threads can append without lock.  Only rolling to a new segment is synchronized.  Segments
+ * are named <code>jdbcdslog-&lt;start time&gt;-&lt;sequence&gt;.journal</code>, and only the latest
+ * <code>jdbcdslog.journal.segments</code> segments in the directory are retained.
+ * <p>
+ * Segment layout: 4-byte magic, 4-byte version, then records until a zero length.  Record layout: 4-byte
+ * length of the whole record, 1-byte type, then type specific fields.  Integers are written as varints,
+ * signed ones zigzag encoded, and strings as varint length followed by UTF-8 bytes.  SQL texts are written
+ * once per segment as SQL records, and referred to by id in event records.  See {@link JournalReader}.
+ */
+public class EventJournal {
+    private static Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    static final int MAGIC = 0x4a44534a;       // "JDSJ"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    static final byte TYPE_SQL = 1;
+    static final byte TYPE_CONNECTION_OPENED = 2;
+    static final byte TYPE_EXECUTE = 3;
+    static final byte TYPE_BATCH = 4;
+    static final byte TYPE_RESULT_SET_CLOSED = 5;
+    static final byte TYPE_COMMIT = 6;
+    static final byte TYPE_ROLLBACK = 7;
+    static final byte TYPE_ERROR = 8;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_LONG = 1;
+    static final byte VALUE_DOUBLE = 2;
+    static final byte VALUE_BOOLEAN = 3;
+    static final byte VALUE_STRING = 4;
+    static final byte VALUE_BYTES = 5;
+    static final byte VALUE_DECIMAL = 6;
+
+    private static final int MAX_SQL_IDS = 100000;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private final long startTimeInMillis = System.currentTimeMillis();
+
+    // epoch time of System.nanoTime() zero, for nanosecond timestamps
+    private final long epochOffsetInNano = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+    private volatile Segment current;
+    private int nextSequence = 0;
+
+    private final ConcurrentMap<String, Integer> sqlIds = new ConcurrentHashMap<String, Integer>();
+    private final AtomicInteger lastSqlId = new AtomicInteger();
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private final ThreadLocal<RecordEncoder> encoders = new ThreadLocal<RecordEncoder>() {
+        @Override
+        protected RecordEncoder initialValue() {
+            return new RecordEncoder();
+        }
+    };
+
+    public EventJournal(File directory, int segmentSize, int retainedSegments) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retainedSegments = Math.max(retainedSegments, 1);
+        this.current = openSegment();
+    }
+
+    /**
+     * Segment files of the directory, oldest first.
+     */
+    public static File[] listSegments(File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("jdbcdslog-") && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * Append an event.
+     *
+     * @param type one of TYPE_* constants except TYPE_SQL
+     */
+    public void append(byte type, JdbcEvent event) {
+        Segment segment = current;
+        int sqlId = 0;
+        if (event.getSql() != null) {
+            sqlId = sqlIdOf(event.getSql());
+            if (segment.definedSqlIds.putIfAbsent(sqlId, Boolean.TRUE) == null) {
+                RecordEncoder encoder = encoders.get().begin(TYPE_SQL);
+                encoder.writeVarLong(sqlId);
+                encoder.writeString(event.getSql());
+                write(encoder);
+            }
+        }
+
+        RecordEncoder encoder = encoders.get().begin(type);
+        encoder.writeVarLong(epochOffsetInNano + System.nanoTime());
+        encoder.writeString(event.getConnectionId());
+        encoder.writeString(event.getMethodName());
+        encoder.writeVarLong(sqlId);
+        encoder.writeSignedVarLong(event.getElapsedTimeInNano());
+        encoder.writeSignedVarLong(event.getRowCount());
+        encoder.writeSignedVarLong(event.getBatchSize());
+
+        Map<Integer, Object> parameters = event.getParameters();
+        encoder.writeVarLong(parameters.size());
+        for (Map.Entry<Integer, Object> entry : parameters.entrySet()) {
+            encoder.writeVarLong(entry.getKey());
+            encoder.writeValue(entry.getValue());
+        }
+        Map<String, Object> namedParameters = event.getNamedParameters();
+        encoder.writeVarLong(namedParameters.size());
+        for (Map.Entry<String, Object> entry : namedParameters.entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeValue(entry.getValue());
+        }
+
+        Throwable t = event.getThrowable();
+        encoder.writeString(t == null ? null : t.toString());
+        write(encoder);
+    }
+
+    private int sqlIdOf(String sql) {
+        Integer id = sqlIds.get(sql);
+        if (id == null) {
+            if (sqlIds.size() >= MAX_SQL_IDS) {
+                sqlIds.clear();     // ids are not reused, evicted SQL just gets a new id
+            }
+            Integer newId = lastSqlId.incrementAndGet();
+            id = sqlIds.putIfAbsent(sql, newId);
+            if (id == null) {
+                id = newId;
+            }
+        }
+        return id;
+    }
+
+    private void write(RecordEncoder encoder) {
+        int length = encoder.finish();
+        if (length > segmentSize - SEGMENT_HEADER_SIZE) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        while (true) {
+            Segment segment = current;
+            long position = segment.cursor.getAndAdd(length);
+            if (position + length <= segmentSize) {
+                segment.write((int) position, encoder.buffer, length);
+                return;
+            }
+            if (!roll(segment)) {
+                droppedRecords.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Roll to a new segment, unless it is already rolled by another writer.
+     *
+     * @return false if no new segment can be opened
+     */
+    private synchronized boolean roll(Segment full) {
+        if (current != full) {
+            return true;
+        }
+        try {
+            current = openSegment();
+        } catch (IOException e) {
+            logger.error("Unable to open new journal segment in " + directory, e);
+            return false;
+        }
+        File[] segments = listSegments(directory);
+        for (int i = 0; i < segments.length - retainedSegments; ++i) {
+            if (!segments[i].delete()) {
+                logger.warn("Unable to delete journal segment {}", segments[i]);
+            }
+        }
+        return true;
+    }
+
+    private Segment openSegment() throws IOException {
+        File file = new File(directory, String.format("jdbcdslog-%013d-%06d%s", startTimeInMillis, nextSequence++, SEGMENT_SUFFIX));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(segmentSize);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            return new Segment(buffer);
+        } finally {
+            raf.close();        // mapping stays valid after the file is closed
+        }
+    }
+
+    private static class Segment {
+        private final MappedByteBuffer buffer;
+        private final AtomicLong cursor = new AtomicLong(SEGMENT_HEADER_SIZE);
+        private final ConcurrentMap<Integer, Boolean> definedSqlIds = new ConcurrentHashMap<Integer, Boolean>();
+
+        // per thread view of the buffer, for copying with its own position
+        private final ThreadLocal<ByteBuffer> views = new ThreadLocal<ByteBuffer>() {
+            @Override
+            protected ByteBuffer initialValue() {
+                return buffer.duplicate();
+            }
+        };
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void write(int position, byte[] record, int length) {
+            ByteBuffer view = views.get();
+            view.position(position + 4);
+            view.put(record, 4, length - 4);
+            view.putInt(position, length);      // length last, so a record is only visible when complete
+        }
+    }
+
+    /**
+     * Reusable encoder of one record.
+     */
+    static class RecordEncoder {
+        byte[] buffer = new byte[256];
+        int length;
+
+        RecordEncoder begin(byte type) {
+            length = 4;     // length is filled by finish()
+            writeByte(type);
+            return this;
+        }
+
+        int finish() {
+            buffer[0] = (byte) (length >>> 24);
+            buffer[1] = (byte) (length >>> 16);
+            buffer[2] = (byte) (length >>> 8);
+            buffer[3] = (byte) length;
+            return length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, length + extra)];
+                System.arraycopy(buffer, 0, newBuffer, 0, length);
+                buffer = newBuffer;
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                buffer[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        /**
+         * Write a string, or a zero length for null.  Strings are written with length + 1.
+         */
+        void writeString(String s) {
+            if (s == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes;
+            try {
+                bytes = s.getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            writeVarLong(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void writeValue(Object value) {
+            if (value == null) {
+                writeByte(VALUE_NULL);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                writeByte(VALUE_LONG);
+                writeSignedVarLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                writeByte(VALUE_DOUBLE);
+                writeVarLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+                writeByte(VALUE_BOOLEAN);
+                writeByte(((Boolean) value) ? 1 : 0);
+            } else if (value instanceof BigDecimal) {
+                writeByte(VALUE_DECIMAL);
+                writeString(((BigDecimal) value).toString());
+            } else if (value instanceof byte[]) {
+                writeByte(VALUE_BYTES);
+                writeBytes((byte[]) value);
+            } else {
+                writeByte(VALUE_STRING);
+                writeString(value.toString());
+            }
+        }
+    }
+}
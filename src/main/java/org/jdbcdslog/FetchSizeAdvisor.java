@@ -0,0 +1,127 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.advisorLogger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects fetch size, row count and slow next() calls of ResultSets per statement fingerprint, and
+ * periodically logs recommendations for statements that take many round trips to fetch their rows.
+ *
+ * Fetch sizes configured by <code>jdbcdslog.fetchSize.&lt;fingerprint id&gt;</code> are applied to
+ * statements before execution.
+ */
+public class FetchSizeAdvisor {
+    /** fetch size to recommend at most */
+    static final int MAX_RECOMMENDED_FETCH_SIZE = 1000;
+
+    private static final ConcurrentMap<String, FetchStatistics> statistics = new ConcurrentHashMap<String, FetchStatistics>();
+
+    private static final ReportInterval reportInterval = new ReportInterval(ConfigurationParameters.fetchSizeAdvisorReportIntervalInNano);
+
+    static class FetchStatistics {
+        final String normalizedSql;
+        final AtomicLong resultSetCount = new AtomicLong();
+        final AtomicLong rowCount = new AtomicLong();
+        final AtomicLong stallCount = new AtomicLong();
+        volatile int fetchSize;
+
+        FetchStatistics(String normalizedSql) {
+            this.normalizedSql = normalizedSql;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ConfigurationParameters.fetchSizeAdvisor;
+    }
+
+    /**
+     * Record a fully fetched or closed ResultSet.
+     */
+    public static void record(SqlFingerprint fingerprint, int fetchSize, FetchTimings fetchTimings) {
+        if (fingerprint == null) {
+            return;
+        }
+        FetchStatistics stat = statistics.get(fingerprint.getId());
+        if (stat == null) {
+            if (statistics.size() >= ConfigurationParameters.fetchSizeAdvisorMaxFingerprints) {
+                return;
+            }
+            stat = new FetchStatistics(fingerprint.getNormalizedSql());
+            FetchStatistics existing = statistics.putIfAbsent(fingerprint.getId(), stat);
+            if (existing != null) {
+                stat = existing;
+            }
+        }
+        stat.resultSetCount.incrementAndGet();
+        stat.rowCount.addAndGet(fetchTimings.getRowCount());
+        stat.stallCount.addAndGet(fetchTimings.getStallCount());
+        stat.fetchSize = fetchSize;
+
+        if (reportInterval.isDue()) {
+            report();
+        }
+    }
+
+    /**
+     * Fetch size configured for the statement fingerprint, or 0 if none configured.
+     */
+    public static int configuredFetchSize(SqlFingerprint fingerprint) {
+        return configuredFetchSize(fingerprint, ConfigurationParameters.current());
+    }
+
+    static int configuredFetchSize(SqlFingerprint fingerprint, Configuration config) {
+        if (fingerprint == null || config.fetchSizes.isEmpty()) {
+            return 0;
+        }
+        Integer fetchSize = config.fetchSizes.get(fingerprint.getId());
+        return fetchSize == null ? 0 : fetchSize;
+    }
+
+    /**
+     * Log recommendations for collected statistics, and start a new collection period.
+     */
+    static void report() {
+        for (Map.Entry<String, FetchStatistics> entry : statistics.entrySet()) {
+            statistics.remove(entry.getKey());
+            String recommendation = recommend(entry.getKey(), entry.getValue());
+            if (recommendation != null && advisorLogger.isInfoEnabled()) {
+                advisorLogger.info(recommendation);
+            }
+        }
+    }
+
+    static String recommend(String fingerprintId, FetchStatistics stat) {
+        long resultSets = stat.resultSetCount.get();
+        if (resultSets == 0) {
+            return null;
+        }
+        long averageRows = stat.rowCount.get() / resultSets;
+        if (averageRows < ConfigurationParameters.fetchSizeAdvisorMinRows) {
+            return null;
+        }
+        long averageStalls = stat.stallCount.get() / resultSets;
+
+        long roundTrips;
+        StringBuilder sb = new StringBuilder("Fetch size advice: fingerprint ").append(fingerprintId)
+                .append(" averages ").append(averageRows).append(" rows in ").append(resultSets).append(" executions");
+        if (stat.fetchSize > 0) {
+            roundTrips = (averageRows + stat.fetchSize - 1) / stat.fetchSize;
+            sb.append(" at fetch size ").append(stat.fetchSize);
+        } else {
+            roundTrips = averageStalls + 1;
+            sb.append(" at driver default fetch size");
+        }
+        if (roundTrips <= 1 || averageRows / roundTrips >= MAX_RECOMMENDED_FETCH_SIZE) {
+            return null;
+        }
+        sb.append("; ~").append(roundTrips).append(" round trips (").append(averageStalls).append(" slow fetches) per execution.")
+          .append("  Consider jdbcdslog.fetchSize.").append(fingerprintId).append('=')
+          .append(Math.min(averageRows, MAX_RECOMMENDED_FETCH_SIZE))
+          .append(" for: ").append(stat.normalizedSql);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package org.jdbcdslog;
+
+/**
+ * Timing breakdown of fetching a ResultSet: time to first row, total fetch time, and the number of
+ * ResultSet#next() calls that took noticeably longer than the median call, which is a good hint of
+ * round trips to the database for fetching the next block of rows.
+ *
+ * Durations of next() are kept in a histogram of power-of-2 buckets, so that memory used is
+ * constant no matter how many rows are fetched.
+ */
+public class FetchTimings {
+    /** a next() call is considered stalled if it falls in a bucket this number of buckets above median */
+    private static final int STALL_BUCKET_DISTANCE = 2;
+
+    private final int[] nextTimeHistogram = new int[64];
+    private int nextCount = 0;
+    private int rowCount = 0;
+    private long totalFetchTimeInNano = 0;
+    private long timeToFirstRowInNano = -1;
+
+    /**
+     * Record a ResultSet#next() call.
+     *
+     * @param elapsedTimeInNano time spent in the next() call
+     * @param hasRow return value of next()
+     * @param sinceExecuteStartInNano time elapsed since the statement execution started, when the call completes
+     */
+    public void recordNext(long elapsedTimeInNano, boolean hasRow, long sinceExecuteStartInNano) {
+        ++nextCount;
+        totalFetchTimeInNano += elapsedTimeInNano;
+        ++nextTimeHistogram[bucketOf(elapsedTimeInNano)];
+        if (hasRow) {
+            if (rowCount == 0) {
+                timeToFirstRowInNano = sinceExecuteStartInNano;
+            }
+            ++rowCount;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getNextCount() {
+        return nextCount;
+    }
+
+    public long getTotalFetchTimeInNano() {
+        return totalFetchTimeInNano;
+    }
+
+    /**
+     * @return time from statement execution start to first row fetched, or -1 if there is no row
+     */
+    public long getTimeToFirstRowInNano() {
+        return timeToFirstRowInNano;
+    }
+
+    /**
+     * @return upper bound of the histogram bucket containing the median next() time
+     */
+    public long getMedianNextTimeInNano() {
+        int median = medianBucket();
+        return median < 0 ? 0 : (1L << (median + 1)) - 1;
+    }
+
+    /**
+     * @return number of next() calls that took noticeably (at least ~4 times) longer than the median
+     */
+    public int getStallCount() {
+        int median = medianBucket();
+        if (median < 0) {
+            return 0;
+        }
+        int stalls = 0;
+        for (int i = median + STALL_BUCKET_DISTANCE; i < nextTimeHistogram.length; ++i) {
+            stalls += nextTimeHistogram[i];
+        }
+        return stalls;
+    }
+
+    private int medianBucket() {
+        int remaining = (nextCount + 1) / 2;
+        for (int i = 0; i < nextTimeHistogram.length; ++i) {
+            remaining -= nextTimeHistogram[i];
+            if (remaining <= 0 && nextCount > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int bucketOf(long timeInNano) {
+        return timeInNano <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(timeInNano);
+    }
+}
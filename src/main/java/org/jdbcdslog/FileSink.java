@@ -0,0 +1,421 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * File sink writing rendered log lines through a FileChannel, bypassing SLF4J and the appenders behind it.
+ * Each thread appends lines to its own buffer, so threads never wait for each other while logging.  A
+ * background thread drains all buffers every <code>jdbcdslog.fileSink.flushInterval</code> and writes them
+ * in one gathering write (group commit); a thread whose buffer grows beyond {@link #MAX_BUFFERED_CHARS}
+ * flushes it by itself.  Lines of one thread keep their order, while lines of different threads are only
+ * ordered per flush.
+ * <p>
+ * When the file reaches <code>jdbcdslog.fileSink.maxFileSize</code> bytes, it is renamed to
+ * <code>&lt;file&gt;.&lt;sequence&gt;</code>, gzip compressed in background if
+ * <code>jdbcdslog.fileSink.compress</code> is set, and only the latest <code>jdbcdslog.fileSink.maxFiles</code>
+ * rolled files are kept.  Compression and deletion of rolled files run on the background thread only.
+ */
+public class FileSink {
+    private static Logger logger = LoggerFactory.getLogger(FileSink.class);
+
+    static final int MAX_BUFFERED_CHARS = 64 * 1024;
+
+    private final File file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final boolean compress;
+    private final long flushIntervalInNano;
+
+    // guarded by channelLock
+    private final Object channelLock = new Object();
+    private FileChannel channel;
+    private long size;
+    private long lastRollSequence;
+
+    private final List<ThreadBuffer> buffers = new CopyOnWriteArrayList<ThreadBuffer>();
+    private final ThreadLocal<ThreadBuffer> threadBuffers = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread());
+            buffers.add(buffer);
+            return buffer;
+        }
+    };
+    private final Queue<File> pendingCompressions = new ConcurrentLinkedQueue<File>();
+    private final Thread flusher;
+    private final Thread shutdownHook;
+    private volatile boolean closed = false;
+
+    public FileSink(File file, long maxFileSize, int maxFiles, boolean compress, long flushIntervalInNano) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(maxFiles, 1);
+        this.compress = compress;
+        this.flushIntervalInNano = Math.max(flushIntervalInNano, 1000000L);
+        File[] rolled = listRolledFiles();
+        this.lastRollSequence = (rolled.length == 0) ? 0 : rollSequenceOf(rolled[rolled.length - 1]);
+        openChannel();
+
+        flusher = new Thread("jdbcdslog-file-sink-" + file.getName()) {
+            @Override
+            public void run() {
+                runFlusher();
+            }
+        };
+        flusher.setDaemon(true);
+        flusher.start();
+        shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                close();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Wrap a JDBC DS Log logger by a file sink logger if the sink is configured for the category.
+     *
+     * @param category one of statement, slowQuery, resultSet or connection
+     * @return the file sink logger, or the given logger if the category is not configured for file sink
+     */
+    static Logger wrap(String category, Logger delegate) {
+        if (ConfigurationParameters.fileSinkDirectory == null || !ConfigurationParameters.fileSinkCategories.contains(category)) {
+            return delegate;
+        }
+        try {
+            FileSink sink = new FileSink(new File(ConfigurationParameters.fileSinkDirectory, "jdbcdslog-" + category + ".log"),
+                                         ConfigurationParameters.fileSinkMaxFileSize, ConfigurationParameters.fileSinkMaxFiles,
+                                         ConfigurationParameters.fileSinkCompress, ConfigurationParameters.fileSinkFlushIntervalInNano);
+            return new FileSinkLogger(delegate, sink);
+        } catch (IOException e) {
+            logger.error("Unable to open file sink for " + category + ", logging through SLF4J", e);
+            return delegate;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Append a log line to buffer of current thread.
+     */
+    public void write(String level, String loggerName, String message, Throwable t) {
+        ThreadBuffer buffer = threadBuffers.get();
+        boolean full;
+        synchronized (buffer) {
+            StringBuilder sb = buffer.pending;
+            buffer.appendTimestamp(System.currentTimeMillis());
+            sb.append(' ').append(level).append(" [").append(Thread.currentThread().getName()).append("] ");
+            String connectionId = MDC.get(LogUtils.CONNECTION_ID_MDC_KEY);
+            if (connectionId != null) {
+                sb.append('[').append(connectionId).append("] ");
+            }
+            sb.append(loggerName).append(" - ").append(message).append('\n');
+            if (t != null) {
+                StringWriter stackTrace = new StringWriter();
+                t.printStackTrace(new PrintWriter(stackTrace));
+                sb.append(stackTrace);
+            }
+            full = sb.length() >= MAX_BUFFERED_CHARS;
+        }
+        if (full || closed) {
+            flush(buffer);
+        }
+    }
+
+    /**
+     * Write lines buffered by all threads to the file.
+     */
+    public void flush() {
+        synchronized (channelLock) {
+            List<ByteBuffer> chunks = new ArrayList<ByteBuffer>(buffers.size());
+            for (ThreadBuffer buffer : buffers) {
+                // checked before draining, so that lines appended by the thread before it terminated are drained
+                Thread owner = buffer.owner.get();
+                boolean terminated = owner == null || !owner.isAlive();
+                ByteBuffer chunk = buffer.drain();
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+                if (terminated) {
+                    buffers.remove(buffer);
+                }
+            }
+            if (!chunks.isEmpty()) {
+                writeToChannel(chunks.toArray(new ByteBuffer[chunks.size()]));
+            }
+        }
+    }
+
+    private void flush(ThreadBuffer buffer) {
+        // drained under channel lock, so that chunks of a thread are written in order
+        synchronized (channelLock) {
+            ByteBuffer chunk = buffer.drain();
+            if (chunk != null) {
+                writeToChannel(new ByteBuffer[] { chunk });
+            }
+        }
+    }
+
+    /**
+     * Flush and close the file, waiting for the background thread to finish.  Lines written afterwards are
+     * dropped.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is shutting down, closed by the hook
+        }
+        // not interrupted, which would close the channel in the middle of a write
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            LockSupport.parkNanos(this, flushIntervalInNano);
+            try {
+                flush();
+                compressPending();
+            } catch (RuntimeException e) {
+                logger.error("Unable to flush " + file, e);
+            }
+        }
+        flush();
+        synchronized (channelLock) {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                    channel = null;
+                }
+            } catch (IOException e) {
+                logger.error("Unable to close " + file, e);
+            }
+        }
+        compressPending();
+    }
+
+    // called with channelLock held
+    private void writeToChannel(ByteBuffer[] chunks) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            long remaining = 0;
+            for (ByteBuffer chunk : chunks) {
+                remaining += chunk.remaining();
+            }
+            while (remaining > 0) {
+                long written = channel.write(chunks);
+                remaining -= written;
+                size += written;
+            }
+            if (size >= maxFileSize) {
+                roll();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write " + file, e);
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = new FileOutputStream(file, true).getChannel();
+        size = channel.size();
+    }
+
+    // called with channelLock held
+    private void roll() throws IOException {
+        channel.close();
+        channel = null;
+        File rolled = new File(file.getPath() + "." + (++lastRollSequence));
+        if (!file.renameTo(rolled)) {
+            logger.warn("Unable to roll {} to {}", file, rolled);
+        } else if (compress) {
+            pendingCompressions.add(rolled);
+        }
+        openChannel();
+    }
+
+    // called by the flusher only
+    private void compressPending() {
+        File rolled;
+        while ((rolled = pendingCompressions.poll()) != null) {
+            File compressed = new File(rolled.getPath() + ".gz");
+            File temp = new File(rolled.getPath() + ".gz.tmp");
+            try {
+                InputStream in = new FileInputStream(rolled);
+                try {
+                    OutputStream out = new GZIPOutputStream(new FileOutputStream(temp), 64 * 1024);
+                    try {
+                        byte[] bytes = new byte[64 * 1024];
+                        int n;
+                        while ((n = in.read(bytes)) > 0) {
+                            out.write(bytes, 0, n);
+                        }
+                    } finally {
+                        out.close();
+                    }
+                } finally {
+                    in.close();
+                }
+                if (temp.renameTo(compressed)) {
+                    rolled.delete();
+                }
+            } catch (IOException e) {
+                logger.error("Unable to compress " + rolled, e);
+                temp.delete();
+            }
+        }
+        synchronized (channelLock) {
+            deleteExpiredFiles();
+        }
+    }
+
+    private void deleteExpiredFiles() {
+        File[] rolled = listRolledFiles();
+        for (int i = 0; i < rolled.length - maxFiles; ++i) {
+            if (pendingCompressions.contains(rolled[i])) {
+                continue;
+            }
+            if (!rolled[i].delete()) {
+                logger.warn("Unable to delete {}", rolled[i]);
+            }
+        }
+    }
+
+    /**
+     * Rolled files, oldest first.
+     */
+    File[] listRolledFiles() {
+        final String prefix = file.getName() + ".";
+        File directory = file.getAbsoluteFile().getParentFile();
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && rollSequenceOf(name.substring(prefix.length())) > 0;
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                long s1 = rollSequenceOf(f1);
+                long s2 = rollSequenceOf(f2);
+                return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+            }
+        });
+        return files;
+    }
+
+    private long rollSequenceOf(File rolled) {
+        return rollSequenceOf(rolled.getName().substring(file.getName().length() + 1));
+    }
+
+    /**
+     * @param suffix "&lt;sequence&gt;" or "&lt;sequence&gt;.gz"
+     * @return the sequence, or 0 if the suffix is not of a rolled file
+     */
+    private static long rollSequenceOf(String suffix) {
+        if (suffix.endsWith(".gz")) {
+            suffix = suffix.substring(0, suffix.length() - 3);
+        }
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Pending lines of one thread.
+     */
+    private static class ThreadBuffer {
+        final WeakReference<Thread> owner;
+        final StringBuilder pending = new StringBuilder(1024);
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.");
+
+        // formatted time up to second, reused for lines logged in the same second
+        long cachedSecond = -1;
+        String cachedSecondText;
+
+        ThreadBuffer(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        void appendTimestamp(long millis) {
+            long second = millis / 1000;
+            if (second != cachedSecond) {
+                cachedSecond = second;
+                cachedSecondText = dateFormat.format(new Date(second * 1000));
+            }
+            int milli = (int) (millis % 1000);
+            pending.append(cachedSecondText).append(milli < 100 ? (milli < 10 ? "00" : "0") : "").append(milli);
+        }
+
+        /**
+         * @return pending lines encoded in UTF-8, or null if nothing is pending
+         */
+        synchronized ByteBuffer drain() {
+            if (pending.length() == 0) {
+                return null;
+            }
+            try {
+                ByteBuffer chunk = ByteBuffer.wrap(pending.toString().getBytes("UTF-8"));
+                if (pending.capacity() > MAX_BUFFERED_CHARS * 2) {
+                    pending.setLength(0);
+                    pending.trimToSize();
+                } else {
+                    pending.setLength(0);
+                }
+                return chunk;
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.jdbcdslog;
+
+import org.slf4j.Logger;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MarkerIgnoringBase;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * SLF4J logger writing to a {@link FileSink} instead of the logging framework.  Levels are still those of
+ * the replaced logger, so that <code>isXxxEnabled()</code> checks and logging configuration keep working.
+ */
+public class FileSinkLogger extends MarkerIgnoringBase {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Logger delegate;
+    private final transient FileSink sink;
+
+    public FileSinkLogger(Logger delegate, FileSink sink) {
+        this.name = delegate.getName();
+        this.delegate = delegate;
+        this.sink = sink;
+    }
+
+    public FileSink getSink() {
+        return sink;
+    }
+
+    private void log(String level, String message, Throwable t) {
+        sink.write(level, name, message, t);
+    }
+
+    private void format(String level, String format, Object... arguments) {
+        FormattingTuple tuple = MessageFormatter.arrayFormat(format, arguments);
+        sink.write(level, name, tuple.getMessage(), tuple.getThrowable());
+    }
+
+    public boolean isTraceEnabled() {
+        return delegate.isTraceEnabled();
+    }
+
+    public void trace(String msg) {
+        if (isTraceEnabled()) log("TRACE", msg, null);
+    }
+
+    public void trace(String format, Object arg) {
+        if (isTraceEnabled()) format("TRACE", format, arg);
+    }
+
+    public void trace(String format, Object arg1, Object arg2) {
+        if (isTraceEnabled()) format("TRACE", format, arg1, arg2);
+    }
+
+    public void trace(String format, Object... arguments) {
+        if (isTraceEnabled()) format("TRACE", format, arguments);
+    }
+
+    public void trace(String msg, Throwable t) {
+        if (isTraceEnabled()) log("TRACE", msg, t);
+    }
+
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+
+    public void debug(String msg) {
+        if (isDebugEnabled()) log("DEBUG", msg, null);
+    }
+
+    public void debug(String format, Object arg) {
+        if (isDebugEnabled()) format("DEBUG", format, arg);
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (isDebugEnabled()) format("DEBUG", format, arg1, arg2);
+    }
+
+    public void debug(String format, Object... arguments) {
+        if (isDebugEnabled()) format("DEBUG", format, arguments);
+    }
+
+    public void debug(String msg, Throwable t) {
+        if (isDebugEnabled()) log("DEBUG", msg, t);
+    }
+
+    public boolean isInfoEnabled() {
+        return delegate.isInfoEnabled();
+    }
+
+    public void info(String msg) {
+        if (isInfoEnabled()) log("INFO ", msg, null);
+    }
+
+    public void info(String format, Object arg) {
+        if (isInfoEnabled()) format("INFO ", format, arg);
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (isInfoEnabled()) format("INFO ", format, arg1, arg2);
+    }
+
+    public void info(String format, Object... arguments) {
+        if (isInfoEnabled()) format("INFO ", format, arguments);
+    }
+
+    public void info(String msg, Throwable t) {
+        if (isInfoEnabled()) log("INFO ", msg, t);
+    }
+
+    public boolean isWarnEnabled() {
+        return delegate.isWarnEnabled();
+    }
+
+    public void warn(String msg) {
+        if (isWarnEnabled()) log("WARN ", msg, null);
+    }
+
+    public void warn(String format, Object arg) {
+        if (isWarnEnabled()) format("WARN ", format, arg);
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (isWarnEnabled()) format("WARN ", format, arg1, arg2);
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (isWarnEnabled()) format("WARN ", format, arguments);
+    }
+
+    public void warn(String msg, Throwable t) {
+        if (isWarnEnabled()) log("WARN ", msg, t);
+    }
+
+    public boolean isErrorEnabled() {
+        return delegate.isErrorEnabled();
+    }
+
+    public void error(String msg) {
+        if (isErrorEnabled()) log("ERROR", msg, null);
+    }
+
+    public void error(String format, Object arg) {
+        if (isErrorEnabled()) format("ERROR", format, arg);
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (isErrorEnabled()) format("ERROR", format, arg1, arg2);
+    }
+
+    public void error(String format, Object... arguments) {
+        if (isErrorEnabled()) format("ERROR", format, arguments);
+    }
+
+    public void error(String msg, Throwable t) {
+        if (isErrorEnabled()) log("ERROR", msg, t);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jdbcdslog;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exporter appending spans to a file as JSON lines, mainly for testing.
+ */
+public class FileSpanExporter implements SpanExporter {
+    private static Logger logger = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private final File file;
+    private final Writer writer;
+
+    public FileSpanExporter(File file) throws IOException {
+        this.file = file;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    }
+
+    public void export(Span span) {
+        JsonEventEncoder encoder = JsonEventEncoder.begin("span")
+                .field("name", span.getName())
+                .field("traceId", span.getTraceId())
+                .field("spanId", span.getSpanId())
+                .field("parentSpanId", span.getParentSpanId())
+                .field("startTimeEpochNanos", span.getStartTimeEpochNanos())
+                .field("durationNanos", span.getDurationInNano());
+        if (span.getFingerprint() != null) {
+            encoder.field("fingerprint", span.getFingerprint().getId())
+                   .field("normalizedSql", span.getFingerprint().getNormalizedSql());
+        }
+        if (span.getRowCount() >= 0) {
+            encoder.field("rows", span.getRowCount());
+        }
+        if (span.getBatchSize() >= 0) {
+            encoder.field("batchSize", span.getBatchSize());
+        }
+        if (span.getError() != null) {
+            encoder.field("error", span.getError());
+        }
+        String line = encoder.end();
+        synchronized (this) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("Unable to write span to " + file, e);
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,56 @@
+package org.jdbcdslog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exporter keeping the latest spans in memory, e.g. for tests or for inspection through a debugger.  The
+ * oldest span is dropped when capacity is reached.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+    private final Span[] spans;
+    private int next = 0;
+    private int size = 0;
+    private long dropped = 0;
+
+    public InMemorySpanExporter(int capacity) {
+        this.spans = new Span[Math.max(capacity, 1)];
+    }
+
+    public synchronized void export(Span span) {
+        if (size == spans.length) {
+            ++dropped;
+        } else {
+            ++size;
+        }
+        spans[next] = span;
+        next = (next + 1) % spans.length;
+    }
+
+    /**
+     * @return retained spans, oldest first
+     */
+    public synchronized List<Span> getSpans() {
+        List<Span> result = new ArrayList<Span>(size);
+        for (int i = 0; i < size; ++i) {
+            result.add(spans[(next - size + i + spans.length) % spans.length]);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of spans dropped as capacity was reached
+     */
+    public synchronized long getDroppedSpans() {
+        return dropped;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < spans.length; ++i) {
+            spans[i] = null;
+        }
+        next = 0;
+        size = 0;
+        dropped = 0;
+    }
+}
@@ -0,0 +1,168 @@
+package org.jdbcdslog;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MBean for changing logging settings of a running JVM and reading {@link JdbcStatistics} counters.
+ * Settings are changed through {@link ConfigurationParameters#update(String, String)}, with the same
+ * parsing as jdbcdslog.properties.
+ */
+public class JdbcDsLogControl implements JdbcDsLogControlMBean {
+    private static Logger logger = LoggerFactory.getLogger(JdbcDsLogControl.class);
+
+    static final String OBJECT_NAME = "org.jdbcdslog:type=JdbcDsLog";
+
+    private static boolean registered = false;
+
+    static synchronized void registerIfConfigured() {
+        if (registered || !ConfigurationParameters.jmx) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new JdbcDsLogControl(), name);
+            }
+            registered = true;
+        } catch (JMException e) {
+            logger.error("Unable to register JDBC DS Log MBean", e);
+        }
+    }
+
+    private static void update(String name, Object value) {
+        ConfigurationParameters.update(name, String.valueOf(value));
+        logger.info("Set " + name + " to " + value + " through JMX");
+    }
+
+    public String getSlowQueryThreshold() {
+        long threshold = ConfigurationParameters.current().slowQueryThresholdInNano;
+        if (threshold == Long.MAX_VALUE) {
+            return "0";
+        }
+        return (threshold % 1000000 == 0) ? (threshold / 1000000) + "ms" : threshold + "ns";
+    }
+
+    public void setSlowQueryThreshold(String threshold) {
+        update("jdbcdslog.slowQueryThreshold", threshold);
+    }
+
+    public boolean isPrintStackTrace() {
+        return ConfigurationParameters.current().printStackTrace;
+    }
+
+    public void setPrintStackTrace(boolean printStackTrace) {
+        update("jdbcdslog.printStackTrace", printStackTrace);
+    }
+
+    public boolean isPrintFullStackTrace() {
+        return ConfigurationParameters.current().printFullStackTrace;
+    }
+
+    public void setPrintFullStackTrace(boolean printFullStackTrace) {
+        update("jdbcdslog.printFullStackTrace", printFullStackTrace);
+    }
+
+    public String getPrintStackTracePattern() {
+        return ConfigurationParameters.current().printStackTracePattern;
+    }
+
+    public void setPrintStackTracePattern(String pattern) {
+        update("jdbcdslog.printStackTracePattern", pattern == null ? "" : pattern);
+    }
+
+    public boolean isShowTime() {
+        return ConfigurationParameters.current().showTime;
+    }
+
+    public void setShowTime(boolean showTime) {
+        update("jdbcdslog.showTime", showTime);
+    }
+
+    public boolean isInlineQueryParams() {
+        return ConfigurationParameters.current().inlineQueryParams;
+    }
+
+    public void setInlineQueryParams(boolean inlineQueryParams) {
+        update("jdbcdslog.inlineQueryParams", inlineQueryParams);
+    }
+
+    public boolean isLogBeforeStatement() {
+        return ConfigurationParameters.current().logBeforeStatement;
+    }
+
+    public void setLogBeforeStatement(boolean logBeforeStatement) {
+        update("jdbcdslog.logBeforeStatement", logBeforeStatement);
+    }
+
+    public boolean isLogDetailAfterStatement() {
+        return ConfigurationParameters.current().logDetailAfterStatement;
+    }
+
+    public void setLogDetailAfterStatement(boolean logDetailAfterStatement) {
+        update("jdbcdslog.logDetailAfterStatement", logDetailAfterStatement);
+    }
+
+    public boolean isLogAddBatch() {
+        return ConfigurationParameters.current().logAddBatch;
+    }
+
+    public void setLogAddBatch(boolean logAddBatch) {
+        update("jdbcdslog.logAddBatch", logAddBatch);
+    }
+
+    public boolean isLogAddBatchDetail() {
+        return ConfigurationParameters.current().logAddBatchDetail;
+    }
+
+    public void setLogAddBatchDetail(boolean logAddBatchDetail) {
+        update("jdbcdslog.logAddBatchDetail", logAddBatchDetail);
+    }
+
+    public boolean isLogExecuteBatchDetail() {
+        return ConfigurationParameters.current().logExecuteBatchDetail;
+    }
+
+    public void setLogExecuteBatchDetail(boolean logExecuteBatchDetail) {
+        update("jdbcdslog.logExecuteBatchDetail", logExecuteBatchDetail);
+    }
+
+    public double getSamplingRate() {
+        return ConfigurationParameters.current().samplingRate;
+    }
+
+    public void setSamplingRate(double samplingRate) {
+        update("jdbcdslog.sampling.rate", samplingRate);
+    }
+
+    public long getStatementCount() {
+        return JdbcStatistics.snapshot().getExecutionCount();
+    }
+
+    public long getSlowQueryCount() {
+        return JdbcStatistics.snapshot().getSlowCount();
+    }
+
+    public long getErrorCount() {
+        return JdbcStatistics.snapshot().getErrorCount();
+    }
+
+    public long getActiveConnections() {
+        return JdbcStatistics.snapshot().getActiveConnections();
+    }
+
+    public long getOpenedConnections() {
+        return JdbcStatistics.snapshot().getOpenedConnections();
+    }
+
+    public long getFetchedRows() {
+        return JdbcStatistics.snapshot().getFetchedRows();
+    }
+}
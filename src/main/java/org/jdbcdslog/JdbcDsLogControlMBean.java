@@ -0,0 +1,72 @@
+package org.jdbcdslog;
+
+/**
+ * Management interface of JDBC DS Log, registered as <code>org.jdbcdslog:type=JdbcDsLog</code> when
+ * <code>jdbcdslog.jmx=true</code>.  Settings take the same values as in jdbcdslog.properties; setters throw
+ * IllegalArgumentException for invalid values, which leave the settings unchanged.
+ */
+public interface JdbcDsLogControlMBean {
+
+    /**
+     * @return slow query threshold, e.g. <code>500ms</code>, or <code>0</code> if disabled
+     */
+    String getSlowQueryThreshold();
+
+    void setSlowQueryThreshold(String threshold);
+
+    boolean isPrintStackTrace();
+
+    void setPrintStackTrace(boolean printStackTrace);
+
+    boolean isPrintFullStackTrace();
+
+    void setPrintFullStackTrace(boolean printFullStackTrace);
+
+    String getPrintStackTracePattern();
+
+    void setPrintStackTracePattern(String pattern);
+
+    boolean isShowTime();
+
+    void setShowTime(boolean showTime);
+
+    boolean isInlineQueryParams();
+
+    void setInlineQueryParams(boolean inlineQueryParams);
+
+    boolean isLogBeforeStatement();
+
+    void setLogBeforeStatement(boolean logBeforeStatement);
+
+    boolean isLogDetailAfterStatement();
+
+    void setLogDetailAfterStatement(boolean logDetailAfterStatement);
+
+    boolean isLogAddBatch();
+
+    void setLogAddBatch(boolean logAddBatch);
+
+    boolean isLogAddBatchDetail();
+
+    void setLogAddBatchDetail(boolean logAddBatchDetail);
+
+    boolean isLogExecuteBatchDetail();
+
+    void setLogExecuteBatchDetail(boolean logExecuteBatchDetail);
+
+    double getSamplingRate();
+
+    void setSamplingRate(double samplingRate);
+
+    long getStatementCount();
+
+    long getSlowQueryCount();
+
+    long getErrorCount();
+
+    long getActiveConnections();
+
+    long getOpenedConnections();
+
+    long getFetchedRows();
+}
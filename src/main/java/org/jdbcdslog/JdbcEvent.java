@@ -0,0 +1,154 @@
+package org.jdbcdslog;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Read-only JDBC event passed to {@link JdbcEventListener}.  Event objects are reused per thread, so
+ * listeners must copy what they need to keep after the callback returns.
+ */
+public final class JdbcEvent {
+    private static final ThreadLocal<JdbcEvent> events = new ThreadLocal<JdbcEvent>() {
+        @Override
+        protected JdbcEvent initialValue() {
+            return new JdbcEvent();
+        }
+    };
+
+    private boolean inUse = false;
+
+    private LogMetaData logMetaData;
+    private String methodName;
+    private String sql;
+    private Map<Integer, Object> parameters;
+    private Map<String, Object> namedParameters;
+    private long elapsedTimeInNano;
+    private long rowCount;
+    private int batchSize;
+    private Throwable throwable;
+
+    private JdbcEvent() {
+    }
+
+    /**
+     * Get the event object of current thread, or a new one if it is still in use by an outer callback,
+     * e.g. when a listener itself uses a logged connection.
+     */
+    static JdbcEvent acquire(LogMetaData logMetaData, String methodName) {
+        JdbcEvent event = events.get();
+        if (event.inUse) {
+            event = new JdbcEvent();
+        }
+        event.inUse = true;
+        event.logMetaData = logMetaData;
+        event.methodName = methodName;
+        event.sql = null;
+        event.parameters = null;
+        event.namedParameters = null;
+        event.elapsedTimeInNano = -1;
+        event.rowCount = -1;
+        event.batchSize = -1;
+        event.throwable = null;
+        return event;
+    }
+
+    void release() {
+        inUse = false;
+        logMetaData = null;
+        sql = null;
+        parameters = null;
+        namedParameters = null;
+        throwable = null;
+    }
+
+    JdbcEvent statement(String sql, Map<Integer, Object> parameters, Map<String, Object> namedParameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.namedParameters = namedParameters;
+        return this;
+    }
+
+    JdbcEvent elapsedTime(long elapsedTimeInNano) {
+        this.elapsedTimeInNano = elapsedTimeInNano;
+        return this;
+    }
+
+    JdbcEvent rowCount(long rowCount) {
+        this.rowCount = rowCount;
+        return this;
+    }
+
+    JdbcEvent batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    JdbcEvent throwable(Throwable throwable) {
+        this.throwable = throwable;
+        return this;
+    }
+
+    public LogMetaData getLogMetaData() {
+        return logMetaData;
+    }
+
+    public String getConnectionId() {
+        return (logMetaData == null) ? null : logMetaData.getConnectionId();
+    }
+
+    /**
+     * @return name of the JDBC method invoked, e.g. "executeQuery"
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return SQL of the statement, or null if it is unknown or not applicable
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return indexed parameters of the statement, empty if there is none
+     */
+    public Map<Integer, Object> getParameters() {
+        return (parameters == null) ? Collections.<Integer, Object>emptyMap() : Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * @return named parameters of the statement, empty if there is none
+     */
+    public Map<String, Object> getNamedParameters() {
+        return (namedParameters == null) ? Collections.<String, Object>emptyMap() : Collections.unmodifiableMap(namedParameters);
+    }
+
+    /**
+     * @return elapsed time of the call in nano seconds, or -1 if not applicable
+     */
+    public long getElapsedTimeInNano() {
+        return elapsedTimeInNano;
+    }
+
+    /**
+     * @return rows updated or fetched, or -1 if unknown
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return number of statements in batch, or -1 if not a batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the error for onError(), null otherwise
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+}
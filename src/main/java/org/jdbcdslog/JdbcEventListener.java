@@ -0,0 +1,44 @@
+package org.jdbcdslog;
+
+/**
+ * Listener of JDBC events, for integrations like metrics, tracing or auditing which need typed events
+ * instead of log messages.  Listeners are registered by <code>jdbcdslog.listeners</code> (comma separated
+ * class names with public no-arg constructor) or by {@link JdbcEventListeners#register(JdbcEventListener)}.
+ * <p>
+ * Callbacks are invoked synchronously from the thread using JDBC.  The {@link JdbcEvent} passed is reused,
+ * and is only valid during the callback.  Exceptions thrown by listeners are logged and ignored.
+ * Extend {@link JdbcEventListenerAdapter} to implement only the callbacks needed.
+ */
+public interface JdbcEventListener {
+
+    void onConnectionOpened(JdbcEvent event);
+
+    /**
+     * Before a statement execute*() call, except executeBatch().
+     */
+    void beforeExecute(JdbcEvent event);
+
+    /**
+     * After a successful statement execute*() call, except executeBatch().  Row count is set for updates.
+     */
+    void afterExecute(JdbcEvent event);
+
+    /**
+     * After a successful executeBatch().  Batch size and total row count are set.
+     */
+    void onBatch(JdbcEvent event);
+
+    /**
+     * When a ResultSet is closed.  Row count is the number of rows fetched.
+     */
+    void onResultSetClosed(JdbcEvent event);
+
+    void onCommit(JdbcEvent event);
+
+    void onRollback(JdbcEvent event);
+
+    /**
+     * When a JDBC call on connection, statement or ResultSet fails.
+     */
+    void onError(JdbcEvent event);
+}
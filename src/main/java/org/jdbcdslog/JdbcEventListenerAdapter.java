@@ -0,0 +1,31 @@
+package org.jdbcdslog;
+
+/**
+ * {@link JdbcEventListener} with empty callbacks.
+ */
+public abstract class JdbcEventListenerAdapter implements JdbcEventListener {
+
+    public void onConnectionOpened(JdbcEvent event) {
+    }
+
+    public void beforeExecute(JdbcEvent event) {
+    }
+
+    public void afterExecute(JdbcEvent event) {
+    }
+
+    public void onBatch(JdbcEvent event) {
+    }
+
+    public void onResultSetClosed(JdbcEvent event) {
+    }
+
+    public void onCommit(JdbcEvent event) {
+    }
+
+    public void onRollback(JdbcEvent event) {
+    }
+
+    public void onError(JdbcEvent event) {
+    }
+}
@@ -0,0 +1,97 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of {@link JdbcEventListener}s.  Listeners configured by <code>jdbcdslog.listeners</code> are
+ * registered when this class is loaded.  Handlers check {@link #isEmpty()} before creating any event,
+ * so there is no cost when no listener is registered.
+ */
+public class JdbcEventListeners {
+    private static Logger logger = LoggerFactory.getLogger(JdbcEventListeners.class);
+
+    enum EventType {
+        CONNECTION_OPENED, BEFORE_EXECUTE, AFTER_EXECUTE, BATCH, RESULT_SET_CLOSED, COMMIT, ROLLBACK, ERROR
+    }
+
+    private static final CopyOnWriteRegistry<JdbcEventListener> listeners = new CopyOnWriteRegistry<JdbcEventListener>(JdbcEventListener.class);
+
+    static {
+        for (String className : ConfigurationParameters.listenerClassNames) {
+            try {
+                listeners.register(className);
+            } catch (Exception e) {
+                logger.error("Unable to register JDBC event listener " + className, e);
+            }
+        }
+        if (ConfigurationParameters.journalDirectory != null) {
+            try {
+                register(new JournalListener(new EventJournal(new File(ConfigurationParameters.journalDirectory),
+                                                              ConfigurationParameters.journalSegmentSize,
+                                                              ConfigurationParameters.journalSegments)));
+            } catch (IOException e) {
+                logger.error("Unable to open event journal in " + ConfigurationParameters.journalDirectory, e);
+            }
+        }
+    }
+
+    public static boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    public static void register(JdbcEventListener listener) {
+        listeners.register(listener);
+    }
+
+    public static void unregister(JdbcEventListener listener) {
+        listeners.unregister(listener);
+    }
+
+    /**
+     * Pass the event to all listeners, and release it for reuse.
+     */
+    static void fire(EventType type, JdbcEvent event) {
+        try {
+            for (JdbcEventListener listener : listeners.get()) {
+                try {
+                    switch (type) {
+                        case CONNECTION_OPENED:
+                            listener.onConnectionOpened(event);
+                            break;
+                        case BEFORE_EXECUTE:
+                            listener.beforeExecute(event);
+                            break;
+                        case AFTER_EXECUTE:
+                            listener.afterExecute(event);
+                            break;
+                        case BATCH:
+                            listener.onBatch(event);
+                            break;
+                        case RESULT_SET_CLOSED:
+                            listener.onResultSetClosed(event);
+                            break;
+                        case COMMIT:
+                            listener.onCommit(event);
+                            break;
+                        case ROLLBACK:
+                            listener.onRollback(event);
+                            break;
+                        case ERROR:
+                            listener.onError(event);
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("JDBC event listener " + listener.getClass().getName() + " failed on " + type, e);
+                }
+            }
+        } finally {
+            event.release();
+        }
+    }
+}
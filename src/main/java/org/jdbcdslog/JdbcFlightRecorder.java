@@ -0,0 +1,286 @@
+package org.jdbcdslog;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Java Flight Recorder events of JDBC operations, so that database time shows up in a recording together
+ * with GC and thread events.  Event types are defined at runtime by <code>jdk.jfr.EventFactory</code>, as
+ * JDBC DS Log still runs on JVMs without JFR; nothing is emitted on such JVMs or with
+ * <code>jdbcdslog.jfr=false</code>.  Events are enabled and filtered by threshold through the usual JFR
+ * settings, with event names <code>org.jdbcdslog.Statement</code>, <code>org.jdbcdslog.Batch</code>,
+ * <code>org.jdbcdslog.ResultSet</code>, <code>org.jdbcdslog.ConnectionAcquisition</code> and
+ * <code>org.jdbcdslog.Transaction</code>.  When no recording is running, the cost is a volatile read.
+ *
+ * <pre>
+ * Object event = JdbcFlightRecorder.begin(JdbcFlightRecorder.STATEMENT);     // null if disabled
+ * ... execute ...
+ * if (event != null &amp;&amp; JdbcFlightRecorder.end(event)) {
+ *     JdbcFlightRecorder.commit(event, connectionId, methodName, sql, fingerprint, rows, null);
+ * }
+ * </pre>
+ */
+public final class JdbcFlightRecorder {
+    private static Logger logger = LoggerFactory.getLogger(JdbcFlightRecorder.class);
+
+    /**
+     * Type of JFR event.  Values given to {@link JdbcFlightRecorder#commit} are in the order of its fields.
+     */
+    public static final class Kind {
+        private final String name;
+        private final String label;
+        private final String description;
+        private final String[] fieldNames;
+        private final Class<?>[] fieldTypes;
+        private Object factory;
+        private Object eventType;
+
+        private Kind(String name, String label, String description, String[] fieldNames, Class<?>[] fieldTypes) {
+            this.name = name;
+            this.label = label;
+            this.description = description;
+            this.fieldNames = fieldNames;
+            this.fieldTypes = fieldTypes;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /** fields: connectionId, method, sql, fingerprint, rows (-1 if unknown), error */
+    public static final Kind STATEMENT = new Kind("org.jdbcdslog.Statement", "JDBC Statement",
+            "Execution of a JDBC statement",
+            new String[] { "connectionId", "method", "sql", "fingerprint", "rows", "error" },
+            new Class<?>[] { String.class, String.class, String.class, String.class, long.class, String.class });
+
+    /** fields: connectionId, sql, fingerprint, batchSize, rows, error */
+    public static final Kind BATCH = new Kind("org.jdbcdslog.Batch", "JDBC Batch",
+            "Execution of a JDBC batch",
+            new String[] { "connectionId", "sql", "fingerprint", "batchSize", "rows", "error" },
+            new Class<?>[] { String.class, String.class, String.class, long.class, long.class, String.class });
+
+    /** fields: connectionId, sql, fingerprint, rows */
+    public static final Kind RESULT_SET = new Kind("org.jdbcdslog.ResultSet", "JDBC ResultSet",
+            "Rows fetched from a JDBC ResultSet, from its creation to close",
+            new String[] { "connectionId", "sql", "fingerprint", "rows" },
+            new Class<?>[] { String.class, String.class, String.class, long.class });
+
+    /** fields: connectionId, error */
+    public static final Kind CONNECTION_ACQUISITION = new Kind("org.jdbcdslog.ConnectionAcquisition", "JDBC Connection Acquisition",
+            "Acquisition of a JDBC connection from driver or data source",
+            new String[] { "connectionId", "error" },
+            new Class<?>[] { String.class, String.class });
+
+    /** fields: connectionId, method, error */
+    public static final Kind TRANSACTION = new Kind("org.jdbcdslog.Transaction", "JDBC Commit/Rollback",
+            "Commit or rollback of a JDBC transaction",
+            new String[] { "connectionId", "method", "error" },
+            new Class<?>[] { String.class, String.class, String.class });
+
+    private static final Kind[] KINDS = { STATEMENT, BATCH, RESULT_SET, CONNECTION_ACQUISITION, TRANSACTION };
+
+    private static volatile boolean available = false;
+    private static volatile boolean recording = false;
+    private static final Set<Object> runningRecordings = Collections.synchronizedSet(new HashSet<Object>());
+
+    private static Method newEventMethod;
+    private static Method eventTypeIsEnabledMethod;
+    private static Method beginMethod;
+    private static Method endMethod;
+    private static Method shouldCommitMethod;
+    private static Method setMethod;
+    private static Method commitMethod;
+
+    static {
+        if (ConfigurationParameters.flightRecorder) {
+            try {
+                init();
+                available = true;
+            } catch (ClassNotFoundException e) {
+                logger.debug("Java Flight Recorder is not available, JFR events are disabled");
+            } catch (Exception e) {
+                logger.warn("Unable to define JFR event types, JFR events are disabled", e);
+            }
+        }
+    }
+
+    private JdbcFlightRecorder() {
+    }
+
+    private static void init() throws Exception {
+        Class<?> flightRecorderClass = Class.forName("jdk.jfr.FlightRecorder");
+        Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+        Class<?> eventClass = Class.forName("jdk.jfr.Event");
+        Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+        Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+        Constructor<?> annotationElementConstructor = annotationElementClass.getConstructor(Class.class, Object.class);
+        Constructor<?> valueDescriptorConstructor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+        Method createMethod = eventFactoryClass.getMethod("create", List.class, List.class);
+
+        for (Kind kind : KINDS) {
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Name"), kind.name));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Label"), kind.label));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Description"), kind.description));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "JDBC DS Log" }));
+            annotations.add(annotationElementConstructor.newInstance(Class.forName("jdk.jfr.Threshold"),
+                                                                    ConfigurationParameters.flightRecorderThreshold));
+            List<Object> fields = new ArrayList<Object>();
+            for (int i = 0; i < kind.fieldNames.length; ++i) {
+                fields.add(valueDescriptorConstructor.newInstance(kind.fieldTypes[i], kind.fieldNames[i], Collections.emptyList()));
+            }
+            kind.factory = createMethod.invoke(null, annotations, fields);
+            kind.eventType = eventFactoryClass.getMethod("getEventType").invoke(kind.factory);
+        }
+
+        newEventMethod = eventFactoryClass.getMethod("newEvent");
+        eventTypeIsEnabledMethod = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+        beginMethod = eventClass.getMethod("begin");
+        endMethod = eventClass.getMethod("end");
+        shouldCommitMethod = eventClass.getMethod("shouldCommit");
+        setMethod = eventClass.getMethod("set", int.class, Object.class);
+        commitMethod = eventClass.getMethod("commit");
+
+        // track running recordings, so that nothing but a volatile read is done when there is none
+        Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+        Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[] { listenerClass },
+                                                 new RecordingStateListener());
+        flightRecorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+        if ((Boolean) flightRecorderClass.getMethod("isInitialized").invoke(null)) {
+            Object flightRecorder = flightRecorderClass.getMethod("getFlightRecorder").invoke(null);
+            for (Object r : (List<?>) flightRecorderClass.getMethod("getRecordings").invoke(flightRecorder)) {
+                recordingStateChanged(r);
+            }
+        }
+    }
+
+    private static void recordingStateChanged(Object r) throws Exception {
+        Object state = r.getClass().getMethod("getState").invoke(r);
+        if ("RUNNING".equals(String.valueOf(state))) {
+            runningRecordings.add(r);
+        } else {
+            runningRecordings.remove(r);
+        }
+        recording = !runningRecordings.isEmpty();
+    }
+
+    private static class RecordingStateListener implements InvocationHandler {
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("recordingStateChanged")) {
+                recordingStateChanged(args[0]);
+            } else if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            } else if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (method.getName().equals("toString")) {
+                return "JDBC DS Log recording state listener";
+            }
+            return null;
+        }
+    }
+
+    static boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return whether any recording is running, i.e. whether events may be enabled
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Create and begin an event, if the event type is enabled in a running recording.
+     *
+     * @return the event, or null if the event type is disabled
+     */
+    public static Object begin(Kind kind) {
+        if (!recording || !available) {
+            return null;
+        }
+        try {
+            if (!(Boolean) eventTypeIsEnabledMethod.invoke(kind.eventType)) {
+                return null;
+            }
+            Object event = newEventMethod.invoke(kind.factory);
+            beginMethod.invoke(event);
+            return event;
+        } catch (Exception e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    /**
+     * End timing of an event.
+     *
+     * @return whether the event passes the threshold and is to be committed
+     */
+    public static boolean end(Object event) {
+        try {
+            endMethod.invoke(event);
+            return (Boolean) shouldCommitMethod.invoke(event);
+        } catch (Exception e) {
+            disable(e);
+            return false;
+        }
+    }
+
+    /**
+     * Set fields of an ended event and write it to recordings.  Strings are bounded by
+     * <code>jdbcdslog.jfr.maxSqlLength</code>; numbers are given as Long.
+     */
+    public static void commit(Object event, Object... values) {
+        try {
+            for (int i = 0; i < values.length; ++i) {
+                Object value = values[i];
+                if (value instanceof String && ((String) value).length() > ConfigurationParameters.flightRecorderMaxSqlLength) {
+                    value = ((String) value).substring(0, ConfigurationParameters.flightRecorderMaxSqlLength);
+                }
+                setMethod.invoke(event, i, value);
+            }
+            commitMethod.invoke(event);
+        } catch (Exception e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * Commit a connection acquisition event for the given connection proxy.
+     */
+    static void commitConnectionAcquisition(Object event, Connection connection, Throwable t) {
+        if (event == null || !end(event)) {
+            return;
+        }
+        String connectionId = null;
+        if (connection != null && Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConnectionLoggingHandler) {
+            connectionId = ((ConnectionLoggingHandler) Proxy.getInvocationHandler(connection)).logMetaData.getConnectionId();
+        }
+        commit(event, connectionId, t == null ? null : LogUtils.unwrap(t).toString());
+    }
+
+    static String fingerprintOf(String sql) {
+        return sql == null ? null : SqlFingerprint.of(sql).getId();
+    }
+
+    private static void disable(Exception e) {
+        available = false;
+        Throwable cause = (e instanceof InvocationTargetException) ? ((InvocationTargetException) e).getTargetException() : e;
+        logger.warn("Unable to emit JFR event, JFR events are disabled", cause);
+    }
+}
@@ -0,0 +1,387 @@
+package org.jdbcdslog;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cumulative counters of JDBC activity, recorded by handlers without locking: executions and latency per
+ * statement category and per statement shape, slow queries, errors by SQLState, connections and fetched
+ * rows.  Consumers take {@link Snapshot}s and diff them for interval figures, see {@link SummaryReporter}.
+ */
+public final class JdbcStatistics {
+
+    public enum Category {
+        SELECT, INSERT, UPDATE, DELETE, CALL, BATCH, OTHER;
+
+        public String getLabel() {
+            return name().toLowerCase();
+        }
+
+        /**
+         * Category of a statement, by the leading keyword of its normalized SQL.
+         */
+        static Category of(SqlFingerprint fingerprint, boolean isBatch) {
+            if (isBatch) {
+                return BATCH;
+            }
+            if (fingerprint == null) {
+                return OTHER;
+            }
+            String sql = fingerprint.getNormalizedSql();
+            if (sql.startsWith("select") || sql.startsWith("with")) {
+                return SELECT;
+            } else if (sql.startsWith("insert")) {
+                return INSERT;
+            } else if (sql.startsWith("update") || sql.startsWith("merge")) {
+                return UPDATE;
+            } else if (sql.startsWith("delete")) {
+                return DELETE;
+            } else if (sql.startsWith("call") || sql.startsWith("{")) {
+                return CALL;
+            }
+            return OTHER;
+        }
+    }
+
+    /** shape of statements beyond the maximum number of shapes tracked */
+    static final String OTHER_SHAPE_ID = "other";
+
+    /** SQLState of errors without one */
+    static final String UNKNOWN_SQL_STATE = "unknown";
+
+    private static final int MAX_SQL_STATES = 100;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final LatencyHistogram[] categoryLatencies = new LatencyHistogram[CATEGORIES.length];
+    private static final ConcurrentMap<String, ShapeStatistics> shapes = new ConcurrentHashMap<String, ShapeStatistics>();
+    private static final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+    private static final AtomicLong slowCount = new AtomicLong();
+    private static final AtomicLong openedConnections = new AtomicLong();
+    private static final AtomicLong activeConnections = new AtomicLong();
+    private static final AtomicLong fetchedRows = new AtomicLong();
+
+    static class ShapeStatistics {
+        final String id;
+        final String normalizedSql;
+        final Category category;
+        /** order in which the shape was first seen, so that caps on exported shapes never change */
+        final int sequence;
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        ShapeStatistics(String id, String normalizedSql, Category category, int sequence) {
+            this.id = id;
+            this.normalizedSql = normalizedSql;
+            this.category = category;
+            this.sequence = sequence;
+        }
+    }
+
+    static {
+        for (int i = 0; i < CATEGORIES.length; ++i) {
+            categoryLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    private JdbcStatistics() {
+    }
+
+    public static boolean isEnabled() {
+        return ConfigurationParameters.summaryIntervalInNano > 0 || ConfigurationParameters.metricsPort > 0
+                || ConfigurationParameters.jmx;
+    }
+
+    /**
+     * Record a completed statement execution.
+     *
+     * @param sql SQL executed, or null if unknown
+     */
+    static void recordExecution(String sql, boolean isBatch, long elapsedTimeInNano) {
+        recordExecution(sql, isBatch, elapsedTimeInNano, elapsedTimeInNano >= ConfigurationParameters.slowQueryThresholdInNano);
+    }
+
+    /**
+     * @param slow whether the execution is slow by the threshold of its connection's configuration
+     */
+    static void recordExecution(String sql, boolean isBatch, long elapsedTimeInNano, boolean slow) {
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+        Category category = Category.of(fingerprint, isBatch);
+        categoryLatencies[category.ordinal()].record(elapsedTimeInNano);
+        if (slow) {
+            slowCount.incrementAndGet();
+        }
+        if (fingerprint != null) {
+            shapeOf(fingerprint, category).latency.record(elapsedTimeInNano);
+        }
+    }
+
+    private static ShapeStatistics shapeOf(SqlFingerprint fingerprint, Category category) {
+        ShapeStatistics shape = shapes.get(fingerprint.getId());
+        if (shape != null) {
+            return shape;
+        }
+        synchronized (shapes) {     // only when a shape is first seen, so that sequence numbers have no gaps
+            shape = shapes.get(fingerprint.getId());
+            if (shape == null) {
+                if (shapes.size() >= ConfigurationParameters.summaryMaxFingerprints) {
+                    shape = shapes.get(OTHER_SHAPE_ID);
+                    if (shape != null) {
+                        return shape;
+                    }
+                    shape = new ShapeStatistics(OTHER_SHAPE_ID, "(other statements)", Category.OTHER, shapes.size());
+                } else {
+                    shape = new ShapeStatistics(fingerprint.getId(), fingerprint.getNormalizedSql(), category, shapes.size());
+                }
+                shapes.put(shape.id, shape);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Record a failed JDBC call, by SQLState of its SQLException.
+     */
+    static void recordError(Throwable t) {
+        Throwable cause = LogUtils.unwrap(t);
+        String sqlState = (cause instanceof SQLException) ? ((SQLException) cause).getSQLState() : null;
+        if (sqlState == null || (errors.size() >= MAX_SQL_STATES && !errors.containsKey(sqlState))) {
+            sqlState = UNKNOWN_SQL_STATE;
+        }
+        AtomicLong count = errors.get(sqlState);
+        if (count == null) {
+            count = new AtomicLong();
+            AtomicLong existing = errors.putIfAbsent(sqlState, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    static void connectionOpened() {
+        openedConnections.incrementAndGet();
+        activeConnections.incrementAndGet();
+    }
+
+    static void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    static void recordFetchedRows(long rows) {
+        fetchedRows.addAndGet(rows);
+    }
+
+    /**
+     * Snapshot of all counters.  Counters are read one by one, so a snapshot may include part of the
+     * recordings made while it is taken.
+     */
+    public static Snapshot snapshot() {
+        long[][] categories = new long[CATEGORIES.length][];
+        for (int i = 0; i < CATEGORIES.length; ++i) {
+            categories[i] = categoryLatencies[i].snapshot();
+        }
+        Map<String, ShapeSnapshot> shapeSnapshots = new HashMap<String, ShapeSnapshot>();
+        for (ShapeStatistics shape : shapes.values()) {
+            shapeSnapshots.put(shape.id, new ShapeSnapshot(shape.id, shape.normalizedSql, shape.category, shape.sequence, shape.latency.snapshot()));
+        }
+        Map<String, Long> errorCounts = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+            errorCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Snapshot(System.nanoTime(), categories, slowCount.get(), errorCounts, openedConnections.get(),
+                            activeConnections.get(), fetchedRows.get(), shapeSnapshots);
+    }
+
+    /**
+     * Counters at a point of time, or differences of counters between two points of time.
+     */
+    public static final class Snapshot {
+        private final long timeInNano;
+        private final long[][] categoryLatencies;
+        private final long slowCount;
+        private final Map<String, Long> errors;
+        private final long openedConnections;
+        private final long activeConnections;
+        private final long fetchedRows;
+        private final Map<String, ShapeSnapshot> shapes;
+
+        Snapshot(long timeInNano, long[][] categoryLatencies, long slowCount, Map<String, Long> errors,
+                 long openedConnections, long activeConnections, long fetchedRows, Map<String, ShapeSnapshot> shapes) {
+            this.timeInNano = timeInNano;
+            this.categoryLatencies = categoryLatencies;
+            this.slowCount = slowCount;
+            this.errors = Collections.unmodifiableMap(errors);
+            this.openedConnections = openedConnections;
+            this.activeConnections = activeConnections;
+            this.fetchedRows = fetchedRows;
+            this.shapes = Collections.unmodifiableMap(shapes);
+        }
+
+        /**
+         * Differences of counters since a previous snapshot.  Active connections stay as is.
+         *
+         * @param previous previous snapshot, or null to diff against zero
+         */
+        public Snapshot minus(Snapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+            long[][] categories = new long[categoryLatencies.length][];
+            for (int i = 0; i < categories.length; ++i) {
+                categories[i] = LatencyHistogram.minus(categoryLatencies[i], previous.categoryLatencies[i]);
+            }
+            Map<String, Long> errorCounts = new HashMap<String, Long>();
+            for (Map.Entry<String, Long> entry : errors.entrySet()) {
+                Long before = previous.errors.get(entry.getKey());
+                long count = entry.getValue() - (before == null ? 0 : before);
+                if (count != 0) {
+                    errorCounts.put(entry.getKey(), count);
+                }
+            }
+            Map<String, ShapeSnapshot> shapeDeltas = new HashMap<String, ShapeSnapshot>();
+            for (ShapeSnapshot shape : shapes.values()) {
+                ShapeSnapshot before = previous.shapes.get(shape.id);
+                ShapeSnapshot delta = (before == null) ? shape : shape.minus(before);
+                if (delta.getCount() != 0) {
+                    shapeDeltas.put(shape.id, delta);
+                }
+            }
+            return new Snapshot(timeInNano, categories, slowCount - previous.slowCount, errorCounts,
+                                openedConnections - previous.openedConnections, activeConnections,
+                                fetchedRows - previous.fetchedRows, shapeDeltas);
+        }
+
+        public long getTimeInNano() {
+            return timeInNano;
+        }
+
+        public long getExecutionCount(Category category) {
+            return LatencyHistogram.countOf(categoryLatencies[category.ordinal()]);
+        }
+
+        public long getTotalTimeInNano(Category category) {
+            return LatencyHistogram.sumOf(categoryLatencies[category.ordinal()]);
+        }
+
+        /**
+         * Estimated latency percentile of executions of the category.
+         *
+         * @param percentile between 0 and 1
+         */
+        public long getPercentileInNano(Category category, double percentile) {
+            return LatencyHistogram.percentileOf(categoryLatencies[category.ordinal()], percentile);
+        }
+
+        /**
+         * Latency histogram of the category, as counts of buckets bounded by {@link LatencyHistogram#BOUNDS_IN_NANO},
+         * followed by the sum of times.
+         */
+        long[] getLatencyHistogram(Category category) {
+            return categoryLatencies[category.ordinal()];
+        }
+
+        public long getExecutionCount() {
+            long count = 0;
+            for (Category category : CATEGORIES) {
+                count += getExecutionCount(category);
+            }
+            return count;
+        }
+
+        public long getSlowCount() {
+            return slowCount;
+        }
+
+        /**
+         * @return error counts by SQLState
+         */
+        public Map<String, Long> getErrors() {
+            return errors;
+        }
+
+        public long getErrorCount() {
+            long count = 0;
+            for (Long errorCount : errors.values()) {
+                count += errorCount;
+            }
+            return count;
+        }
+
+        public long getOpenedConnections() {
+            return openedConnections;
+        }
+
+        public long getActiveConnections() {
+            return activeConnections;
+        }
+
+        public long getFetchedRows() {
+            return fetchedRows;
+        }
+
+        /**
+         * @return statement shapes by fingerprint id
+         */
+        public Map<String, ShapeSnapshot> getShapes() {
+            return shapes;
+        }
+    }
+
+    /**
+     * Counters of a statement shape, i.e. statements of the same fingerprint.
+     */
+    public static final class ShapeSnapshot {
+        private final String id;
+        private final String normalizedSql;
+        private final Category category;
+        private final int sequence;
+        private final long[] latency;
+
+        ShapeSnapshot(String id, String normalizedSql, Category category, int sequence, long[] latency) {
+            this.id = id;
+            this.normalizedSql = normalizedSql;
+            this.category = category;
+            this.sequence = sequence;
+            this.latency = latency;
+        }
+
+        ShapeSnapshot minus(ShapeSnapshot previous) {
+            return new ShapeSnapshot(id, normalizedSql, category, sequence, LatencyHistogram.minus(latency, previous.latency));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getNormalizedSql() {
+            return normalizedSql;
+        }
+
+        /**
+         * @return order in which the shape was first seen, from 0
+         */
+        public int getSequence() {
+            return sequence;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public long getCount() {
+            return LatencyHistogram.countOf(latency);
+        }
+
+        public long getTotalTimeInNano() {
+            return LatencyHistogram.sumOf(latency);
+        }
+
+        long[] getLatencyHistogram() {
+            return latency;
+        }
+    }
+}
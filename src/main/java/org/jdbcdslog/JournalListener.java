@@ -0,0 +1,49 @@
+package org.jdbcdslog;
+
+/**
+ * Listener recording every JDBC event to an {@link EventJournal}.  Registered automatically when
+ * <code>jdbcdslog.journal.dir</code> is configured.
+ */
+public class JournalListener implements JdbcEventListener {
+    private final EventJournal journal;
+
+    public JournalListener(EventJournal journal) {
+        this.journal = journal;
+    }
+
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    public void onConnectionOpened(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_CONNECTION_OPENED, event);
+    }
+
+    public void beforeExecute(JdbcEvent event) {
+        // execution is recorded once by afterExecute() or onError()
+    }
+
+    public void afterExecute(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_EXECUTE, event);
+    }
+
+    public void onBatch(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_BATCH, event);
+    }
+
+    public void onResultSetClosed(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_RESULT_SET_CLOSED, event);
+    }
+
+    public void onCommit(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_COMMIT, event);
+    }
+
+    public void onRollback(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_ROLLBACK, event);
+    }
+
+    public void onError(JdbcEvent event) {
+        journal.append(EventJournal.TYPE_ERROR, event);
+    }
+}
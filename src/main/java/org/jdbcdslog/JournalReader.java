@@ -0,0 +1,317 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reader of journals written by {@link EventJournal}, streaming records back as {@link Record}s or text.
+ *
+ * <pre>
+ * java -cp jdbcdslogexp2.jar org.jdbcdslog.JournalReader &lt;journal directory or segment files&gt;
+ * </pre>
+ */
+public class JournalReader {
+
+    /**
+     * Receives records read from journal.
+     */
+    public interface Handler {
+        void handle(Record record);
+    }
+
+    /**
+     * An event read from journal.
+     */
+    public static class Record {
+        private final byte type;
+        private final long timestampInNano;
+        private final String connectionId;
+        private final String methodName;
+        private final String sql;
+        private final long elapsedTimeInNano;
+        private final long rowCount;
+        private final long batchSize;
+        private final Map<Integer, Object> parameters;
+        private final Map<String, Object> namedParameters;
+        private final String error;
+
+        Record(byte type, long timestampInNano, String connectionId, String methodName, String sql,
+               long elapsedTimeInNano, long rowCount, long batchSize,
+               Map<Integer, Object> parameters, Map<String, Object> namedParameters, String error) {
+            this.type = type;
+            this.timestampInNano = timestampInNano;
+            this.connectionId = connectionId;
+            this.methodName = methodName;
+            this.sql = sql;
+            this.elapsedTimeInNano = elapsedTimeInNano;
+            this.rowCount = rowCount;
+            this.batchSize = batchSize;
+            this.parameters = parameters;
+            this.namedParameters = namedParameters;
+            this.error = error;
+        }
+
+        /**
+         * @return one of EventJournal.TYPE_* constants
+         */
+        public byte getType() {
+            return type;
+        }
+
+        public String getTypeName() {
+            switch (type) {
+                case EventJournal.TYPE_CONNECTION_OPENED: return "connectionOpened";
+                case EventJournal.TYPE_EXECUTE: return "execute";
+                case EventJournal.TYPE_BATCH: return "batch";
+                case EventJournal.TYPE_RESULT_SET_CLOSED: return "resultSetClosed";
+                case EventJournal.TYPE_COMMIT: return "commit";
+                case EventJournal.TYPE_ROLLBACK: return "rollback";
+                case EventJournal.TYPE_ERROR: return "error";
+                default: return "unknown";
+            }
+        }
+
+        /**
+         * @return epoch time of the event in nano seconds
+         */
+        public long getTimestampInNano() {
+            return timestampInNano;
+        }
+
+        public String getConnectionId() {
+            return connectionId;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getElapsedTimeInNano() {
+            return elapsedTimeInNano;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public long getBatchSize() {
+            return batchSize;
+        }
+
+        public Map<Integer, Object> getParameters() {
+            return parameters;
+        }
+
+        public Map<String, Object> getNamedParameters() {
+            return namedParameters;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestampInNano / 1000000L)))
+              .append(String.format("%06d", timestampInNano % 1000000L))
+              .append(" [").append(connectionId).append("] ")
+              .append(getTypeName()).append(" ").append(methodName);
+            if (sql != null) {
+                sb.append(": ").append(sql);
+            }
+            if (!parameters.isEmpty()) {
+                sb.append(" parameters: ").append(parameters);
+            }
+            if (!namedParameters.isEmpty()) {
+                sb.append(" named parameters: ").append(namedParameters);
+            }
+            if (elapsedTimeInNano >= 0) {
+                sb.append(" elapsed: ").append(elapsedTimeInNano).append(" ns");
+            }
+            if (rowCount >= 0) {
+                sb.append(" rows: ").append(rowCount);
+            }
+            if (batchSize >= 0) {
+                sb.append(" batch size: ").append(batchSize);
+            }
+            if (error != null) {
+                sb.append(" error: ").append(error);
+            }
+            return sb.toString();
+        }
+    }
+
+    // SQL definitions are kept across segments, as a definition may be written to the previous segment
+    private final Map<Long, String> sqls = new HashMap<Long, String>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java org.jdbcdslog.JournalReader <journal directory or segment files>");
+            return;
+        }
+        final PrintWriter out = new PrintWriter(System.out);
+        JournalReader reader = new JournalReader();
+        Handler printer = new Handler() {
+            public void handle(Record record) {
+                out.println(record);
+            }
+        };
+        for (String arg : args) {
+            File file = new File(arg);
+            if (file.isDirectory()) {
+                reader.readDirectory(file, printer);
+            } else {
+                reader.readSegment(file, printer);
+            }
+        }
+        out.flush();
+    }
+
+    public void readDirectory(File directory, Handler handler) throws IOException {
+        for (File segment : EventJournal.listSegments(directory)) {
+            readSegment(segment, handler);
+        }
+    }
+
+    /**
+     * Read all records of a segment.  SQL definitions of the segment are read before its events, as
+     * concurrent writers may write a definition after the event referring to it.
+     */
+    public void readSegment(File segment, Handler handler) throws IOException {
+        ByteBuffer buffer;
+        FileInputStream in = new FileInputStream(segment);
+        try {
+            FileChannel channel = in.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+        if (buffer.limit() < EventJournal.SEGMENT_HEADER_SIZE || buffer.getInt(0) != EventJournal.MAGIC) {
+            throw new IOException(segment + " is not a JDBC DS Log journal segment");
+        }
+
+        List<Integer> eventPositions = new ArrayList<Integer>();
+        int position = EventJournal.SEGMENT_HEADER_SIZE;
+        while (position + 5 <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + length > buffer.limit()) {
+                break;
+            }
+            if (buffer.get(position + 4) == EventJournal.TYPE_SQL) {
+                buffer.position(position + 5);
+                long id = readVarLong(buffer);
+                sqls.put(id, readString(buffer));
+            } else {
+                eventPositions.add(position);
+            }
+            position += length;
+        }
+
+        for (int eventPosition : eventPositions) {
+            buffer.position(eventPosition + 4);
+            handler.handle(readEvent(buffer));
+        }
+    }
+
+    private Record readEvent(ByteBuffer buffer) {
+        byte type = buffer.get();
+        long timestamp = readVarLong(buffer);
+        String connectionId = readString(buffer);
+        String methodName = readString(buffer);
+        long sqlId = readVarLong(buffer);
+        String sql = (sqlId == 0) ? null : sqls.get(sqlId);
+        if (sqlId != 0 && sql == null) {
+            sql = "sqlid=" + sqlId;     // definition is lost with an older segment
+        }
+        long elapsed = readSignedVarLong(buffer);
+        long rowCount = readSignedVarLong(buffer);
+        long batchSize = readSignedVarLong(buffer);
+
+        Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+        for (long i = readVarLong(buffer); i > 0; --i) {
+            int index = (int) readVarLong(buffer);
+            parameters.put(index, readValue(buffer));
+        }
+        Map<String, Object> namedParameters = new LinkedHashMap<String, Object>();
+        for (long i = readVarLong(buffer); i > 0; --i) {
+            String name = readString(buffer);
+            namedParameters.put(name, readValue(buffer));
+        }
+        String error = readString(buffer);
+
+        return new Record(type, timestamp, connectionId, methodName, sql, elapsed, rowCount, batchSize,
+                          parameters, namedParameters, error);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static long readSignedVarLong(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Object readValue(ByteBuffer buffer) {
+        byte valueType = buffer.get();
+        switch (valueType) {
+            case EventJournal.VALUE_NULL:
+                return null;
+            case EventJournal.VALUE_LONG:
+                return readSignedVarLong(buffer);
+            case EventJournal.VALUE_DOUBLE:
+                return Double.longBitsToDouble(readVarLong(buffer));
+            case EventJournal.VALUE_BOOLEAN:
+                return buffer.get() != 0;
+            case EventJournal.VALUE_DECIMAL:
+                return new BigDecimal(readString(buffer));
+            case EventJournal.VALUE_BYTES:
+                byte[] bytes = new byte[(int) readVarLong(buffer)];
+                buffer.get(bytes);
+                return bytes;
+            default:
+                return readString(buffer);
+        }
+    }
+}
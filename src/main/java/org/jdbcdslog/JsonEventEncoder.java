@@ -0,0 +1,260 @@
+package org.jdbcdslog;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.MDC;
+
+/**
+ * Streaming encoder of a log event as a single line JSON object, for <code>jdbcdslog.outputFormat=json</code>.
+ * Each thread reuses its own encoder and buffer, so encoding an event allocates nothing but the resulting
+ * String.  Fields are written in call order; parameters keep their type, numbers and booleans are written
+ * as JSON numbers and booleans, and other values as strings.
+ *
+ * <pre>
+ * String event = JsonEventEncoder.begin("statement").field("sql", sql).field("elapsedNanos", elapsed).end();
+ * </pre>
+ */
+public final class JsonEventEncoder {
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<JsonEventEncoder> encoders = new ThreadLocal<JsonEventEncoder>() {
+        @Override
+        protected JsonEventEncoder initialValue() {
+            return new JsonEventEncoder();
+        }
+    };
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private StringBuilder sb = new StringBuilder(256);
+
+    // whether nothing is written yet in current object or array
+    private boolean first;
+
+    private JsonEventEncoder() {
+    }
+
+    /**
+     * Start encoding an event of given type with the reused encoder of current thread.  Connection id
+     * is taken from MDC.
+     */
+    public static JsonEventEncoder begin(String type) {
+        JsonEventEncoder encoder = encoders.get();
+        if (encoder.sb.capacity() > MAX_RETAINED_CAPACITY) {
+            encoder.sb = new StringBuilder(256);    // do not retain buffer of an exceptionally large event
+        }
+        encoder.sb.setLength(0);
+        encoder.sb.append('{');
+        encoder.first = true;
+        encoder.field("type", type);
+        String connectionId = MDC.get(LogUtils.CONNECTION_ID_MDC_KEY);
+        if (connectionId != null) {
+            encoder.field("connectionId", connectionId);
+        }
+        return encoder;
+    }
+
+    /**
+     * Finish the event.
+     *
+     * @return the encoded JSON object
+     */
+    public String end() {
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public JsonEventEncoder field(String name, String value) {
+        name(name);
+        string(value);
+        return this;
+    }
+
+    public JsonEventEncoder field(String name, long value) {
+        name(name);
+        sb.append(value);
+        return this;
+    }
+
+    public JsonEventEncoder field(String name, boolean value) {
+        name(name);
+        sb.append(value);
+        return this;
+    }
+
+    /**
+     * Write a field of JDBC value, keeping its JSON type where possible.
+     */
+    public JsonEventEncoder value(String name, Object value) {
+        name(name);
+        value(value);
+        return this;
+    }
+
+    public JsonEventEncoder beginObject(String name) {
+        name(name);
+        sb.append('{');
+        first = true;
+        return this;
+    }
+
+    public JsonEventEncoder endObject() {
+        sb.append('}');
+        first = false;
+        return this;
+    }
+
+    public JsonEventEncoder beginArray(String name) {
+        name(name);
+        sb.append('[');
+        first = true;
+        return this;
+    }
+
+    public JsonEventEncoder endArray() {
+        sb.append(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Write an element of current array.
+     */
+    public JsonEventEncoder element(Object value) {
+        separator();
+        value(value);
+        return this;
+    }
+
+    /**
+     * Write indexed parameters as an object keyed by parameter index.  Nothing is written if there is no parameter.
+     */
+    public JsonEventEncoder parameters(String name, Map<Integer, Object> parameters) {
+        if (parameters != null && !parameters.isEmpty()) {
+            beginObject(name);
+            for (Map.Entry<Integer, Object> entry : parameters.entrySet()) {
+                separator();
+                sb.append('"').append(entry.getKey().intValue()).append("\":");
+                value(entry.getValue());
+            }
+            endObject();
+        }
+        return this;
+    }
+
+    /**
+     * Write named parameters as an object.  Nothing is written if there is no parameter.
+     */
+    public JsonEventEncoder namedParameters(String name, Map<String, Object> namedParameters) {
+        if (namedParameters != null && !namedParameters.isEmpty()) {
+            beginObject(name);
+            for (Map.Entry<String, Object> entry : namedParameters.entrySet()) {
+                value(entry.getKey(), entry.getValue());
+            }
+            endObject();
+        }
+        return this;
+    }
+
+    /**
+     * Write parameters of each batch entry as an array of parameter objects, keyed by parameter index or name.
+     * Nothing is written if there is no batch entry.
+     */
+    public JsonEventEncoder batchParameters(String name, List<? extends Map<?, Object>> batchParameters) {
+        if (batchParameters != null && !batchParameters.isEmpty()) {
+            beginArray(name);
+            for (Map<?, Object> parameters : batchParameters) {
+                separator();
+                sb.append('{');
+                first = true;
+                for (Map.Entry<?, Object> entry : parameters.entrySet()) {
+                    value(entry.getKey().toString(), entry.getValue());
+                }
+                endObject();
+            }
+            endArray();
+        }
+        return this;
+    }
+
+    private void name(String name) {
+        separator();
+        string(name);
+        sb.append(':');
+    }
+
+    private void separator() {
+        if (first) {
+            first = false;
+        } else {
+            sb.append(',');
+        }
+    }
+
+    private void value(Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger) {
+            sb.append(value);
+        } else if (value instanceof BigDecimal) {
+            sb.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                string(value.toString());
+            } else {
+                sb.append(value);
+            }
+        } else if (value instanceof Boolean) {
+            sb.append(((Boolean) value).booleanValue());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            sb.append('"');
+            for (byte b : bytes) {
+                sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+            sb.append('"');
+        } else {
+            string(value.toString());
+        }
+    }
+
+    private void string(String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,105 @@
+package org.jdbcdslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed bucket bounds, shared by interval summaries and metrics export.
+ */
+public final class LatencyHistogram {
+    /** upper bounds of buckets in nano seconds; the last bucket, beyond the last bound, is unbounded */
+    static final long[] BOUNDS_IN_NANO = {
+            100000L, 250000L, 500000L,
+            1000000L, 2500000L, 5000000L,
+            10000000L, 25000000L, 50000000L,
+            100000000L, 250000000L, 500000000L,
+            1000000000L, 2500000000L, 5000000000L, 10000000000L };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_IN_NANO.length + 1);
+    private final AtomicLong sumInNano = new AtomicLong();
+
+    public void record(long timeInNano) {
+        counts.incrementAndGet(bucketOf(timeInNano));
+        sumInNano.addAndGet(timeInNano);
+    }
+
+    static int bucketOf(long timeInNano) {
+        int low = 0;
+        int high = BOUNDS_IN_NANO.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeInNano <= BOUNDS_IN_NANO[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return count of each bucket, followed by the sum of recorded times
+     */
+    long[] snapshot() {
+        long[] snapshot = new long[BOUNDS_IN_NANO.length + 2];
+        for (int i = 0; i <= BOUNDS_IN_NANO.length; ++i) {
+            snapshot[i] = counts.get(i);
+        }
+        snapshot[BOUNDS_IN_NANO.length + 1] = sumInNano.get();
+        return snapshot;
+    }
+
+    static long countOf(long[] snapshot) {
+        long count = 0;
+        for (int i = 0; i <= BOUNDS_IN_NANO.length; ++i) {
+            count += snapshot[i];
+        }
+        return count;
+    }
+
+    static long sumOf(long[] snapshot) {
+        return snapshot[BOUNDS_IN_NANO.length + 1];
+    }
+
+    /**
+     * Estimate a percentile by linear interpolation within the bucket containing it.
+     *
+     * @param percentile between 0 and 1
+     * @return estimated time in nano seconds, or 0 if the snapshot is empty
+     */
+    static long percentileOf(long[] snapshot, double percentile) {
+        long count = countOf(snapshot);
+        if (count == 0) {
+            return 0;
+        }
+        double rank = percentile * count;
+        long seen = 0;
+        for (int i = 0; i <= BOUNDS_IN_NANO.length; ++i) {
+            if (snapshot[i] > 0 && seen + snapshot[i] >= rank) {
+                long lower = (i == 0) ? 0 : BOUNDS_IN_NANO[i - 1];
+                if (i == BOUNDS_IN_NANO.length) {
+                    return lower;       // unbounded bucket
+                }
+                return lower + (long) ((BOUNDS_IN_NANO[i] - lower) * ((rank - seen) / snapshot[i]));
+            }
+            seen += snapshot[i];
+        }
+        return BOUNDS_IN_NANO[BOUNDS_IN_NANO.length - 1];
+    }
+
+    static long[] plus(long[] snapshot, long[] other) {
+        long[] sum = new long[other.length];
+        for (int i = 0; i < other.length; ++i) {
+            sum[i] = (snapshot == null ? 0 : snapshot[i]) + other[i];
+        }
+        return sum;
+    }
+
+    static long[] minus(long[] snapshot, long[] previous) {
+        long[] delta = new long[snapshot.length];
+        for (int i = 0; i < snapshot.length; ++i) {
+            delta[i] = snapshot[i] - (previous == null ? 0 : previous[i]);
+        }
+        return delta;
+    }
+}
@@ -11,17 +11,75 @@ public class LogMetaData {
 
     private String connectionId;
 
+    // configuration profile of the data source or driver URL the connection comes from
+    private final ConfigurationProfile profile;
+
+    // sampling decision of current connection or transaction
+    private volatile boolean sampled;
+
+    // null if coalescing is disabled
+    private final StatementCoalescer statementCoalescer = StatementCoalescer.create(this);
+
+    // recent statements of the connection, null if black box recording is disabled
+    private final BlackBoxRecorder blackBoxRecorder = BlackBoxRecorder.create();
+
+    // statements of current transaction, null if tail-based transaction logging is disabled
+    private final TransactionBuffer transactionBuffer = TransactionBuffer.create();
+
     public static LogMetaData create() {
+        return create(ConfigurationProfile.DEFAULT);
+    }
+
+    public static LogMetaData create(ConfigurationProfile profile) {
         int id = idCounter.incrementAndGet();
-        return new LogMetaData(String.valueOf(id));
+        return new LogMetaData(String.valueOf(id), profile);
     }
 
-    private LogMetaData(String connectionId) {
+    private LogMetaData(String connectionId, ConfigurationProfile profile) {
         this.connectionId = connectionId;
+        this.profile = profile;
+        this.sampled = StatementSampler.sampleTrace(profile.getConfiguration());
     }
 
     public String getConnectionId() {
         return connectionId;
     }
 
+    public ConfigurationProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Configuration in effect for the connection, which is that of its profile.
+     */
+    public Configuration getConfiguration() {
+        return profile.getConfiguration();
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return coalescer of the connection, null if coalescing is disabled
+     */
+    public StatementCoalescer getStatementCoalescer() {
+        return statementCoalescer;
+    }
+
+    public BlackBoxRecorder getBlackBoxRecorder() {
+        return blackBoxRecorder;
+    }
+
+    public TransactionBuffer getTransactionBuffer() {
+        return transactionBuffer;
+    }
+
+    /**
+     * Make a new sampling decision, for a new transaction.
+     */
+    public void resample() {
+        this.sampled = StatementSampler.sampleTrace(profile.getConfiguration());
+    }
+
 }
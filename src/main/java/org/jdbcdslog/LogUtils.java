@@ -23,14 +23,45 @@ public class LogUtils {
     private final static String NAMED_PARAMETERS_PREFIX = ":";
 
     public static void handleException(Throwable e, Logger l, StringBuilder msg) throws Throwable {
-        if (e instanceof InvocationTargetException) {
-            e = ((InvocationTargetException) e).getTargetException();
-        }
+        e = unwrap(e);
 
         l.error(msg.toString(), e);
         throw e;
     }
 
+    /**
+     * @return the exception thrown by JDBC, if it is wrapped by reflective invocation
+     */
+    public static Throwable unwrap(Throwable e) {
+        if (e instanceof InvocationTargetException) {
+            return ((InvocationTargetException) e).getTargetException();
+        }
+        return e;
+    }
+
+    /**
+     * Log the recent statements kept in black box of the connection, if black box recording is enabled.
+     *
+     * @param l logger to log to
+     * @param logMetaData log meta data of the connection
+     * @param error true to log as error, otherwise as info
+     */
+    public static void logBlackBox(Logger l, LogMetaData logMetaData, boolean error) {
+        BlackBoxRecorder blackBox = (logMetaData == null) ? null : logMetaData.getBlackBoxRecorder();
+        if (blackBox == null || !(error ? l.isErrorEnabled() : l.isInfoEnabled())) {
+            return;
+        }
+        String events = blackBox.dump();
+        if (events == null) {
+            return;
+        }
+        if (error) {
+            l.error(events);
+        } else {
+            l.info(events);
+        }
+    }
+
     /**
      * Append Elapsed Time to log message if it is configured to be included.
      *
@@ -39,43 +70,73 @@ public class LogUtils {
      * @return
      */
     public static StringBuilder appendElapsedTime(StringBuilder sb, long elapsedTimeInNano) {
-        if (ConfigurationParameters.showTime) {
-            sb.append("\nElapsed Time: ").append(String.format("%.9f", elapsedTimeInNano/1000000000.0)).append(" s.");
-        }
-        return sb;
+        return appendElapsedTime(sb, elapsedTimeInNano, ConfigurationParameters.current());
+    }
 
+    public static StringBuilder appendElapsedTime(StringBuilder sb, long elapsedTimeInNano, Configuration config) {
+        return config.elapsedTimeMode.append(sb, elapsedTimeInNano);
     }
 
     public static String appendStackTrace(String message) {
-        if (ConfigurationParameters.printStackTrace) {
-            return appendStackTrace(new StringBuilder(message)).toString();
+        return appendStackTrace(message, ConfigurationParameters.current());
+    }
+
+    public static String appendStackTrace(String message, Configuration config) {
+        if (config.stackTraceMode != StackTraceMode.NONE && !OverheadGovernor.suppressesStackTrace()) {
+            return appendStackTrace(new StringBuilder(message), config).toString();
         } else {
             return message;
         }
     }
 
     public static StringBuilder appendStackTrace(StringBuilder sb) {
-        if (ConfigurationParameters.printStackTrace) {
-            StackTraceElement[] stackTraces = new Throwable().getStackTrace();
-            int firstNonJdbcDsLogStackIndex = firstNonJdbcDsLogStackIndex(stackTraces);
+        return appendStackTrace(sb, ConfigurationParameters.current());
+    }
 
-            if (ConfigurationParameters.printFullStackTrace) {
-                for (int i = firstNonJdbcDsLogStackIndex; i < stackTraces.length; ++i) {
-                    sb.append("\nat ").append(stackTraces[i]);
-                }
-            } else if (ConfigurationParameters.printStackTracePattern.length() == 0) {
-                sb.append("\nat ").append(stackTraces[firstNonJdbcDsLogStackIndex]);
-            } else {   // pattern provided
-                String matchPattern =  ConfigurationParameters.printStackTracePattern;
-                for (StackTraceElement stackTraceElement : stackTraces) {
-                    if ( stackTraceElement.getClassName().matches(matchPattern)){
-                        sb.append("\nat ").append(stackTraceElement);
-                        break;
-                    }
-                }
+    public static StringBuilder appendStackTrace(StringBuilder sb, Configuration config) {
+        return config.stackTraceMode.append(sb, config);
+    }
+
+    /**
+     * Write caller of JDBC as "caller" field, or the full stack trace as "stackTrace" field, according to
+     * stack trace configuration.
+     */
+    public static JsonEventEncoder encodeStackTrace(JsonEventEncoder encoder) {
+        return encodeStackTrace(encoder, ConfigurationParameters.current());
+    }
+
+    public static JsonEventEncoder encodeStackTrace(JsonEventEncoder encoder, Configuration config) {
+        return config.stackTraceMode.encode(encoder, config);
+    }
+
+    /**
+     * Write SQL, or its id when SQL dictionary is enabled, and parameters as JSON fields.
+     */
+    public static JsonEventEncoder encodeSql(JsonEventEncoder encoder,
+                                             String sql,
+                                             Map<Integer, Object> parameters,
+                                             Map<String, Object> namedParameters) {
+        if (sql != null) {
+            if (SqlDictionary.isEnabled()) {
+                encoder.field("sqlId", SqlDictionary.idOf(sql));
+            } else {
+                encoder.field("sql", sql);
             }
         }
+        encoder.parameters("parameters", parameters);
+        encoder.namedParameters("namedParameters", namedParameters);
+        return encoder;
+    }
 
+    /**
+     * Append the first stack frame outside of JDBC DS Log, regardless of stack trace configuration.
+     */
+    public static StringBuilder appendCallSite(StringBuilder sb) {
+        StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+        int index = firstNonJdbcDsLogStackIndex(stackTraces);
+        if (index < stackTraces.length) {
+            sb.append("\nat ").append(stackTraces[index]);
+        }
         return sb;
     }
 
@@ -98,11 +159,25 @@ public class LogUtils {
     }
 
     public static StringBuilder createLogEntry(Method method, String sql, Map<Integer,Object> parameters, Map<String,Object> namedParameters) {
+        return createLogEntry(method, sql, parameters, namedParameters, ConfigurationParameters.current());
+    }
+
+    public static StringBuilder createLogEntry(Method method, String sql, Map<Integer,Object> parameters, Map<String,Object> namedParameters,
+                                               Configuration config) {
+        if (config.jsonOutput) {
+            JsonEventEncoder encoder = JsonEventEncoder.begin("error");
+            if (method != null) {
+                encoder.field("method", method.getDeclaringClass().getName() + "." + method.getName());
+            }
+            encodeSql(encoder, sql, parameters, namedParameters);
+            return new StringBuilder(encoder.end());
+        }
+
         StringBuilder s = new StringBuilder();
         if (method != null) {
             s.append(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
         }
-        appendSql(s, sql, parameters, namedParameters);
+        appendSql(s, sql, parameters, namedParameters, config);
 
         return s;
     }
@@ -111,8 +186,20 @@ public class LogUtils {
                                  String sql,
                                  Map<Integer, Object> parameters,
                                  Map<String, Object> namedParameters) {
+        appendSql(s, sql, parameters, namedParameters, ConfigurationParameters.current());
+    }
 
-        if (ConfigurationParameters.inlineQueryParams) {
+    public static void appendSql(StringBuilder s,
+                                 String sql,
+                                 Map<Integer, Object> parameters,
+                                 Map<String, Object> namedParameters,
+                                 Configuration config) {
+
+        if (sql != null && SqlDictionary.isEnabled()) {
+            // parameters are never inlined, which would defeat the dictionary
+            s.append("sqlid=").append(SqlDictionary.idOf(sql));
+            appendSqlWithSeparateParams(s, null, parameters, namedParameters);
+        } else if (config.inlineQueryParams && !OverheadGovernor.suppressesInlineParams()) {
             if (parameters != null && !parameters.isEmpty()) {
                 appendSqlWithInlineIndexedParams(s, sql, parameters);
             } else {
@@ -146,8 +233,19 @@ public class LogUtils {
                                  String sql,
                                  List<Map<Integer, Object>> parameters,
                                  List<Map<String, Object>> namedParameters) {
+        appendBatchSqls(s, sql, parameters, namedParameters, ConfigurationParameters.current());
+    }
+
+    public static void appendBatchSqls(StringBuilder s,
+                                 String sql,
+                                 List<Map<Integer, Object>> parameters,
+                                 List<Map<String, Object>> namedParameters,
+                                 Configuration config) {
 
-        if (ConfigurationParameters.inlineQueryParams) {
+        if (sql != null && SqlDictionary.isEnabled()) {
+            s.append("sqlid=").append(SqlDictionary.idOf(sql));
+            appendBatchSqlsWithSeparateParams(s, null, parameters, namedParameters);
+        } else if (config.inlineQueryParams && !OverheadGovernor.suppressesInlineParams()) {
             if (parameters != null) {
                 for (Map<Integer, Object> p : parameters) {
                     if (s.length() > 0) {
@@ -22,8 +22,11 @@ import org.slf4j.LoggerFactory;
  * @author Adrian Shum
  */
 public class Loggers {
-    public static final Logger slowQueryLogger = LoggerFactory.getLogger("org.jdbcdslog.SlowQueryLogger");
-    public static final Logger connectionLogger = LoggerFactory.getLogger("org.jdbcdslog.ConnectionLogger");
-    public static final Logger resultSetLogger = LoggerFactory.getLogger("org.jdbcdslog.ResultSetLogger");
-    public static final Logger statementLogger = LoggerFactory.getLogger("org.jdbcdslog.StatementLogger");
+    public static final Logger slowQueryLogger = FileSink.wrap("slowQuery", LoggerFactory.getLogger("org.jdbcdslog.SlowQueryLogger"));
+    public static final Logger connectionLogger = FileSink.wrap("connection", LoggerFactory.getLogger("org.jdbcdslog.ConnectionLogger"));
+    public static final Logger resultSetLogger = FileSink.wrap("resultSet", LoggerFactory.getLogger("org.jdbcdslog.ResultSetLogger"));
+    public static final Logger statementLogger = FileSink.wrap("statement", LoggerFactory.getLogger("org.jdbcdslog.StatementLogger"));
+    public static final Logger advisorLogger = LoggerFactory.getLogger("org.jdbcdslog.AdvisorLogger");
+    public static final Logger sqlDictionaryLogger = LoggerFactory.getLogger("org.jdbcdslog.SqlDictionaryLogger");
+    public static final Logger summaryLogger = LoggerFactory.getLogger("org.jdbcdslog.SummaryLogger");
 }
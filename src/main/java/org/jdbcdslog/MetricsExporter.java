@@ -0,0 +1,174 @@
+package org.jdbcdslog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link JdbcStatistics} in OpenMetrics text format at <code>/metrics</code>, on
+ * <code>jdbcdslog.metrics.host</code> (loopback by default) and <code>jdbcdslog.metrics.port</code>.
+ * A scrape only reads counters, so it never blocks JDBC calls.  The first
+ * <code>jdbcdslog.metrics.maxFingerprints</code> statement shapes seen are exported by fingerprint; the rest
+ * are summed up as fingerprint <code>other</code>.  Exported fingerprints are fixed when first seen, so that
+ * series never disappear and counters of <code>other</code> never decrease between scrapes.
+ */
+public class MetricsExporter {
+    private static Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static MetricsExporter instance;
+
+    private final HttpServer server;
+
+    MetricsExporter(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jdbcdslog-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+
+        // the dispatcher thread of the server inherits daemon status of the thread starting it
+        Thread starter = new Thread("jdbcdslog-metrics-start") {
+            @Override
+            public void run() {
+                server.start();
+            }
+        };
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static synchronized void startIfConfigured() {
+        if (instance != null || ConfigurationParameters.metricsPort <= 0) {
+            return;
+        }
+        try {
+            instance = new MetricsExporter(ConfigurationParameters.metricsHost, ConfigurationParameters.metricsPort);
+            logger.info("Serving JDBC metrics at http://" + ConfigurationParameters.metricsHost + ":"
+                        + ConfigurationParameters.metricsPort + "/metrics");
+        } catch (IOException e) {
+            logger.error("Unable to serve JDBC metrics on port " + ConfigurationParameters.metricsPort, e);
+        }
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = format(JdbcStatistics.snapshot(), ConfigurationParameters.metricsMaxFingerprints).getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static String format(JdbcStatistics.Snapshot snapshot, int maxFingerprints) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# TYPE jdbcdslog_statement_seconds histogram\n")
+          .append("# HELP jdbcdslog_statement_seconds Time of statement executions by category.\n");
+        for (JdbcStatistics.Category category : JdbcStatistics.Category.values()) {
+            appendHistogram(sb, "jdbcdslog_statement_seconds", "category=\"" + category.getLabel() + "\"",
+                            snapshot.getLatencyHistogram(category));
+        }
+
+        sb.append("# TYPE jdbcdslog_statement_fingerprint_seconds histogram\n")
+          .append("# HELP jdbcdslog_statement_fingerprint_seconds Time of statement executions by statement fingerprint.\n");
+        List<JdbcStatistics.ShapeSnapshot> shapes = SummaryReporter.topShapes(snapshot, Integer.MAX_VALUE);
+        long[] others = null;
+        for (JdbcStatistics.ShapeSnapshot shape : shapes) {
+            if (shape.getSequence() < maxFingerprints && !shape.getId().equals(JdbcStatistics.OTHER_SHAPE_ID)) {
+                appendHistogram(sb, "jdbcdslog_statement_fingerprint_seconds",
+                                "fingerprint=\"" + escape(shape.getId()) + "\",category=\"" + shape.getCategory().getLabel() + "\"",
+                                shape.getLatencyHistogram());
+            } else {
+                others = LatencyHistogram.plus(others, shape.getLatencyHistogram());
+            }
+        }
+        if (others != null) {
+            appendHistogram(sb, "jdbcdslog_statement_fingerprint_seconds",
+                            "fingerprint=\"" + JdbcStatistics.OTHER_SHAPE_ID + "\",category=\"other\"", others);
+        }
+
+        appendCounter(sb, "jdbcdslog_slow_statements", "Statement executions reaching the slow query threshold.", snapshot.getSlowCount());
+
+        sb.append("# TYPE jdbcdslog_errors counter\n")
+          .append("# HELP jdbcdslog_errors Failed JDBC calls by SQLState.\n");
+        for (Map.Entry<String, Long> entry : new TreeMap<String, Long>(snapshot.getErrors()).entrySet()) {
+            sb.append("jdbcdslog_errors_total{sqlstate=\"").append(escape(entry.getKey())).append("\"} ")
+              .append(entry.getValue()).append('\n');
+        }
+
+        sb.append("# TYPE jdbcdslog_connections_active gauge\n")
+          .append("# HELP jdbcdslog_connections_active Connections opened and not yet closed.\n")
+          .append("jdbcdslog_connections_active ").append(snapshot.getActiveConnections()).append('\n');
+        appendCounter(sb, "jdbcdslog_connections_opened", "Connections opened.", snapshot.getOpenedConnections());
+        appendCounter(sb, "jdbcdslog_result_set_rows", "Rows fetched from closed ResultSets.", snapshot.getFetchedRows());
+
+        sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    private static void appendCounter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# TYPE ").append(name).append(" counter\n")
+          .append("# HELP ").append(name).append(' ').append(help).append('\n')
+          .append(name).append("_total ").append(value).append('\n');
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, long[] histogram) {
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BOUNDS_IN_NANO.length; ++i) {
+            cumulative += histogram[i];
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"")
+              .append(toSeconds(LatencyHistogram.BOUNDS_IN_NANO[i])).append("\"} ").append(cumulative).append('\n');
+        }
+        long count = LatencyHistogram.countOf(histogram);
+        sb.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n')
+          .append(name).append("_count{").append(labels).append("} ").append(count).append('\n')
+          .append(name).append("_sum{").append(labels).append("} ").append(toSeconds(LatencyHistogram.sumOf(histogram))).append('\n');
+    }
+
+    private static String toSeconds(long timeInNano) {
+        return String.valueOf(timeInNano / 1e9);
+    }
+
+    static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
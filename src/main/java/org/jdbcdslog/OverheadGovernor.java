@@ -0,0 +1,116 @@
+package org.jdbcdslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the overhead of JDBC DS Log itself, i.e. time spent in logging handlers outside of the driver
+ * call, against time spent in the driver.  When overhead exceeds the configured budget
+ * (<code>jdbcdslog.governor.budget</code>, ratio of database time) in an evaluation interval, logging detail
+ * is reduced by one level.  Detail is restored one level at a time after overhead stays below half of the
+ * budget for a few intervals.
+ */
+public class OverheadGovernor {
+    private static Logger logger = LoggerFactory.getLogger(OverheadGovernor.class);
+
+    /** number of consecutive calm intervals needed before restoring one level of detail */
+    static final int CALM_INTERVALS_TO_RESTORE = 3;
+
+    public enum Level {
+        /** configured detail */
+        FULL,
+        /** stack traces and ResultSet row logging off */
+        NO_STACK_TRACE,
+        /** query parameters are not inlined into SQL */
+        NO_INLINE_PARAMS,
+        /** statements are sampled by jdbcdslog.governor.samplingRate */
+        SAMPLED,
+        /** only slow queries and errors are logged */
+        SLOW_QUERY_ONLY
+    }
+
+    static volatile Level level = Level.FULL;
+
+    private static final AtomicLong overheadTimeInNano = new AtomicLong();
+    private static final AtomicLong driverTimeInNano = new AtomicLong();
+    private static int calmIntervals = 0;
+
+    private static final ReportInterval evaluationInterval = new ReportInterval(ConfigurationParameters.governorIntervalInNano);
+
+    public static boolean isEnabled() {
+        return ConfigurationParameters.governor;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static boolean suppressesStackTrace() {
+        return isEnabled() && level.compareTo(Level.NO_STACK_TRACE) >= 0;
+    }
+
+    public static boolean suppressesRowLogging() {
+        return isEnabled() && level.compareTo(Level.NO_STACK_TRACE) >= 0;
+    }
+
+    public static boolean suppressesInlineParams() {
+        return isEnabled() && level.compareTo(Level.NO_INLINE_PARAMS) >= 0;
+    }
+
+    public static boolean isSampling() {
+        return isEnabled() && level.compareTo(Level.SAMPLED) >= 0;
+    }
+
+    public static boolean isSlowQueryOnly() {
+        return isEnabled() && level == Level.SLOW_QUERY_ONLY;
+    }
+
+    /**
+     * Record time spent in a handler invocation.
+     *
+     * @param handlerTimeInNano total time spent in handler, including driver call
+     * @param driverCallTimeInNano time spent in driver call
+     */
+    public static void record(long handlerTimeInNano, long driverCallTimeInNano) {
+        overheadTimeInNano.addAndGet(handlerTimeInNano - driverCallTimeInNano);
+        driverTimeInNano.addAndGet(driverCallTimeInNano);
+
+        if (evaluationInterval.isDue()) {
+            evaluate();
+        }
+    }
+
+    static synchronized void evaluate() {
+        long overhead = overheadTimeInNano.getAndSet(0);
+        long driver = driverTimeInNano.getAndSet(0);
+        if (driver <= 0) {
+            return;
+        }
+        double ratio = (double) overhead / driver;
+        Level current = level;
+
+        if (ratio > ConfigurationParameters.governorBudget) {
+            calmIntervals = 0;
+            if (current != Level.SLOW_QUERY_ONLY) {
+                level = Level.values()[current.ordinal() + 1];
+                logger.warn("JDBC DS Log overhead is {}% of database time, exceeding budget of {}%. Logging detail reduced from {} to {}",
+                        new Object[] { percent(ratio), percent(ConfigurationParameters.governorBudget), current, level });
+            }
+        } else if (ratio < ConfigurationParameters.governorBudget / 2 && current != Level.FULL) {
+            if (++calmIntervals >= CALM_INTERVALS_TO_RESTORE) {
+                calmIntervals = 0;
+                level = Level.values()[current.ordinal() - 1];
+                logger.info("JDBC DS Log overhead is {}% of database time. Logging detail restored from {} to {}",
+                        new Object[] { percent(ratio), current, level });
+            }
+        } else {
+            calmIntervals = 0;
+        }
+    }
+
+    private static String percent(double ratio) {
+        return String.format("%.1f", ratio * 100);
+    }
+}
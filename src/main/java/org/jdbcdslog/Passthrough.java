@@ -0,0 +1,80 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.connectionLogger;
+import static org.jdbcdslog.Loggers.resultSetLogger;
+import static org.jdbcdslog.Loggers.slowQueryLogger;
+import static org.jdbcdslog.Loggers.statementLogger;
+
+/**
+ * Pass-through mode, enabled by <code>jdbcdslog.passthrough=true</code> globally or per {@link ConfigurationProfile},
+ * so that JDBC DS Log may stay installed at no cost while nothing is logged or recorded.  When the statement, slow
+ * query, result set and connection loggers are all disabled for INFO and no per-call feature (statistics,
+ * listeners, span exporters, running JFR recording, SQL comments, fetch size advisor or fetch sizes, column usage
+ * profiler, result size guard, SQL dictionary, black box, transaction tail or coalescing) is enabled, data source
+ * and driver proxies hand back the driver's connections unwrapped, and wrapped connections hand back their
+ * statements and other objects unwrapped.
+ * <p>
+ * The mode is decided when an object would be wrapped, and applies only to objects created afterwards: objects
+ * already wrapped keep logging and recording their state, such as parameters and batches, so that they log
+ * correctly when the mode ends.  Whether anything would be logged or recorded is re-evaluated whenever a
+ * connection is acquired through a JDBC DS Log proxy and when settings are reloaded, so that enabling a logger
+ * takes effect for objects created afterwards.  Objects handed back unwrapped stay unwrapped.
+ */
+public final class Passthrough {
+    private static volatile boolean proxyNeeded = true;
+
+    private Passthrough() {
+    }
+
+    /**
+     * @return whether objects created for connections of the global configuration are handed back unwrapped
+     */
+    public static boolean isActive() {
+        return isActive(ConfigurationParameters.current());
+    }
+
+    /**
+     * @return whether objects created for connections of the given configuration are handed back unwrapped, a
+     *         volatile read
+     */
+    public static boolean isActive(Configuration config) {
+        return config.passthrough && !proxyNeeded;
+    }
+
+    /**
+     * Re-evaluate whether anything would be logged or recorded.
+     *
+     * @return whether connections of the profile are now handed back unwrapped
+     */
+    public static boolean refresh(ConfigurationProfile profile) {
+        refresh();
+        return isActive(profile.getConfiguration());
+    }
+
+    /**
+     * Re-evaluate whether anything would be logged or recorded.
+     */
+    static void refresh() {
+        proxyNeeded = needsProxy();
+    }
+
+    private static boolean needsProxy() {
+        return statementLogger.isInfoEnabled()
+                || slowQueryLogger.isInfoEnabled()
+                || resultSetLogger.isInfoEnabled()
+                || connectionLogger.isInfoEnabled()
+                || JdbcStatistics.isEnabled()
+                || !JdbcEventListeners.isEmpty()
+                || !SpanExporters.isEmpty()
+                || JdbcFlightRecorder.isRecording()
+                || SqlCommenter.isEnabled()
+                || FetchSizeAdvisor.isEnabled()
+                || !ConfigurationParameters.current().fetchSizes.isEmpty()
+                || ColumnUsageProfiler.isEnabled()
+                || ConfigurationParameters.resultSizeGuard
+                || SqlDictionary.isEnabled()
+                || ConfigurationParameters.blackBoxSize > 0
+                || ConfigurationParameters.transactionTail
+                || StatementCoalescer.isEnabled();
+    }
+}
@@ -44,12 +44,23 @@ public class PreparedStatementLoggingHandler extends StatementLoggingHandlerTemp
 
 
     @Override
-    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args) {
-        LogUtils.appendSql(sb, sql, parameters, null);
+    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args, Configuration config) {
+        LogUtils.appendSql(sb, sql, parameters, null, config);
     }
 
     @Override
-    protected void doAddBatch(Object proxy, Method method, Object[] args) {
+    protected void encodeStatement(JsonEventEncoder encoder, Object proxy, Method method, Object[] args) {
+        LogUtils.encodeSql(encoder, sql, parameters, null);
+    }
+
+    @Override
+    protected void encodeBatchStatements(JsonEventEncoder encoder) {
+        LogUtils.encodeSql(encoder, sql, null, null);
+        encoder.batchParameters("batchParameters", batchParameters);
+    }
+
+    @Override
+    protected void doAddBatch(Object proxy, Method method, Object[] args, Configuration config) {
         if (this.batchParameters == null) {
             this.batchParameters = new ArrayList<Map<Integer,Object>>();
         }
@@ -58,8 +69,8 @@ public class PreparedStatementLoggingHandler extends StatementLoggingHandlerTemp
     }
 
     @Override
-    protected void appendBatchStatements(StringBuilder sb) {
-        LogUtils.appendBatchSqls(sb, sql, batchParameters, null);
+    protected void appendBatchStatements(StringBuilder sb, Configuration config) {
+        LogUtils.appendBatchSqls(sb, sql, batchParameters, null, config);
     }
 
     @Override
@@ -76,7 +87,7 @@ public class PreparedStatementLoggingHandler extends StatementLoggingHandlerTemp
         }
 
         if (r instanceof ResultSet) {
-            r = wrapByResultSetProxy(logMetaData, (ResultSet) r);
+            r = wrapByResultSetProxy(logMetaData, (ResultSet) r, createResultSetContext(proxy, method, args));
         }
 
 
@@ -97,8 +108,28 @@ public class PreparedStatementLoggingHandler extends StatementLoggingHandlerTemp
     }
 
     @Override
-    protected void handleException(Throwable t, Object proxy, Method method, Object[] args) throws Throwable {
-        LogUtils.handleException(t, statementLogger, LogUtils.createLogEntry(method, sql, parameters, null));
+    protected SqlFingerprint getFingerprint(Object proxy, Method method, Object[] args) {
+        return SqlFingerprint.of(sql);
+    }
+
+    @Override
+    protected String getSql(Object proxy, Method method, Object[] args) {
+        return sql;
+    }
+
+    @Override
+    protected Map<Integer, Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    protected StatementContext createStatementContext(Object proxy, Method method, Object[] args) {
+        return new StatementContext(sql, new TreeMap<Integer, Object>(parameters), null, lastExecuteStartTimeInNano, lastExecuteTimeInNano);
+    }
+
+    @Override
+    protected void handleException(Throwable t, Object proxy, Method method, Object[] args, Configuration config) throws Throwable {
+        LogUtils.handleException(t, statementLogger, LogUtils.createLogEntry(method, sql, parameters, null, config));
     }
 
 
@@ -89,15 +89,27 @@ public class ProxyUtils {
     }
 
     public static ResultSet wrapByResultSetProxy(LogMetaData logMetaData, ResultSet r) {
-        return ProxyUtils.proxyForCompatibleInterfaces(r.getClass(), ResultSet.class, new ResultSetLoggingHandler(logMetaData, r));
+        return wrapByResultSetProxy(logMetaData, r, null);
+    }
+
+    public static ResultSet wrapByResultSetProxy(LogMetaData logMetaData, ResultSet r, StatementContext statementContext) {
+        return ProxyUtils.proxyForCompatibleInterfaces(r.getClass(), ResultSet.class, new ResultSetLoggingHandler(logMetaData, r, statementContext));
     }
 
     public static XAConnection wrapByXaConnection(XAConnection con) {
-        return ProxyUtils.proxyForCompatibleInterfaces(con.getClass(), XAConnection.class, new ConnectionSourceLoggingHandler(con));
+        return wrapByXaConnection(con, ConfigurationProfile.DEFAULT);
+    }
+
+    public static XAConnection wrapByXaConnection(XAConnection con, ConfigurationProfile profile) {
+        return ProxyUtils.proxyForCompatibleInterfaces(con.getClass(), XAConnection.class, new ConnectionSourceLoggingHandler(con, profile));
     }
 
     public static PooledConnection wrapByPooledConnection(PooledConnection con) {
-        return ProxyUtils.proxyForCompatibleInterfaces(con.getClass(), PooledConnection.class, new ConnectionSourceLoggingHandler(con));
+        return wrapByPooledConnection(con, ConfigurationProfile.DEFAULT);
+    }
+
+    public static PooledConnection wrapByPooledConnection(PooledConnection con, ConfigurationProfile profile) {
+        return ProxyUtils.proxyForCompatibleInterfaces(con.getClass(), PooledConnection.class, new ConnectionSourceLoggingHandler(con, profile));
     }
 
     public static Object wrapByConnectionSourceProxy(Object r, Class<?> interf) {
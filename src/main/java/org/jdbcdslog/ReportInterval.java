@@ -0,0 +1,23 @@
+package org.jdbcdslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free gate for producing periodic reports from the calling thread, without a background thread.
+ * Among all threads calling {@link #isDue()} after the interval elapsed, only one will get true.
+ */
+public class ReportInterval {
+    private final long intervalInNano;
+    private final AtomicLong nextReportTimeInNano;
+
+    public ReportInterval(long intervalInNano) {
+        this.intervalInNano = intervalInNano;
+        this.nextReportTimeInNano = new AtomicLong(System.nanoTime() + intervalInNano);
+    }
+
+    public boolean isDue() {
+        long now = System.nanoTime();
+        long next = nextReportTimeInNano.get();
+        return now - next >= 0 && nextReportTimeInNano.compareAndSet(next, now + intervalInNano);
+    }
+}
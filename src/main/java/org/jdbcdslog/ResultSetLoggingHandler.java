@@ -6,28 +6,101 @@ import static org.jdbcdslog.ProxyUtils.wrapByResultSetProxy;
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 public class ResultSetLoggingHandler extends LoggingHandlerSupport<ResultSet> {
     private int resultCount = 0;
     private long totalFetchTime = 0;
     private LogMetaData logMetaData = null;
+    private StatementContext statementContext = null;
+    private FetchTimings fetchTimings = null;
+    private boolean fetchStatisticsRecorded = false;
+    private int observedFetchSize = -1;
+    private ResultSizeGuard resultSizeGuard = null;
+    private long rowsFetched = 0;
+    private boolean closedEventFired = false;
+    private boolean rowsRecorded = false;
+    private Object flightRecorderEvent = null;
+
+    // cached per ResultSet, lazily initialized when first needed
+    private ResultSetMetaData metaData = null;
+    private int columnCount = -1;
+    private StringBuilder rowBuffer = null;
+
+    // columns read by application, only used when column usage profiler is enabled
+    private long[] usedColumns = null;
+    private Map<String, Integer> columnIndexes = null;
+
+    // reservoir of rendered rows, only used in RESERVOIR sampling
+    private String[] reservoir = null;
+    private int[] reservoirRowNumbers = null;
+    private Random random = null;
 
     public ResultSetLoggingHandler(LogMetaData logMetaData, ResultSet target) {
+        this(logMetaData, target, null);
+    }
+
+    public ResultSetLoggingHandler(LogMetaData logMetaData, ResultSet target, StatementContext statementContext) {
         super(target);
+        this.logMetaData = logMetaData;
+        this.statementContext = statementContext;
+        if (statementContext != null && (ConfigurationParameters.logFetchTimings || FetchSizeAdvisor.isEnabled())) {
+            this.fetchTimings = new FetchTimings();
+        }
+        this.resultSizeGuard = ResultSizeGuard.create(statementContext);
+        if (statementContext != null && ColumnUsageProfiler.isEnabled()) {
+            this.usedColumns = ColumnUsageProfiler.newColumnSet(0);       // resized on first column read
+        }
+        if (JdbcFlightRecorder.isRecording()) {
+            this.flightRecorderEvent = JdbcFlightRecorder.begin(JdbcFlightRecorder.RESULT_SET);
+        }
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         Object r = null;
         long startTimeInNano = System.nanoTime();
+        boolean governed = OverheadGovernor.isEnabled();
+        long driverCallTimeInNano = 0;
+        Configuration config = configuration();
 
         Map<String, String> oldMdc = LogUtils.setMdc(logMetaData);
         try {
             try {
-                r = method.invoke(target, args);
+                long invokeStartTimeInNano = governed ? System.nanoTime() : 0;
+                try {
+                    r = method.invoke(target, args);
+                } finally {
+                    if (governed) {
+                        driverCallTimeInNano = System.nanoTime() - invokeStartTimeInNano;
+                    }
+                }
             } catch (Throwable e) {
-                LogUtils.handleException(e, resultSetLogger, LogUtils.createLogEntry(method, null, null, null));
+                LogUtils.logBlackBox(resultSetLogger, logMetaData, true);
+                if (logMetaData != null && logMetaData.getTransactionBuffer() != null) {
+                    logMetaData.getTransactionBuffer().markFailed();
+                }
+                if (!JdbcEventListeners.isEmpty()) {
+                    fireEvent(JdbcEventListeners.EventType.ERROR, method.getName(), LogUtils.unwrap(e));
+                }
+                if (statementContext == null) {
+                    LogUtils.handleException(e, resultSetLogger, LogUtils.createLogEntry(method, null, null, null, config));
+                } else {
+                    LogUtils.handleException(e,
+                                             resultSetLogger,
+                                             LogUtils.createLogEntry(method,
+                                                                     statementContext.getSql(),
+                                                                     statementContext.getParameters(),
+                                                                     statementContext.getNamedParameters(),
+                                                                     config));
+                }
+            } finally {
+                if (method.getName().equals("close")) {
+                    afterClose(method);
+                }
             }
 
             if (UNWRAP_METHOD_NAME.equals(method.getName())) {
@@ -35,54 +108,325 @@ public class ResultSetLoggingHandler extends LoggingHandlerSupport<ResultSet> {
                 if (r == target && unwrapClass.isInstance(proxy)) {
                     r = proxy;      // returning original proxy if it is enough to represent the unwrapped obj
                 } else if (unwrapClass.isInterface() && ResultSet.class.isAssignableFrom(unwrapClass)) {
-                    r = wrapByResultSetProxy(logMetaData, target);
+                    r = wrapByResultSetProxy(logMetaData, target, statementContext);
                 }
             }
 
-            if (resultSetLogger.isInfoEnabled() && method.getName().equals("next")) {
-                long elapsedTimeInNano = System.nanoTime() - startTimeInNano;
+            if (method.getName().equals("next") && (Boolean) r) {
+                ++rowsFetched;
+                if (resultSizeGuard != null) {
+                    resultSizeGuard.checkRow();
+                }
+            }
 
-                totalFetchTime += elapsedTimeInNano;
+            if (method.getName().equals("next") && (fetchTimings != null || resultSetLogger.isInfoEnabled())) {
+                long endTimeInNano = System.nanoTime();
+                long elapsedTimeInNano = endTimeInNano - startTimeInNano;
+                boolean hasRow = (Boolean) r;
 
-                if ((Boolean) r ) {     // next() returns true
-                    ++resultCount;
-                    if (resultSetLogger.isDebugEnabled()) {
+                if (fetchTimings != null) {
+                    if (observedFetchSize < 0) {
+                        observedFetchSize = target.getFetchSize();
+                    }
+                    fetchTimings.recordNext(elapsedTimeInNano,
+                                            hasRow,
+                                            endTimeInNano - statementContext.getExecuteStartTimeInNano());
+                }
 
-                        ResultSetMetaData md = target.getMetaData();
-                        StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+                if (resultSetLogger.isInfoEnabled()) {
+                    totalFetchTime += elapsedTimeInNano;
 
-                        sb.append(" {");
-                        for (int i = 1; i <= md.getColumnCount(); i++) {
-                            if ( i > 1) {
-                                sb.append(", ");
-                            }
-                            sb.append(ConfigurationParameters.rdbmsSpecifics.formatParameter(target.getObject(i)));
+                    if (hasRow) {
+                        ++resultCount;
+                        if (resultSetLogger.isDebugEnabled() && !OverheadGovernor.suppressesRowLogging()) {
+                            logRow(method, elapsedTimeInNano, config);
                         }
-                        sb.append("} Row Number: ").append(resultCount);
-
-                        LogUtils.appendStackTrace(sb);
-                        LogUtils.appendElapsedTime(sb, elapsedTimeInNano);
 
-                        resultSetLogger.debug(sb.toString());
-                    }
+                    } else {
+                        logReservoir();
 
-                } else {
+                        if (config.jsonOutput) {
+                            JsonEventEncoder encoder = JsonEventEncoder.begin("resultSet");
+                            if (statementContext != null) {
+                                LogUtils.encodeSql(encoder, statementContext.getSql(), statementContext.getParameters(), statementContext.getNamedParameters());
+                            }
+                            encoder.field("rows", resultCount).field("fetchNanos", totalFetchTime);
+                            resultSetLogger.info(LogUtils.encodeStackTrace(encoder, config).end());
+                        } else {
+                            StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ")
+                                                    .append(" Total Results: ").append(resultCount)
+                                                    .append(".  Total Fetch Time: ").append(String.format("%.9f", totalFetchTime/1000000000.0)).append(" s.");
+                            LogUtils.appendStackTrace(sb, config);
+                            LogUtils.appendElapsedTime(sb, elapsedTimeInNano, config);
 
-                    StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ")
-                                            .append(" Total Results: ").append(resultCount)
-                                            .append(".  Total Fetch Time: ").append(String.format("%.9f", totalFetchTime/1000000000.0)).append(" s.");
-                    totalFetchTime = 0;
-                    LogUtils.appendStackTrace(sb);
-                    LogUtils.appendElapsedTime(sb, elapsedTimeInNano);
+                            resultSetLogger.info(sb.toString());
+                        }
+                        totalFetchTime = 0;
+                    }
+                }
 
-                    resultSetLogger.info(sb.toString());
+                if (!hasRow) {
+                    recordFetchStatistics();
+                    recordColumnUsage();
                 }
 
+            } else if (usedColumns != null && args != null && args.length > 0 && method.getName().startsWith("get")) {
+                markColumnUsed(args[0]);
             }
         } finally {
             LogUtils.resetMdc(oldMdc);
+            if (governed) {
+                OverheadGovernor.record(System.nanoTime() - startTimeInNano, driverCallTimeInNano);
+            }
         }
         return r;
     }
 
+    /**
+     * Log current row if it is chosen by the configured row sampling.
+     */
+    protected void logRow(Method method, long elapsedTimeInNano, Configuration config) throws SQLException {
+        int sampleSize = ConfigurationParameters.resultSetRowSampleSize;
+        int reservoirSlot = -1;
+
+        switch (ConfigurationParameters.resultSetRowSampling) {
+            case FIRST:
+                if (resultCount > sampleSize) {
+                    return;
+                }
+                break;
+            case EVERY:
+                if ((resultCount - 1) % sampleSize != 0) {
+                    return;
+                }
+                break;
+            case RESERVOIR:
+                if (reservoir == null) {
+                    reservoir = new String[sampleSize];
+                    reservoirRowNumbers = new int[sampleSize];
+                    random = new Random();
+                }
+                if (resultCount <= reservoir.length) {
+                    reservoirSlot = resultCount - 1;
+                } else {
+                    reservoirSlot = random.nextInt(resultCount);
+                    if (reservoirSlot >= reservoir.length) {
+                        return;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+
+        CharSequence row = config.jsonOutput ? encodeRow(elapsedTimeInNano, config) : renderRow(method, elapsedTimeInNano, config);
+        if (reservoirSlot >= 0) {
+            reservoir[reservoirSlot] = row.toString();
+            reservoirRowNumbers[reservoirSlot] = resultCount;
+        } else {
+            resultSetLogger.debug(row.toString());
+        }
+    }
+
+    /**
+     * Encode current row as a JSON event.
+     */
+    protected String encodeRow(long elapsedTimeInNano, Configuration config) throws SQLException {
+        initMetaData();
+        JsonEventEncoder encoder = JsonEventEncoder.begin("row");
+        encoder.field("rowNumber", resultCount).field("fetchNanos", elapsedTimeInNano);
+        encoder.beginArray("values");
+        for (int i = 1; i <= columnCount; i++) {
+            encoder.element(target.getObject(i));
+        }
+        encoder.endArray();
+        return LogUtils.encodeStackTrace(encoder, config).end();
+    }
+
+    /**
+     * Render current row into the reused row buffer.
+     */
+    protected StringBuilder renderRow(Method method, long elapsedTimeInNano, Configuration config) throws SQLException {
+        initMetaData();
+        if (rowBuffer == null) {
+            rowBuffer = new StringBuilder();
+        }
+
+        StringBuilder sb = rowBuffer;
+        sb.setLength(0);
+        sb.append(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+
+        sb.append(" {");
+        for (int i = 1; i <= columnCount; i++) {
+            if ( i > 1) {
+                sb.append(", ");
+            }
+            sb.append(ConfigurationParameters.rdbmsSpecifics.formatParameter(target.getObject(i)));
+        }
+        sb.append("} Row Number: ").append(resultCount);
+
+        LogUtils.appendStackTrace(sb, config);
+        LogUtils.appendElapsedTime(sb, elapsedTimeInNano, config);
+        return sb;
+    }
+
+    /**
+     * Configuration of the connection of this result set.
+     */
+    private Configuration configuration() {
+        return logMetaData == null ? ConfigurationParameters.current() : logMetaData.getConfiguration();
+    }
+
+    private void initMetaData() throws SQLException {
+        if (metaData == null) {
+            metaData = target.getMetaData();
+            columnCount = metaData.getColumnCount();
+        }
+    }
+
+    /**
+     * Logging and recording to be done once the ResultSet is closed.  Problems are logged, so that they never
+     * prevent or replace closing by the driver.
+     */
+    protected void afterClose(Method method) {
+        try {
+            recordClose(method);
+        } catch (Exception e) {
+            resultSetLogger.warn("Problem recording close of ResultSet", e);
+        }
+    }
+
+    private void recordClose(Method method) throws SQLException {
+        logReservoir();
+        recordFetchStatistics();
+        logFetchTimings(method);
+        if (!closedEventFired && !JdbcEventListeners.isEmpty()) {
+            closedEventFired = true;
+            fireEvent(JdbcEventListeners.EventType.RESULT_SET_CLOSED, method.getName(), null);
+        }
+        if (!rowsRecorded && JdbcStatistics.isEnabled()) {
+            rowsRecorded = true;
+            JdbcStatistics.recordFetchedRows(rowsFetched);
+        }
+        if (flightRecorderEvent != null) {
+            if (JdbcFlightRecorder.end(flightRecorderEvent)) {
+                String sql = (statementContext == null) ? null : statementContext.getSql();
+                JdbcFlightRecorder.commit(flightRecorderEvent, logMetaData == null ? null : logMetaData.getConnectionId(),
+                                          sql, JdbcFlightRecorder.fingerprintOf(sql), rowsFetched);
+            }
+            flightRecorderEvent = null;
+        }
+        recordColumnUsage();        // last, as it may need meta data from the closed ResultSet
+    }
+
+    private void fireEvent(JdbcEventListeners.EventType type, String methodName, Throwable t) {
+        JdbcEvent event = JdbcEvent.acquire(logMetaData, methodName).rowCount(rowsFetched).throwable(t);
+        if (statementContext != null) {
+            event.statement(statementContext.getSql(), statementContext.getParameters(), statementContext.getNamedParameters())
+                 .elapsedTime(System.nanoTime() - statementContext.getExecuteStartTimeInNano());
+        }
+        JdbcEventListeners.fire(type, event);
+    }
+
+    /**
+     * Mark the column, given by index or label of getter argument, as read by application.
+     */
+    protected void markColumnUsed(Object column) throws SQLException {
+        Integer index = null;
+        if (column instanceof Integer) {
+            index = (Integer) column;
+        } else if (column instanceof String) {
+            if (columnIndexes == null) {
+                columnIndexes = new HashMap<String, Integer>();
+            }
+            index = columnIndexes.get(column);
+            if (index == null) {
+                index = target.findColumn((String) column);
+                columnIndexes.put((String) column, index);
+            }
+        } else {
+            return;
+        }
+        if (usedColumns.length == 0) {
+            initMetaData();
+            usedColumns = ColumnUsageProfiler.newColumnSet(columnCount);
+        }
+        ColumnUsageProfiler.markColumn(usedColumns, index);
+    }
+
+    /**
+     * Feed columns read to column usage profiler, once the ResultSet is exhausted or closed.
+     */
+    protected void recordColumnUsage() throws SQLException {
+        if (usedColumns == null) {
+            return;
+        }
+        initMetaData();
+        ColumnUsageProfiler.record(statementContext.getFingerprint(), metaData, usedColumns);
+        usedColumns = null;
+    }
+
+    /**
+     * Feed fetch statistics of this ResultSet to fetch size advisor, once the ResultSet is exhausted or closed.
+     */
+    protected void recordFetchStatistics() {
+        if (fetchTimings == null || fetchStatisticsRecorded || !FetchSizeAdvisor.isEnabled()) {
+            return;
+        }
+        fetchStatisticsRecorded = true;
+        FetchSizeAdvisor.record(statementContext.getFingerprint(), Math.max(observedFetchSize, 0), fetchTimings);
+    }
+
+    /**
+     * Log the timing phases of the originating statement execution and the fetching of this ResultSet.
+     */
+    protected void logFetchTimings(Method method) {
+        if (fetchTimings == null || !ConfigurationParameters.logFetchTimings || !resultSetLogger.isInfoEnabled()) {
+            return;
+        }
+        Configuration config = configuration();
+        StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+        LogUtils.appendSql(sb, statementContext.getSql(), statementContext.getParameters(), statementContext.getNamedParameters(), config);
+        sb.append(" Execute Time: ").append(String.format("%.9f", statementContext.getExecuteTimeInNano()/1000000000.0)).append(" s.")
+          .append("  Time To First Row: ");
+        if (fetchTimings.getTimeToFirstRowInNano() < 0) {
+            sb.append("N/A.");
+        } else {
+            sb.append(String.format("%.9f", fetchTimings.getTimeToFirstRowInNano()/1000000000.0)).append(" s.");
+        }
+        sb.append("  Total Fetch Time: ").append(String.format("%.9f", fetchTimings.getTotalFetchTimeInNano()/1000000000.0)).append(" s.")
+          .append("  Rows: ").append(fetchTimings.getRowCount())
+          .append(".  Slow Fetches: ").append(fetchTimings.getStallCount())
+          .append(" of ").append(fetchTimings.getNextCount())
+          .append(" (median next() <= ").append(fetchTimings.getMedianNextTimeInNano()).append(" ns).");
+        LogUtils.appendStackTrace(sb, config);
+
+        resultSetLogger.info(sb.toString());
+        fetchTimings = null;
+    }
+
+    /**
+     * Log and discard rows kept in reservoir, in row number order.
+     */
+    protected void logReservoir() {
+        if (reservoir == null) {
+            return;
+        }
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < reservoir.length; ++i) {
+                if (reservoir[i] != null && (next < 0 || reservoirRowNumbers[i] < reservoirRowNumbers[next])) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            resultSetLogger.debug(reservoir[next]);
+            reservoir[next] = null;
+        }
+        reservoir = null;
+        reservoirRowNumbers = null;
+    }
+
 }
@@ -0,0 +1,16 @@
+package org.jdbcdslog;
+
+/**
+ * Strategies for choosing which rows of a ResultSet are logged in debug level.
+ * The sample size is controlled by <code>jdbcdslog.resultSetRowSampleSize</code>.
+ */
+public enum ResultSetRowSampling {
+    /** Log every row (original behavior) */
+    ALL,
+    /** Log only the first N rows */
+    FIRST,
+    /** Log every Nth row */
+    EVERY,
+    /** Keep a uniform random sample of N rows, which is logged when the ResultSet is exhausted or closed */
+    RESERVOIR
+}
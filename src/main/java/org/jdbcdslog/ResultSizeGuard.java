@@ -0,0 +1,88 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.resultSetLogger;
+
+import java.sql.SQLException;
+
+/**
+ * Guard against runaway queries returning far more rows than expected.  When rows fetched from a ResultSet
+ * reach the warning threshold, the statement, its parameters and the call site are logged.  When rows
+ * fetched exceed the row limit, an error is logged and, if enforced, an SQLException is thrown from
+ * ResultSet#next() so that the application fails fast instead of filling up the heap.
+ *
+ * Global limits are set by <code>jdbcdslog.resultSetRowWarnThreshold</code> and
+ * <code>jdbcdslog.resultSetRowLimit</code>, which can be overridden per statement fingerprint by
+ * <code>jdbcdslog.resultSetRowWarnThreshold.&lt;fingerprint id&gt;</code> and
+ * <code>jdbcdslog.resultSetRowLimit.&lt;fingerprint id&gt;</code>.  0 means no limit.
+ */
+public class ResultSizeGuard {
+    private final StatementContext statementContext;
+    private final long warnThreshold;
+    private final long rowLimit;
+    private long rowCount = 0;
+
+    private ResultSizeGuard(StatementContext statementContext, long warnThreshold, long rowLimit) {
+        this.statementContext = statementContext;
+        this.warnThreshold = warnThreshold;
+        this.rowLimit = rowLimit;
+    }
+
+    /**
+     * Create guard for ResultSet created by the statement, or null if no limit applies to it.
+     */
+    public static ResultSizeGuard create(StatementContext statementContext) {
+        if (statementContext == null || !ConfigurationParameters.resultSizeGuard) {
+            return null;
+        }
+        long warnThreshold = ConfigurationParameters.resultSetRowWarnThreshold;
+        long rowLimit = ConfigurationParameters.resultSetRowLimit;
+
+        if (!ConfigurationParameters.resultSetRowWarnThresholds.isEmpty() || !ConfigurationParameters.resultSetRowLimits.isEmpty()) {
+            SqlFingerprint fingerprint = statementContext.getFingerprint();
+            if (fingerprint != null) {
+                Long value = ConfigurationParameters.resultSetRowWarnThresholds.get(fingerprint.getId());
+                if (value != null) {
+                    warnThreshold = value;
+                }
+                value = ConfigurationParameters.resultSetRowLimits.get(fingerprint.getId());
+                if (value != null) {
+                    rowLimit = value;
+                }
+            }
+        }
+
+        if (warnThreshold <= 0 && rowLimit <= 0) {
+            return null;
+        }
+        return new ResultSizeGuard(statementContext, warnThreshold, rowLimit);
+    }
+
+    /**
+     * To be called for each row fetched.
+     *
+     * @throws SQLException if row limit is exceeded and enforced
+     */
+    public void checkRow() throws SQLException {
+        ++rowCount;
+        if (rowCount == warnThreshold) {
+            if (resultSetLogger.isWarnEnabled()) {
+                resultSetLogger.warn(createMessage("ResultSet reached warning threshold of " + warnThreshold + " rows: ").toString());
+            }
+        }
+        if (rowLimit > 0 && rowCount > rowLimit) {
+            if (rowCount == rowLimit + 1) {
+                resultSetLogger.error(createMessage("ResultSet exceeded row limit of " + rowLimit + " rows: ").toString());
+            }
+            if (ConfigurationParameters.resultSetRowLimitEnforced) {
+                throw new SQLException("ResultSet exceeded row limit of " + rowLimit + " rows set by jdbcdslog");
+            }
+        }
+    }
+
+    private StringBuilder createMessage(String reason) {
+        StringBuilder sb = new StringBuilder(reason);
+        LogUtils.appendSql(sb, statementContext.getSql(), statementContext.getParameters(), statementContext.getNamedParameters());
+        LogUtils.appendCallSite(sb);
+        return sb;
+    }
+}
@@ -0,0 +1,143 @@
+package org.jdbcdslog;
+
+/**
+ * A traced JDBC call, i.e. a statement execution, batch execution, commit or rollback.  Attributes are plain
+ * fields, so that a span costs a single allocation.  A span is a child of the {@link SpanContext} attached to
+ * the calling thread, or the root of a new trace if there is none.
+ */
+public final class Span {
+    // epoch time of System.nanoTime() zero, for nanosecond start times
+    private static final long EPOCH_OFFSET_IN_NANO = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+    private final long parentSpanId;
+    private final String name;
+    private final String connectionId;
+    private final long startTimeInNano;
+    private long durationInNano = -1;
+    private SqlFingerprint fingerprint;
+    private long rowCount = -1;
+    private int batchSize = -1;
+    private String error;
+
+    Span(SpanContext parent, long spanId, long traceIdHigh, long traceIdLow, String name, String connectionId) {
+        if (parent != null) {
+            this.traceIdHigh = parent.getTraceIdHigh();
+            this.traceIdLow = parent.getTraceIdLow();
+            this.parentSpanId = parent.getSpanIdValue();
+        } else {
+            this.traceIdHigh = traceIdHigh;
+            this.traceIdLow = traceIdLow;
+            this.parentSpanId = 0;
+        }
+        this.spanId = spanId;
+        this.name = name;
+        this.connectionId = connectionId;
+        this.startTimeInNano = System.nanoTime();
+    }
+
+    void finish(SqlFingerprint fingerprint, long rowCount, int batchSize, Throwable t) {
+        this.durationInNano = System.nanoTime() - startTimeInNano;
+        this.fingerprint = fingerprint;
+        this.rowCount = rowCount;
+        this.batchSize = batchSize;
+        this.error = (t == null) ? null : t.toString();
+    }
+
+    /**
+     * @return context of this span, for attaching as parent of other spans
+     */
+    public SpanContext getContext() {
+        return new SpanContext(traceIdHigh, traceIdLow, spanId);
+    }
+
+    public String getTraceId() {
+        return SpanContext.toHex(traceIdHigh) + SpanContext.toHex(traceIdLow);
+    }
+
+    public String getSpanId() {
+        return SpanContext.toHex(spanId);
+    }
+
+    /**
+     * @return id of parent span, or null if this is a root span
+     */
+    public String getParentSpanId() {
+        return parentSpanId == 0 ? null : SpanContext.toHex(parentSpanId);
+    }
+
+    /**
+     * @return JDBC method name, e.g. executeQuery or commit
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+    /**
+     * @return epoch time of span start in nano seconds
+     */
+    public long getStartTimeEpochNanos() {
+        return EPOCH_OFFSET_IN_NANO + startTimeInNano;
+    }
+
+    public long getDurationInNano() {
+        return durationInNano;
+    }
+
+    /**
+     * @return fingerprint of the executed SQL, or null if unknown or not a statement
+     */
+    public SqlFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return rows updated, or -1 if unknown
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return number of statements in batch, or -1 if not a batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the error, or null if the call succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Span ").append(name)
+                .append(" trace=").append(getTraceId())
+                .append(" span=").append(getSpanId())
+                .append(" parent=").append(getParentSpanId())
+                .append(" connection=").append(connectionId)
+                .append(" duration=").append(durationInNano).append("ns");
+        if (fingerprint != null) {
+            sb.append(" fingerprint=").append(fingerprint.getId());
+        }
+        if (rowCount >= 0) {
+            sb.append(" rows=").append(rowCount);
+        }
+        if (batchSize >= 0) {
+            sb.append(" batchSize=").append(batchSize);
+        }
+        if (error != null) {
+            sb.append(" error=").append(error);
+        }
+        return sb.toString();
+    }
+}
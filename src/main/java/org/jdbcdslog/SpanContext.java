@@ -0,0 +1,120 @@
+package org.jdbcdslog;
+
+/**
+ * Trace context of the current thread, taken as parent of spans of JDBC calls made by the thread.  Applications
+ * attach the context of their own trace, e.g. from an incoming <code>traceparent</code> header, around the
+ * work which uses JDBC:
+ *
+ * <pre>
+ * SpanContext previous = SpanContext.attach(SpanContext.fromTraceParent(request.getHeader("traceparent")));
+ * try {
+ *     ...
+ * } finally {
+ *     SpanContext.detach(previous);
+ * }
+ * </pre>
+ */
+public final class SpanContext {
+    private static final ThreadLocal<SpanContext> current = new ThreadLocal<SpanContext>();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+
+    public SpanContext(long traceIdHigh, long traceIdLow, long spanId) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+    }
+
+    /**
+     * @return context attached to current thread, or null if there is none
+     */
+    public static SpanContext current() {
+        return current.get();
+    }
+
+    /**
+     * Attach a context to current thread.
+     *
+     * @return the previously attached context, to be restored by {@link #detach}
+     */
+    public static SpanContext attach(SpanContext context) {
+        SpanContext previous = current.get();
+        current.set(context);
+        return previous;
+    }
+
+    /**
+     * Restore the context attached before {@link #attach}.
+     */
+    public static void detach(SpanContext previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Parse a W3C trace context <code>traceparent</code> value, e.g.
+     * <code>00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01</code>.
+     *
+     * @return the context, or null if the value is null or malformed
+     */
+    public static SpanContext fromTraceParent(String traceParent) {
+        if (traceParent == null || traceParent.length() < 55 || traceParent.charAt(2) != '-'
+                || traceParent.charAt(35) != '-' || traceParent.charAt(52) != '-') {
+            return null;
+        }
+        try {
+            return new SpanContext(parseHex(traceParent, 3), parseHex(traceParent, 19), parseHex(traceParent, 36));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long parseHex(String s, int start) {
+        return (Long.parseLong(s.substring(start, start + 8), 16) << 32) | Long.parseLong(s.substring(start + 8, start + 16), 16);
+    }
+
+    public String toTraceParent() {
+        return "00-" + getTraceId() + "-" + getSpanId() + "-01";
+    }
+
+    public long getTraceIdHigh() {
+        return traceIdHigh;
+    }
+
+    public long getTraceIdLow() {
+        return traceIdLow;
+    }
+
+    public long getSpanIdValue() {
+        return spanId;
+    }
+
+    /**
+     * @return trace id in 32 hex digits
+     */
+    public String getTraceId() {
+        return toHex(traceIdHigh) + toHex(traceIdLow);
+    }
+
+    /**
+     * @return span id in 16 hex digits
+     */
+    public String getSpanId() {
+        return toHex(spanId);
+    }
+
+    static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    @Override
+    public String toString() {
+        return toTraceParent();
+    }
+}
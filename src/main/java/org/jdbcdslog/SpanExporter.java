@@ -0,0 +1,10 @@
+package org.jdbcdslog;
+
+/**
+ * Receives finished spans of JDBC calls.  Register exporters by <code>jdbcdslog.tracing.exporters</code> or
+ * {@link SpanExporters#register}.  Spans are exported by the thread making the JDBC call, so exporters
+ * should hand them off quickly.
+ */
+public interface SpanExporter {
+    void export(Span span);
+}
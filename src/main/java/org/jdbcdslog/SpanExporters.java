@@ -0,0 +1,101 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of {@link SpanExporter}s.  Exporters configured by <code>jdbcdslog.tracing.exporters</code> are
+ * registered when this class is loaded; besides class names, <code>memory</code> and <code>file</code> name the
+ * built-in {@link InMemorySpanExporter} and {@link FileSpanExporter}.  Handlers check {@link #isEmpty()} before
+ * creating any span, so there is no cost when no exporter is registered.
+ */
+public class SpanExporters {
+    private static Logger logger = LoggerFactory.getLogger(SpanExporters.class);
+
+    private static final CopyOnWriteRegistry<SpanExporter> exporters = new CopyOnWriteRegistry<SpanExporter>(SpanExporter.class);
+
+    private static final ThreadLocal<Random> randoms = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    static {
+        for (String exporter : ConfigurationParameters.spanExporterNames) {
+            try {
+                if (exporter.equals("memory")) {
+                    register(new InMemorySpanExporter(ConfigurationParameters.spanExporterMemoryCapacity));
+                } else if (exporter.equals("file")) {
+                    register(new FileSpanExporter(new File(ConfigurationParameters.spanExporterFile)));
+                } else {
+                    exporters.register(exporter);
+                }
+            } catch (Exception e) {
+                logger.error("Unable to register span exporter " + exporter, e);
+            }
+        }
+    }
+
+    public static boolean isEmpty() {
+        return exporters.isEmpty();
+    }
+
+    public static void register(SpanExporter exporter) {
+        exporters.register(exporter);
+    }
+
+    public static void unregister(SpanExporter exporter) {
+        exporters.unregister(exporter);
+    }
+
+    /**
+     * @return exporters registered of the given type, e.g. to find the configured {@link InMemorySpanExporter}
+     */
+    public static <E extends SpanExporter> List<E> getExporters(Class<E> type) {
+        List<E> result = new ArrayList<E>();
+        for (SpanExporter exporter : exporters.get()) {
+            if (type.isInstance(exporter)) {
+                result.add(type.cast(exporter));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Start a span as child of the context attached to current thread.
+     */
+    static Span start(LogMetaData logMetaData, String name) {
+        Random random = randoms.get();
+        SpanContext parent = SpanContext.current();
+        return new Span(parent, nonZero(random), parent == null ? random.nextLong() : 0, parent == null ? nonZero(random) : 0,
+                        name, logMetaData == null ? null : logMetaData.getConnectionId());
+    }
+
+    private static long nonZero(Random random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    /**
+     * Finish the span and pass it to all exporters.
+     */
+    static void finish(Span span, SqlFingerprint fingerprint, long rowCount, int batchSize, Throwable t) {
+        span.finish(fingerprint, rowCount, batchSize, t == null ? null : LogUtils.unwrap(t));
+        for (SpanExporter exporter : exporters.get()) {
+            try {
+                exporter.export(span);
+            } catch (RuntimeException e) {
+                logger.warn("Span exporter " + exporter.getClass().getName() + " failed", e);
+            }
+        }
+    }
+}
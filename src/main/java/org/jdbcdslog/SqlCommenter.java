@@ -0,0 +1,104 @@
+package org.jdbcdslog;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Appends a correlation comment to SQL sent to the driver, e.g.
+ * <code>select * from t where id = ? /*connection='12',site='com.acme.OrderDao.find:42'*&#47;</code>, so that
+ * queries found in database statistics views can be mapped back to application code and to JDBC DS Log's own
+ * log, which shows the same SQL.  Tags are chosen by <code>jdbcdslog.sqlComment</code>, a comma separated list
+ * of <code>connectionId</code>, <code>callSite</code> and <code>traceId</code>.
+ * <p>
+ * Commented SQLs are cached per (SQL, tag), so that the same SQL from the same place gets the identical text
+ * and driver-side statement caches still hit.  Trace ids change per request, so SQLs with a trace id are
+ * built without the cache, which they would only fill; note that they defeat driver-side statement caching.
+ */
+public final class SqlCommenter {
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    // commented SQLs by tag then by SQL, so that lookup needs no composite key
+    private static final ConcurrentMap<String, ConcurrentMap<String, String>> cache = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+    private static final AtomicInteger cacheSize = new AtomicInteger();
+
+    private SqlCommenter() {
+    }
+
+    public static boolean isEnabled() {
+        return ConfigurationParameters.sqlCommentConnectionId || ConfigurationParameters.sqlCommentCallSite
+                || ConfigurationParameters.sqlCommentTraceId;
+    }
+
+    /**
+     * @return the SQL with correlation comment of the current call
+     */
+    public static String comment(LogMetaData logMetaData, String sql) {
+        if (sql == null) {
+            return null;
+        }
+        StringBuilder stable = stableTag(logMetaData);
+        if (ConfigurationParameters.sqlCommentTraceId && SpanContext.current() != null) {
+            appendTag(stable, "traceparent", SpanContext.current().toTraceParent());
+            return new StringBuilder(sql.length() + stable.length() + 5).append(sql).append(" /*").append(stable).append("*/").toString();
+        }
+        if (stable.length() == 0) {
+            return sql;
+        }
+        String tag = stable.toString();
+        ConcurrentMap<String, String> sqls = cache.get(tag);
+        if (sqls == null) {
+            ConcurrentMap<String, String> newSqls = new ConcurrentHashMap<String, String>();
+            sqls = cache.putIfAbsent(tag, newSqls);
+            if (sqls == null) {
+                sqls = newSqls;
+            }
+        }
+        String commented = sqls.get(sql);
+        if (commented == null) {
+            if (cacheSize.incrementAndGet() > MAX_CACHE_SIZE) {
+                cache.clear();
+                cacheSize.set(1);
+            }
+            commented = sql + " /*" + tag + "*/";
+            sqls.put(sql, commented);
+        }
+        return commented;
+    }
+
+    /**
+     * Tags which are the same for every execution from the same connection and place, i.e. all but the trace id.
+     */
+    static StringBuilder stableTag(LogMetaData logMetaData) {
+        StringBuilder sb = new StringBuilder();
+        if (ConfigurationParameters.sqlCommentConnectionId && logMetaData != null) {
+            appendTag(sb, "connection", logMetaData.getConnectionId());
+        }
+        if (ConfigurationParameters.sqlCommentCallSite) {
+            StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+            int index = LogUtils.firstNonJdbcDsLogStackIndex(stackTraces);
+            if (index < stackTraces.length) {
+                StackTraceElement callSite = stackTraces[index];
+                appendTag(sb, "site", callSite.getClassName() + "." + callSite.getMethodName() + ":" + callSite.getLineNumber());
+            }
+        }
+        return sb;
+    }
+
+    private static void appendTag(StringBuilder sb, String key, String value) {
+        if (sb.length() > 0) {
+            sb.append(',');
+        }
+        sb.append(key).append("='");
+        // value must not end the comment or the quoted value
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '\'' || (c == '*' && i + 1 < value.length() && value.charAt(i + 1) == '/')) {
+                sb.append('_');
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('\'');
+    }
+}
@@ -0,0 +1,135 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.sqlDictionaryLogger;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded dictionary of SQL texts, so that a SQL text is logged in full only once, as a dictionary
+ * entry <code>sqlid=N text=...</code> by <code>org.jdbcdslog.SqlDictionaryLogger</code>, and later log
+ * entries only refer to it by <code>sqlid=N</code>.  Least recently used texts are evicted when the
+ * dictionary is full, and ids are never reused: an evicted text gets a new id and a new entry when it
+ * is logged again.  Logs can be expanded back by {@link SqlDictionaryExpander}.
+ * <p>
+ * Texts already in the dictionary are looked up without locking.  Recency is approximated by a
+ * second chance queue: a text used since it was last considered for eviction is kept once more.
+ */
+public class SqlDictionary {
+    private static final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /** texts in insertion order, guarded by itself */
+    private static final Queue<String> evictionQueue = new LinkedList<String>();
+
+    private static final AtomicInteger lastId = new AtomicInteger();
+
+    private static class Entry {
+        final int id;
+        volatile boolean used = false;
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Dictionary is only used when entries are actually logged, otherwise the logs could not be expanded.
+     */
+    public static boolean isEnabled() {
+        return ConfigurationParameters.sqlDictionary && sqlDictionaryLogger.isInfoEnabled();
+    }
+
+    /**
+     * Get id of SQL text, logging a dictionary entry if the text is not in dictionary.
+     *
+     * @return id of the SQL text
+     */
+    public static int idOf(String sql) {
+        Entry existing = entries.get(sql);
+        if (existing != null) {
+            if (!existing.used) {
+                existing.used = true;
+            }
+            return existing.id;
+        }
+
+        int id = lastId.incrementAndGet();
+        // logged before the text is added, so that the entry is logged before any reference to it.
+        // Threads racing on a new text may each log an entry of their own id, which expands the same.
+        sqlDictionaryLogger.info(new StringBuilder("sqlid=").append(id).append(" text=").append(escape(sql)).toString());
+        synchronized (evictionQueue) {
+            if (entries.putIfAbsent(sql, new Entry(id)) == null) {
+                evictionQueue.add(sql);
+                evict();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Evict texts until the dictionary fits, giving a second chance to texts used since they were added
+     * or last considered.  Caller holds the lock of the queue.
+     */
+    private static void evict() {
+        while (evictionQueue.size() > ConfigurationParameters.sqlDictionaryMaxEntries) {
+            String sql = evictionQueue.remove();
+            Entry entry = entries.get(sql);
+            if (entry.used) {
+                entry.used = false;
+                evictionQueue.add(sql);
+            } else {
+                entries.remove(sql);
+            }
+        }
+    }
+
+    static void clear() {
+        synchronized (evictionQueue) {
+            entries.clear();
+            evictionQueue.clear();
+        }
+    }
+
+    /**
+     * Escape line breaks, so that each dictionary entry stays in one line.
+     */
+    static String escape(String sql) {
+        if (sql.indexOf('\n') < 0 && sql.indexOf('\r') < 0 && sql.indexOf('\\') < 0) {
+            return sql;
+        }
+        StringBuilder sb = new StringBuilder(sql.length() + 16);
+        for (int i = 0; i < sql.length(); ++i) {
+            char c = sql.charAt(i);
+            if (c == '\n') {
+                sb.append("\\n");
+            } else if (c == '\r') {
+                sb.append("\\r");
+            } else if (c == '\\') {
+                sb.append("\\\\");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char n = text.charAt(++i);
+                sb.append(n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package org.jdbcdslog;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline tool to expand <code>sqlid=N</code> references in logs written with SQL dictionary back
+ * to full SQL text.  Log files are read in the given order (standard input if none is given), and
+ * expanded logs are written to standard output without the dictionary entries.  Dictionary entries
+ * must precede their references, which is always the case when dictionary and statement logs are
+ * written to the same file.  Entries are recognized at the start of the logger message only, and only
+ * the reference following the method name is expanded, so that texts in parameter values are kept.
+ *
+ * <pre>
+ * java -cp jdbcdslogexp2.jar org.jdbcdslog.SqlDictionaryExpander jdbc.log.1 jdbc.log
+ * </pre>
+ */
+public class SqlDictionaryExpander {
+    private static final Pattern ENTRY_PATTERN = Pattern.compile("sqlid=(\\d+) text=(.*)$");
+
+    /** reference where the statement log writes it, after "method: " and before parameters or timing */
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile(": sqlid=(\\d+)(?=\\s|$)");
+
+    private final Map<String, String> texts = new HashMap<String, String>();
+
+    public static void main(String[] args) throws IOException {
+        SqlDictionaryExpander expander = new SqlDictionaryExpander();
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"));
+        if (args.length == 0) {
+            expander.expand(new InputStreamReader(System.in, "UTF-8"), out);
+        }
+        for (String file : args) {
+            Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            try {
+                expander.expand(in, out);
+            } finally {
+                in.close();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Expand log lines from reader to writer.  Dictionary entries are remembered across calls, and a
+     * later entry of the same id, e.g. after application restart, replaces the former one.
+     */
+    public void expand(Reader reader, Writer writer) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            int first = line.indexOf("sqlid=");
+            if (first < 0) {
+                writer.write(line);
+                writer.write('\n');
+                continue;
+            }
+            // entry at the start of the logger message, i.e. at line start or after the layout's whitespace
+            Matcher entry = ENTRY_PATTERN.matcher(line).region(first, line.length());
+            if ((first == 0 || Character.isWhitespace(line.charAt(first - 1))) && entry.lookingAt()) {
+                texts.put(entry.group(1), SqlDictionary.unescape(entry.group(2)));
+                continue;
+            }
+
+            // only the first reference is expanded, later ones are in parameter values
+            Matcher reference = REFERENCE_PATTERN.matcher(line);
+            String text = null;
+            if (reference.find() && reference.start() + 2 == first) {
+                text = texts.get(reference.group(1));
+            }
+            if (text == null) {
+                writer.write(line);
+            } else {
+                writer.write(line, 0, reference.start() + 2);
+                writer.write(text);
+                writer.write(line, reference.end(), line.length() - reference.end());
+            }
+            writer.write('\n');
+        }
+    }
+}
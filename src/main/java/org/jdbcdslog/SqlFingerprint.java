@@ -0,0 +1,163 @@
+package org.jdbcdslog;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shape of a SQL statement, with literals replaced by <code>?</code>, comments removed, whitespaces
+ * collapsed and IN-lists folded, so that executions of the same statement with different literals or
+ * parameters share the same fingerprint.  Each fingerprint has a hex id, a 64-bit FNV-1a hash of the normalized
+ * SQL, which can be used to refer to it in configuration, for example <code>jdbcdslog.fetchSize.&lt;id&gt;</code>.
+ */
+public final class SqlFingerprint {
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    private static final ConcurrentMap<String, SqlFingerprint> cache = new ConcurrentHashMap<String, SqlFingerprint>();
+
+    private final String id;
+    private final String normalizedSql;
+
+    private SqlFingerprint(String normalizedSql) {
+        this.normalizedSql = normalizedSql;
+        String hex = Long.toHexString(hash(normalizedSql));
+        this.id = "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * Get fingerprint of SQL.  Fingerprints of recently used SQLs are cached.
+     *
+     * @param sql
+     * @return fingerprint of the SQL, or null if sql is null
+     */
+    public static SqlFingerprint of(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        SqlFingerprint fingerprint = cache.get(sql);
+        if (fingerprint == null) {
+            fingerprint = new SqlFingerprint(normalize(sql));
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                Iterator<String> evicted = cache.keySet().iterator();
+                if (evicted.hasNext()) {
+                    cache.remove(evicted.next());
+                }
+            }
+            cache.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the chars of the string.
+     */
+    static long hash(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNormalizedSql() {
+        return normalizedSql;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+
+    static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {                                    // string literal, '' is escaped quote
+                ++i;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    ++i;
+                }
+                ++i;
+                appendPlaceholder(sb);
+            } else if (c == '"') {                              // quoted identifier, kept as is
+                int end = sql.indexOf('"', i + 1);
+                end = (end < 0) ? length : end + 1;
+                sb.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = (end < 0) ? length : end + 2;
+                appendSpace(sb);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i + 2);
+                i = (end < 0) ? length : end + 1;
+                appendSpace(sb);
+            } else if (Character.isWhitespace(c)) {
+                ++i;
+                appendSpace(sb);
+            } else if (c == '?') {
+                ++i;
+                appendPlaceholder(sb);
+            } else if (Character.isDigit(c) && !isIdentifierPart(sb)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    ++i;
+                }
+                appendPlaceholder(sb);
+            } else {
+                sb.append(Character.toLowerCase(c));
+                ++i;
+            }
+        }
+        int end = sb.length();
+        while (end > 0 && (sb.charAt(end - 1) == ' ' || sb.charAt(end - 1) == ';')) {
+            --end;
+        }
+        sb.setLength(end);
+        return sb.toString();
+    }
+
+    /**
+     * Append a placeholder, folding "?, ?, ?" lists into a single "?".
+     */
+    private static void appendPlaceholder(StringBuilder sb) {
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') {
+            --end;
+        }
+        if (end > 1 && sb.charAt(end - 1) == ',' && sb.charAt(end - 2) == '?') {
+            sb.setLength(end - 1);
+        } else if (end > 2 && sb.charAt(end - 1) == ',' && sb.charAt(end - 2) == ' ' && sb.charAt(end - 3) == '?') {
+            sb.setLength(end - 2);
+        } else {
+            sb.append('?');
+        }
+    }
+
+    private static void appendSpace(StringBuilder sb) {
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+            sb.append(' ');
+        }
+    }
+
+    private static boolean isIdentifierPart(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char last = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '#';
+    }
+}
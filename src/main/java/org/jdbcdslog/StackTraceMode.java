@@ -0,0 +1,120 @@
+package org.jdbcdslog;
+
+/**
+ * How the caller of JDBC is written to log messages, resolved once per {@link Configuration}.
+ * <p>
+ * Each mode is a class of its own, so a call site through which only {@link #NONE} passed is compiled
+ * to a class check followed by nothing.  When a configuration with another mode is published, the
+ * check fails and the JIT deoptimizes and recompiles the call site, as a SwitchPoint does on Java 7.
+ */
+enum StackTraceMode {
+    NONE {
+        @Override
+        StringBuilder append(StringBuilder sb, Configuration config) {
+            return sb;
+        }
+
+        @Override
+        JsonEventEncoder encode(JsonEventEncoder encoder, Configuration config) {
+            return encoder;
+        }
+    },
+
+    /** the first frame outside of JDBC DS Log */
+    CALLER {
+        @Override
+        StringBuilder append(StringBuilder sb, Configuration config) {
+            if (!OverheadGovernor.suppressesStackTrace()) {
+                StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+                sb.append("\nat ").append(stackTraces[LogUtils.firstNonJdbcDsLogStackIndex(stackTraces)]);
+            }
+            return sb;
+        }
+
+        @Override
+        JsonEventEncoder encode(JsonEventEncoder encoder, Configuration config) {
+            if (!OverheadGovernor.suppressesStackTrace()) {
+                StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+                int first = LogUtils.firstNonJdbcDsLogStackIndex(stackTraces);
+                if (first < stackTraces.length) {
+                    encoder.field("caller", stackTraces[first].toString());
+                }
+            }
+            return encoder;
+        }
+    },
+
+    /** all frames from the first one outside of JDBC DS Log */
+    FULL {
+        @Override
+        StringBuilder append(StringBuilder sb, Configuration config) {
+            if (!OverheadGovernor.suppressesStackTrace()) {
+                StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+                for (int i = LogUtils.firstNonJdbcDsLogStackIndex(stackTraces); i < stackTraces.length; ++i) {
+                    sb.append("\nat ").append(stackTraces[i]);
+                }
+            }
+            return sb;
+        }
+
+        @Override
+        JsonEventEncoder encode(JsonEventEncoder encoder, Configuration config) {
+            if (!OverheadGovernor.suppressesStackTrace()) {
+                StackTraceElement[] stackTraces = new Throwable().getStackTrace();
+                encoder.beginArray("stackTrace");
+                for (int i = LogUtils.firstNonJdbcDsLogStackIndex(stackTraces); i < stackTraces.length; ++i) {
+                    encoder.element(stackTraces[i]);
+                }
+                encoder.endArray();
+            }
+            return encoder;
+        }
+    },
+
+    /** the first frame of a class matching jdbcdslog.printStackTracePattern */
+    PATTERN {
+        @Override
+        StringBuilder append(StringBuilder sb, Configuration config) {
+            StackTraceElement caller = matchingFrame(config);
+            if (caller != null) {
+                sb.append("\nat ").append(caller);
+            }
+            return sb;
+        }
+
+        @Override
+        JsonEventEncoder encode(JsonEventEncoder encoder, Configuration config) {
+            StackTraceElement caller = matchingFrame(config);
+            if (caller != null) {
+                encoder.field("caller", caller.toString());
+            }
+            return encoder;
+        }
+
+        private StackTraceElement matchingFrame(Configuration config) {
+            if (!OverheadGovernor.suppressesStackTrace()) {
+                for (StackTraceElement stackTraceElement : new Throwable().getStackTrace()) {
+                    if (config.stackTracePattern.matcher(stackTraceElement.getClassName()).matches()) {
+                        return stackTraceElement;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    abstract StringBuilder append(StringBuilder sb, Configuration config);
+
+    abstract JsonEventEncoder encode(JsonEventEncoder encoder, Configuration config);
+
+    static StackTraceMode of(boolean printStackTrace, boolean printFullStackTrace, String printStackTracePattern) {
+        if (!printStackTrace) {
+            return NONE;
+        } else if (printFullStackTrace) {
+            return FULL;
+        } else if (printStackTracePattern.length() == 0) {
+            return CALLER;
+        }
+        return PATTERN;
+    }
+}
@@ -0,0 +1,208 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.statementLogger;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds consecutive executions of the same statement shape on a connection into one log line, with
+ * execution count, total and max time, and the first and last statements with parameters.
+ *
+ * The pending line is flushed when a statement of another shape is executed on the connection, the
+ * coalescing window (<code>jdbcdslog.coalesce.window</code>) expires, or the connection is closed.
+ */
+public class StatementCoalescer {
+    /** coalescers holding a pending line, swept periodically for expired windows */
+    private static final Map<StatementCoalescer, Boolean> pendingCoalescers = new ConcurrentHashMap<StatementCoalescer, Boolean>();
+
+    private static final long SWEEP_PERIOD_IN_MILLIS = 100;
+
+    private static volatile ScheduledExecutorService sweeper = null;
+
+    private final LogMetaData logMetaData;
+
+    private String shape = null;
+    private Method method = null;
+    private StatementContext first = null;
+    private StatementContext last = null;
+    private String firstStackTrace = null;
+    private int count = 0;
+    private long totalTimeInNano = 0;
+    private long maxTimeInNano = 0;
+    private long windowStartInNano = 0;
+
+    /**
+     * @return a coalescer for the connection, or null if coalescing is disabled
+     */
+    public static StatementCoalescer create(LogMetaData logMetaData) {
+        if (!ConfigurationParameters.coalesce) {
+            return null;
+        }
+        return new StatementCoalescer(logMetaData);
+    }
+
+    public StatementCoalescer(LogMetaData logMetaData) {
+        this.logMetaData = logMetaData;
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled(ConfigurationParameters.current());
+    }
+
+    static boolean isEnabled(Configuration config) {
+        return ConfigurationParameters.coalesce && !config.logBeforeStatement;
+    }
+
+    /**
+     * Record an execution of a statement.
+     *
+     * @param fingerprint shape of the statement
+     * @param method method invoked
+     * @param context statement and parameters executed
+     * @param elapsedTimeInNano execution time
+     */
+    public synchronized void record(SqlFingerprint fingerprint, Method method, StatementContext context, long elapsedTimeInNano) {
+        long now = System.nanoTime();
+        if (count > 0
+                && (!fingerprint.getId().equals(shape)
+                    || !method.getName().equals(this.method.getName())
+                    || now - windowStartInNano >= ConfigurationParameters.coalesceWindowInNano)) {
+            flush();
+        }
+
+        if (count == 0) {
+            shape = fingerprint.getId();
+            this.method = method;
+            first = context;
+            Configuration config = configuration();
+            firstStackTrace = config.printStackTrace ? LogUtils.appendStackTrace(new StringBuilder(), config).toString() : null;
+            windowStartInNano = now;
+            pendingCoalescers.put(this, Boolean.TRUE);
+            if (sweeper == null) {
+                startSweeper();
+            }
+        }
+        last = context;
+        ++count;
+        totalTimeInNano += elapsedTimeInNano;
+        maxTimeInNano = Math.max(maxTimeInNano, elapsedTimeInNano);
+    }
+
+    /**
+     * Log the pending line, if any.
+     */
+    public synchronized void flush() {
+        if (count == 0) {
+            return;
+        }
+        pendingCoalescers.remove(this);
+        Configuration config = configuration();
+
+        if (statementLogger.isInfoEnabled() && config.jsonOutput) {
+            Map<String, String> oldMdc = LogUtils.setMdc(logMetaData);
+            try {
+                statementLogger.info(encodeEvent());
+            } finally {
+                LogUtils.resetMdc(oldMdc);
+            }
+        } else if (statementLogger.isInfoEnabled()) {
+            StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+            if (count == 1) {
+                LogUtils.appendSql(sb, first.getSql(), first.getParameters(), first.getNamedParameters(), config);
+                if (firstStackTrace != null) {
+                    sb.append(firstStackTrace);
+                }
+                LogUtils.appendElapsedTime(sb, totalTimeInNano, config);
+            } else {
+                sb.append(count).append(" executions, Total Time: ").append(String.format("%.9f", totalTimeInNano/1000000000.0))
+                  .append(" s.  Max Time: ").append(String.format("%.9f", maxTimeInNano/1000000000.0)).append(" s.")
+                  .append("\nFirst: ");
+                LogUtils.appendSql(sb, first.getSql(), first.getParameters(), first.getNamedParameters(), config);
+                if (firstStackTrace != null) {
+                    sb.append(firstStackTrace);
+                }
+                sb.append("\nLast: ");
+                LogUtils.appendSql(sb, last.getSql(), last.getParameters(), last.getNamedParameters(), config);
+            }
+
+            Map<String, String> oldMdc = LogUtils.setMdc(logMetaData);
+            try {
+                statementLogger.info(sb.toString());
+            } finally {
+                LogUtils.resetMdc(oldMdc);
+            }
+        }
+
+        shape = null;
+        method = null;
+        first = null;
+        last = null;
+        firstStackTrace = null;
+        count = 0;
+        totalTimeInNano = 0;
+        maxTimeInNano = 0;
+    }
+
+    /**
+     * Configuration of the connection of this coalescer.
+     */
+    private Configuration configuration() {
+        return logMetaData == null ? ConfigurationParameters.current() : logMetaData.getConfiguration();
+    }
+
+    private String encodeEvent() {
+        JsonEventEncoder encoder = JsonEventEncoder.begin(count == 1 ? "statement" : "coalesced");
+        encoder.field("method", method.getDeclaringClass().getName() + "." + method.getName());
+        if (count == 1) {
+            LogUtils.encodeSql(encoder, first.getSql(), first.getParameters(), first.getNamedParameters());
+            encoder.field("elapsedNanos", totalTimeInNano);
+        } else {
+            encoder.field("executions", count)
+                   .field("totalNanos", totalTimeInNano)
+                   .field("maxNanos", maxTimeInNano);
+            encoder.beginObject("first");
+            LogUtils.encodeSql(encoder, first.getSql(), first.getParameters(), first.getNamedParameters());
+            encoder.endObject();
+            encoder.beginObject("last");
+            LogUtils.encodeSql(encoder, last.getSql(), last.getParameters(), last.getNamedParameters());
+            encoder.endObject();
+        }
+        if (firstStackTrace != null && firstStackTrace.length() > 0) {
+            encoder.field("caller", firstStackTrace.replaceFirst("^\\nat ", ""));
+        }
+        return encoder.end();
+    }
+
+    private synchronized void flushIfExpired(long now) {
+        if (count > 0 && now - windowStartInNano >= ConfigurationParameters.coalesceWindowInNano) {
+            flush();
+        }
+    }
+
+    private static synchronized void startSweeper() {
+        if (sweeper == null) {
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "jdbcdslog-coalescer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    long now = System.nanoTime();
+                    for (StatementCoalescer c : pendingCoalescers.keySet()) {
+                        c.flushIfExpired(now);
+                    }
+                }
+            }, SWEEP_PERIOD_IN_MILLIS, SWEEP_PERIOD_IN_MILLIS, TimeUnit.MILLISECONDS);
+            sweeper = executor;
+        }
+    }
+}
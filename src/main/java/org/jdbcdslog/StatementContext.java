@@ -0,0 +1,75 @@
+package org.jdbcdslog;
+
+import java.util.Map;
+
+/**
+ * Information of the statement execution which produced a ResultSet, so that ResultSet logging can
+ * be tied back to its originating statement.
+ */
+public class StatementContext {
+    private final String sql;
+    private final Map<Integer, Object> parameters;
+    private final Map<String, Object> namedParameters;
+    private final long executeStartTimeInNano;
+    private final long executeTimeInNano;
+    private SqlFingerprint fingerprint = null;
+
+    public StatementContext(String sql,
+                            Map<Integer, Object> parameters,
+                            Map<String, Object> namedParameters,
+                            long executeStartTimeInNano,
+                            long executeTimeInNano) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.namedParameters = namedParameters;
+        this.executeStartTimeInNano = executeStartTimeInNano;
+        this.executeTimeInNano = executeTimeInNano;
+    }
+
+    /**
+     * Whether anything consumes the context of a ResultSet: fetch timings, fetch size advisor, result size
+     * guard, column usage profiler, event listeners, JFR or JSON output of ResultSet.
+     */
+    public static boolean isNeeded() {
+        return ConfigurationParameters.logFetchTimings
+                || FetchSizeAdvisor.isEnabled()
+                || ConfigurationParameters.resultSizeGuard
+                || ColumnUsageProfiler.isEnabled()
+                || !JdbcEventListeners.isEmpty()
+                || JdbcFlightRecorder.isRecording()
+                || (ConfigurationParameters.current().jsonOutput && Loggers.resultSetLogger.isInfoEnabled());
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return fingerprint of the SQL, or null if SQL is unknown
+     */
+    public SqlFingerprint getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = SqlFingerprint.of(sql);
+        }
+        return fingerprint;
+    }
+
+    public Map<Integer, Object> getParameters() {
+        return parameters;
+    }
+
+    public Map<String, Object> getNamedParameters() {
+        return namedParameters;
+    }
+
+    /**
+     * @return System.nanoTime() when the statement execution started
+     */
+    public long getExecuteStartTimeInNano() {
+        return executeStartTimeInNano;
+    }
+
+    public long getExecuteTimeInNano() {
+        return executeTimeInNano;
+    }
+}
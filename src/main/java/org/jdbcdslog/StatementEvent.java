@@ -0,0 +1,87 @@
+package org.jdbcdslog;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A reusable record of one statement execution, kept unrendered until it needs to be logged.
+ * Parameter values are copied by reference into reused arrays.
+ */
+public class StatementEvent {
+    private long timestamp;
+    private String methodName;
+    private String sql;
+    private int[] parameterIndexes = new int[0];
+    private Object[] parameterValues = new Object[0];
+    private int parameterCount;
+    private Map<String, Object> namedParameters;
+    private long elapsedTimeInNano;
+    private boolean failed;
+
+    public void set(String methodName,
+                    String sql,
+                    Map<Integer, Object> parameters,
+                    Map<String, Object> namedParameters,
+                    long elapsedTimeInNano,
+                    boolean failed) {
+        this.timestamp = System.currentTimeMillis();
+        this.methodName = methodName;
+        this.sql = sql;
+        this.elapsedTimeInNano = elapsedTimeInNano;
+        this.failed = failed;
+
+        int size = (parameters == null) ? 0 : parameters.size();
+        if (parameterValues.length < size) {
+            parameterIndexes = new int[size];
+            parameterValues = new Object[size];
+        }
+        int i = 0;
+        if (size > 0) {
+            for (Map.Entry<Integer, Object> entry : parameters.entrySet()) {
+                parameterIndexes[i] = entry.getKey();
+                parameterValues[i] = entry.getValue();
+                ++i;
+            }
+        }
+        for (int j = i; j < parameterCount; ++j) {
+            parameterValues[j] = null;      // do not keep stale references alive
+        }
+        parameterCount = size;
+        this.namedParameters = (namedParameters == null || namedParameters.isEmpty()) ? null : new TreeMap<String, Object>(namedParameters);
+    }
+
+    /**
+     * Drop references to SQL and parameters, once the event is no longer needed.
+     */
+    public void clear() {
+        sql = null;
+        namedParameters = null;
+        for (int i = 0; i < parameterCount; ++i) {
+            parameterValues[i] = null;
+        }
+        parameterCount = 0;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    void appendTo(StringBuilder sb, DateFormat timeFormat) {
+        sb.append(timeFormat.format(new Date(timestamp))).append(" ").append(methodName).append(": ");
+        Map<Integer, Object> parameters = null;
+        if (parameterCount > 0) {
+            parameters = new TreeMap<Integer, Object>();
+            for (int i = 0; i < parameterCount; ++i) {
+                parameters.put(parameterIndexes[i], parameterValues[i]);
+            }
+        }
+        LogUtils.appendSql(sb, sql, parameters, namedParameters);
+        sb.append(" (").append(String.format("%.9f", elapsedTimeInNano/1000000000.0)).append(" s.");
+        if (failed) {
+            sb.append(", FAILED");
+        }
+        sb.append(")");
+    }
+}
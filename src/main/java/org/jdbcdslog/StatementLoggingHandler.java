@@ -14,6 +14,7 @@ import java.util.Set;
 public class StatementLoggingHandler extends StatementLoggingHandlerTemplate<Statement> {
     protected final static Set<String> EXECUTE_METHODS = new HashSet<String>(Arrays.asList("addBatch", "execute", "executeQuery", "executeUpdate", "executeBatch"));
     protected StringBuilder batchStatements = null;
+    protected String lastExecutedSql = null;
 
     public StatementLoggingHandler(LogMetaData logMetaData, Statement statement) {
         super(logMetaData, statement);
@@ -26,24 +27,45 @@ public class StatementLoggingHandler extends StatementLoggingHandlerTemplate<Sta
     }
 
     @Override
-    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args) {
-        LogUtils.appendSql(sb, (args == null || args.length == 0) ? null : args[0].toString(), null, null);
+    protected Object[] prepareArguments(Object proxy, Method method, Object[] args) {
+        if (SqlCommenter.isEnabled() && args != null && args.length > 0 && args[0] instanceof String
+                && EXECUTE_METHODS.contains(method.getName())) {
+            args[0] = SqlCommenter.comment(logMetaData, (String) args[0]);
+        }
+        return args;
+    }
+
+    @Override
+    protected void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args, Configuration config) {
+        LogUtils.appendSql(sb, (args == null || args.length == 0) ? null : args[0].toString(), null, null, config);
+    }
+
+    @Override
+    protected void encodeStatement(JsonEventEncoder encoder, Object proxy, Method method, Object[] args) {
+        LogUtils.encodeSql(encoder, (args == null || args.length == 0) ? null : args[0].toString(), null, null);
     }
 
     @Override
-    protected void doAddBatch(Object proxy, Method method, Object[] args) {
+    protected void encodeBatchStatements(JsonEventEncoder encoder) {
+        if (this.batchStatements != null) {
+            encoder.field("batch", batchStatements.toString());
+        }
+    }
+
+    @Override
+    protected void doAddBatch(Object proxy, Method method, Object[] args, Configuration config) {
         if (this.batchStatements == null) {
             this.batchStatements = new StringBuilder();
         } else {
             this.batchStatements.append("\n\t");
         }
-        appendStatement(batchStatements, proxy, method, args);
+        appendStatement(batchStatements, proxy, method, args, config);
         this.batchStatements.append(';');
 
     }
 
     @Override
-    protected void appendBatchStatements(StringBuilder sb) {
+    protected void appendBatchStatements(StringBuilder sb, Configuration config) {
         if (this.batchStatements != null) {
             sb.append(batchStatements);
             this.batchStatements = null;
@@ -63,18 +85,41 @@ public class StatementLoggingHandler extends StatementLoggingHandlerTemplate<Sta
             }
         }
 
+        if (isExecute(proxy, method, args) && args != null && args.length > 0) {
+            lastExecutedSql = (String) args[0];
+        }
+
+        if ("executeBatch".equals(method.getName())) {
+            batchStatements = null;     // in case it is not consumed by logging
+        }
+
         if (r instanceof ResultSet) {
-            r = wrapByResultSetProxy(logMetaData, (ResultSet) r);
+            r = wrapByResultSetProxy(logMetaData, (ResultSet) r, createResultSetContext(proxy, method, args));
         }
 
         return r;
     }
 
     @Override
-    protected void handleException(Throwable t, Object proxy, Method method, Object[] args) throws Throwable {
+    protected SqlFingerprint getFingerprint(Object proxy, Method method, Object[] args) {
+        return (args == null || args.length == 0) ? null : SqlFingerprint.of((String) args[0]);
+    }
+
+    @Override
+    protected String getSql(Object proxy, Method method, Object[] args) {
+        return (args == null || args.length == 0) ? null : String.valueOf(args[0]);
+    }
+
+    @Override
+    protected StatementContext createStatementContext(Object proxy, Method method, Object[] args) {
+        return new StatementContext(lastExecutedSql, null, null, lastExecuteStartTimeInNano, lastExecuteTimeInNano);
+    }
+
+    @Override
+    protected void handleException(Throwable t, Object proxy, Method method, Object[] args, Configuration config) throws Throwable {
         LogUtils.handleException(t,
                 statementLogger,
-                LogUtils.createLogEntry(method, (args == null || args.length == 0) ? null : args[0].toString(), null, null));
+                LogUtils.createLogEntry(method, (args == null || args.length == 0) ? null : args[0].toString(), null, null, config));
     }
 
 }
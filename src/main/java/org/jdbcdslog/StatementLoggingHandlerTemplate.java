@@ -5,6 +5,7 @@ import static org.jdbcdslog.Loggers.*;
 import static org.jdbcdslog.ProxyUtils.wrap;
 
 import java.lang.reflect.Method;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
 
@@ -19,64 +20,164 @@ import org.slf4j.Logger;
 public abstract class StatementLoggingHandlerTemplate<T extends Statement> extends LoggingHandlerSupport<T> {
     protected LogMetaData logMetaData;
 
+    /** start time and elapsed time of the last execute*() call, for ResultSet produced by it */
+    protected long lastExecuteStartTimeInNano = 0;
+    protected long lastExecuteTimeInNano = 0;
+
     public StatementLoggingHandlerTemplate(LogMetaData logMetaData, T target) {
         super(target);
         this.logMetaData = logMetaData;
     }
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        long handlerStartTimeInNano = OverheadGovernor.isEnabled() ? System.nanoTime() : 0;
+        long startTimeInNano = 0;
+        long elapsedTimeInNano = 0;
+        BlackBoxRecorder blackBox = logMetaData.getBlackBoxRecorder();
+        boolean eventRecorded = false;
+        TransactionBuffer transaction = logMetaData.getTransactionBuffer();
+        boolean buffered = false;
+        Object flightRecorderEvent = null;
+        Span span = null;
+        Configuration config = logMetaData.getConfiguration();
 
         Map<String, String> oldMdc = LogUtils.setMdc(logMetaData);
         try {
+            args = prepareArguments(proxy, method, args);
             boolean needsLog = needsLogging(proxy, method, args);
-            long startTimeInNano = 0;
             boolean isAddBatch = isAddBatch(proxy, method, args);
             boolean isExecuteBatch = isExecuteBatch(proxy, method, args);
             StringBuilder sb= null;
 
             if (isAddBatch) {
-                if (!ConfigurationParameters.logAddBatch) {
+                if (!config.logAddBatch) {
                     needsLog = false;
                 }
-                if (ConfigurationParameters.logExecuteBatchDetail) {
-                    doAddBatch(proxy, method, args);
+                if (config.logExecuteBatchDetail) {
+                    doAddBatch(proxy, method, args, config);
                 }
             }
 
-            if (needsLog) {
-                startTimeInNano = System.nanoTime();
+            // statements in transaction are buffered for tail-based transaction logging, instead of being logged
+            buffered = needsLog && transaction != null && transaction.isInTransaction() && getLogger().isInfoEnabled();
+
+            // unsampled statements are only timed, for slow query logging
+            boolean sampled = needsLog && !buffered && getLogger().isInfoEnabled() && isSampled(proxy, method, args, config);
+
+            // coalesced statements are logged by the connection's coalescer, without building message here
+            SqlFingerprint coalesceShape = null;
+            if (sampled && !isAddBatch && !isExecuteBatch && StatementCoalescer.isEnabled(config) && logMetaData.getStatementCoalescer() != null) {
+                coalesceShape = getFingerprint(proxy, method, args);
+            }
 
+            if (sampled && coalesceShape == null && !config.jsonOutput) {
                 sb = new StringBuilder();
-                if (ConfigurationParameters.logBeforeStatement) {
+                if (config.logBeforeStatement) {
                     sb.append("START: ");      // Reserve space for START: and END:
                 }
-                sb.append(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+                appendLogMessage(sb, proxy, method, args, isAddBatch, isExecuteBatch, config);
 
-                if (isExecuteBatch) {
-                    if (ConfigurationParameters.logExecuteBatchDetail) {
-                        appendBatchStatements(sb);
-                    }
-                } else if (isAddBatch) {
-                    if (ConfigurationParameters.logAddBatchDetail) {
-                        appendStatement(sb, proxy, method, args);
-                    }
-                } else {
-                    appendStatement(sb, proxy, method, args);
-                }
+                logBeforeInvoke(proxy, method, args, sb, config);
+            }
 
-                appendStackTrace(sb);
+            if (!config.fetchSizes.isEmpty() && isExecute(proxy, method, args)) {
+                applyConfiguredFetchSize(proxy, method, args, config);
+            }
+
+            boolean isExecute = isExecute(proxy, method, args);
+            boolean notifiesListeners = isExecute && !JdbcEventListeners.isEmpty();
+            if (notifiesListeners && !isExecuteBatch) {
+                JdbcEventListeners.fire(JdbcEventListeners.EventType.BEFORE_EXECUTE, createJdbcEvent(proxy, method, args));
+            }
 
-                logBeforeInvoke(proxy, method, args, sb);
+            if (isExecute && JdbcFlightRecorder.isRecording()) {
+                flightRecorderEvent = JdbcFlightRecorder.begin(isExecuteBatch ? JdbcFlightRecorder.BATCH : JdbcFlightRecorder.STATEMENT);
             }
 
+            if (isExecute && !SpanExporters.isEmpty()) {
+                span = SpanExporters.start(logMetaData, method.getName());
+            }
+
+            startTimeInNano = System.nanoTime();
             Object result = method.invoke(target, args);
+            elapsedTimeInNano = System.nanoTime() - startTimeInNano;
 
-            result = doAfterInvoke(proxy, method, args, result);
+            if (span != null) {
+                finishSpan(span, proxy, method, args, result, null);
+                span = null;
+            }
 
-            if (needsLog) {
-                long elapsedTimeInNano = System.nanoTime() - startTimeInNano;
+            if (flightRecorderEvent != null) {
+                commitFlightRecorderEvent(flightRecorderEvent, proxy, method, args, isExecuteBatch, result, null);
+                flightRecorderEvent = null;
+            }
+
+            if (isExecute && JdbcStatistics.isEnabled()) {
+                JdbcStatistics.recordExecution(getSql(proxy, method, args), isExecuteBatch, elapsedTimeInNano,
+                                              elapsedTimeInNano >= config.slowQueryThresholdInNano);
+            }
+
+            if (notifiesListeners) {
+                fireAfterExecute(proxy, method, args, isExecuteBatch, result, elapsedTimeInNano);
+            }
+
+            if (isExecute) {
+                lastExecuteStartTimeInNano = startTimeInNano;
+                lastExecuteTimeInNano = elapsedTimeInNano;
+                if (blackBox != null) {
+                    recordEvent(blackBox, proxy, method, args, elapsedTimeInNano, false);
+                    eventRecorded = true;
+                }
+                if (buffered) {
+                    StatementEvent event = transaction.nextEvent();
+                    if (event != null) {
+                        recordEvent(event, proxy, method, args, elapsedTimeInNano, false);
+                    }
+                    buffered = false;
+                }
+            }
+
+            boolean slow = needsLog
+                    && elapsedTimeInNano >= config.slowQueryThresholdInNano
+                    && getSlowQueryLogger().isInfoEnabled();
 
-                if (ConfigurationParameters.logBeforeStatement) {
+            // message must be created before doAfterInvoke(), which may clear batch details
+            String jsonEvent = null;
+            if (config.jsonOutput) {
+                if ((sampled && coalesceShape == null) || slow) {
+                    jsonEvent = encodeEvent(proxy, method, args, isAddBatch, isExecuteBatch, result, elapsedTimeInNano, config);
+                }
+            } else if (slow && (!sampled || coalesceShape != null)) {
+                sb = new StringBuilder();
+                appendLogMessage(sb, proxy, method, args, isAddBatch, isExecuteBatch, config);
+                appendElapsedTime(sb, elapsedTimeInNano, config);
+            }
+
+            result = doAfterInvoke(proxy, method, args, result);
+
+            if (coalesceShape != null) {
+                logMetaData.getStatementCoalescer().record(coalesceShape,
+                                                          method,
+                                                          createStatementContext(proxy, method, args),
+                                                          elapsedTimeInNano);
+                if (sb != null) {
+                    getSlowQueryLogger().info(sb.toString());
+                } else if (jsonEvent != null) {
+                    getSlowQueryLogger().info(jsonEvent);
+                }
+            } else if (sampled && jsonEvent != null) {
+                if (StatementCoalescer.isEnabled(config) && logMetaData.getStatementCoalescer() != null) {
+                    logMetaData.getStatementCoalescer().flush();
+                }
+                getLogger().info(jsonEvent);
+                if (slow) {
+                    getSlowQueryLogger().info(jsonEvent);
+                }
+            } else if (sampled) {
+                if (StatementCoalescer.isEnabled(config) && logMetaData.getStatementCoalescer() != null) {
+                    logMetaData.getStatementCoalescer().flush();
+                }
+                if (config.logBeforeStatement) {
                     sb.setCharAt(0, 'E');
                     sb.setCharAt(1, 'N');
                     sb.setCharAt(2, 'D');
@@ -86,23 +187,153 @@ public abstract class StatementLoggingHandlerTemplate<T extends Statement> exten
                     sb.setCharAt(6, ' ');
                 }
 
-                appendElapsedTime(sb, elapsedTimeInNano);
+                appendElapsedTime(sb, elapsedTimeInNano, config);
 
-                logAfterInvoke(proxy, method, args, result, elapsedTimeInNano, sb);
+                logAfterInvoke(proxy, method, args, result, elapsedTimeInNano, sb, config);
+            } else if (sb != null) {
+                getSlowQueryLogger().info(sb.toString());
+            } else if (jsonEvent != null) {
+                getSlowQueryLogger().info(jsonEvent);
+            }
+
+            if (eventRecorded && elapsedTimeInNano >= config.slowQueryThresholdInNano) {
+                LogUtils.logBlackBox(getSlowQueryLogger(), logMetaData, false);
             }
             return result;
 
         } catch (Throwable t) {
-            handleException(t, proxy, method, args);
+            if (startTimeInNano != 0 && elapsedTimeInNano == 0) {
+                elapsedTimeInNano = System.nanoTime() - startTimeInNano;      // driver call failed
+            }
+            if (flightRecorderEvent != null) {
+                commitFlightRecorderEvent(flightRecorderEvent, proxy, method, args, isExecuteBatch(proxy, method, args), null, t);
+            }
+            if (span != null) {
+                finishSpan(span, proxy, method, args, null, t);
+            }
+            if (blackBox != null && isExecute(proxy, method, args)) {
+                if (!eventRecorded) {
+                    recordEvent(blackBox, proxy, method, args, elapsedTimeInNano, true);
+                }
+                LogUtils.logBlackBox(getLogger(), logMetaData, true);
+            }
+            if (transaction != null && transaction.isInTransaction()) {
+                if (buffered && isExecute(proxy, method, args)) {
+                    StatementEvent event = transaction.nextEvent();
+                    if (event != null) {
+                        recordEvent(event, proxy, method, args, elapsedTimeInNano, true);
+                    }
+                }
+                transaction.markFailed();
+            }
+            if (JdbcStatistics.isEnabled()) {
+                JdbcStatistics.recordError(t);
+            }
+            if (!JdbcEventListeners.isEmpty()) {
+                JdbcEventListeners.fire(JdbcEventListeners.EventType.ERROR,
+                                        createJdbcEvent(proxy, method, args).throwable(LogUtils.unwrap(t)));
+            }
+            handleException(t, proxy, method, args, config);
         } finally {
             LogUtils.resetMdc(oldMdc);
+            if (handlerStartTimeInNano != 0) {
+                OverheadGovernor.record(System.nanoTime() - handlerStartTimeInNano, elapsedTimeInNano);
+            }
         }
         return null;
     }
 
-    protected abstract void doAddBatch(Object proxy, Method method, Object[] args);
+    /**
+     * Arguments to pass to the driver, which are also the ones logged.
+     */
+    protected Object[] prepareArguments(Object proxy, Method method, Object[] args) {
+        return args;
+    }
+
+    /**
+     * Append method, statement and stack trace to log message.
+     */
+    protected void appendLogMessage(StringBuilder sb, Object proxy, Method method, Object[] args, boolean isAddBatch, boolean isExecuteBatch,
+                                    Configuration config) {
+        sb.append(method.getDeclaringClass().getName()).append(".").append(method.getName()).append(": ");
+
+        if (isExecuteBatch) {
+            if (config.logExecuteBatchDetail) {
+                appendBatchStatements(sb, config);
+            }
+        } else if (isAddBatch) {
+            if (config.logAddBatchDetail) {
+                appendStatement(sb, proxy, method, args, config);
+            }
+        } else {
+            appendStatement(sb, proxy, method, args, config);
+        }
+
+        appendStackTrace(sb, config);
+    }
+
+    /**
+     * Encode the statement invocation as a JSON event, for JSON output.
+     */
+    protected String encodeEvent(Object proxy, Method method, Object[] args, boolean isAddBatch, boolean isExecuteBatch,
+                                 Object result, long elapsedTimeInNano, Configuration config) {
+        JsonEventEncoder encoder = JsonEventEncoder.begin("statement");
+        encoder.field("method", method.getDeclaringClass().getName() + "." + method.getName());
+
+        if (isExecuteBatch) {
+            if (config.logExecuteBatchDetail) {
+                encodeBatchStatements(encoder);
+            }
+        } else if (isAddBatch) {
+            if (config.logAddBatchDetail) {
+                encodeStatement(encoder, proxy, method, args);
+            }
+        } else {
+            encodeStatement(encoder, proxy, method, args);
+        }
 
-    protected abstract void appendBatchStatements(StringBuilder sb);
+        encoder.field("elapsedNanos", elapsedTimeInNano);
+        if (result instanceof Integer) {
+            encoder.field("rows", (Integer) result);
+        } else if (result instanceof int[]) {
+            encoder.beginArray("rows");
+            for (int count : (int[]) result) {
+                encoder.element(count);
+            }
+            encoder.endArray();
+        }
+        if (elapsedTimeInNano >= config.slowQueryThresholdInNano) {
+            encoder.field("slow", true);
+        }
+        encodeStackTrace(encoder, config);
+        return encoder.end();
+    }
+
+    /**
+     * Write SQL and parameters of the statement as JSON fields.
+     */
+    protected abstract void encodeStatement(JsonEventEncoder encoder, Object proxy, Method method, Object[] args);
+
+    /**
+     * Write SQL and parameters of the batch being executed as JSON fields.
+     */
+    protected abstract void encodeBatchStatements(JsonEventEncoder encoder);
+
+    /**
+     * Whether this statement invocation is chosen by statement sampling.
+     */
+    protected boolean isSampled(Object proxy, Method method, Object[] args, Configuration config) {
+        if (!StatementSampler.isEnabled(config)) {
+            return true;
+        }
+        return StatementSampler.isSampled(logMetaData,
+                                          StatementSampler.needsFingerprint(config) ? getFingerprint(proxy, method, args) : null,
+                                          config);
+    }
+
+    protected abstract void doAddBatch(Object proxy, Method method, Object[] args, Configuration config);
+
+    protected abstract void appendBatchStatements(StringBuilder sb, Configuration config);
 
     protected boolean isExecuteBatch(Object proxy, Method method, Object[] args) {
         return method.getName().equals("executeBatch");
@@ -113,15 +344,158 @@ public abstract class StatementLoggingHandlerTemplate<T extends Statement> exten
         return method.getName().equals("addBatch");
     }
 
+    protected boolean isExecute(Object proxy, Method method, Object[] args) {
+        return method.getName().startsWith("execute");
+    }
+
+    /**
+     * Fingerprint of the statement to be executed, or null if it is unknown.
+     */
+    protected SqlFingerprint getFingerprint(Object proxy, Method method, Object[] args) {
+        return null;
+    }
+
+    /**
+     * Record this statement execution into the black box.
+     */
+    protected void recordEvent(BlackBoxRecorder blackBox, Object proxy, Method method, Object[] args, long elapsedTimeInNano, boolean failed) {
+        blackBox.record(method.getName(), getSql(proxy, method, args), getParameters(), getNamedParameters(), elapsedTimeInNano, failed);
+    }
+
+    /**
+     * Record this statement execution into a transaction buffer event slot.
+     */
+    protected void recordEvent(StatementEvent event, Object proxy, Method method, Object[] args, long elapsedTimeInNano, boolean failed) {
+        event.set(method.getName(), getSql(proxy, method, args), getParameters(), getNamedParameters(), elapsedTimeInNano, failed);
+    }
+
+    protected JdbcEvent createJdbcEvent(Object proxy, Method method, Object[] args) {
+        return JdbcEvent.acquire(logMetaData, method.getName())
+                        .statement(getSql(proxy, method, args), getParameters(), getNamedParameters());
+    }
+
+    protected void fireAfterExecute(Object proxy, Method method, Object[] args, boolean isExecuteBatch, Object result, long elapsedTimeInNano) {
+        JdbcEvent event = createJdbcEvent(proxy, method, args).elapsedTime(elapsedTimeInNano);
+        if (isExecuteBatch) {
+            if (result instanceof int[]) {
+                int[] counts = (int[]) result;
+                event.batchSize(counts.length).rowCount(sumOfRowCounts(counts));
+            }
+            JdbcEventListeners.fire(JdbcEventListeners.EventType.BATCH, event);
+        } else {
+            if (result instanceof Integer) {
+                event.rowCount((Integer) result);
+            }
+            JdbcEventListeners.fire(JdbcEventListeners.EventType.AFTER_EXECUTE, event);
+        }
+    }
+
+    /**
+     * End the JFR event of the execution, and commit it if it passes the threshold.
+     */
+    protected void commitFlightRecorderEvent(Object event, Object proxy, Method method, Object[] args, boolean isExecuteBatch,
+                                             Object result, Throwable t) {
+        if (!JdbcFlightRecorder.end(event)) {
+            return;
+        }
+        String sql = getSql(proxy, method, args);
+        String error = (t == null) ? null : LogUtils.unwrap(t).toString();
+        if (isExecuteBatch) {
+            long batchSize = -1;
+            long rows = -1;
+            if (result instanceof int[]) {
+                batchSize = ((int[]) result).length;
+                rows = sumOfRowCounts((int[]) result);
+            }
+            JdbcFlightRecorder.commit(event, logMetaData.getConnectionId(), sql, JdbcFlightRecorder.fingerprintOf(sql),
+                                      batchSize, rows, error);
+        } else {
+            long rows = (result instanceof Integer) ? (Integer) result : -1;
+            JdbcFlightRecorder.commit(event, logMetaData.getConnectionId(), method.getName(), sql,
+                                      JdbcFlightRecorder.fingerprintOf(sql), rows, error);
+        }
+    }
+
+    /**
+     * Finish the span of the execution and export it.
+     */
+    protected void finishSpan(Span span, Object proxy, Method method, Object[] args, Object result, Throwable t) {
+        long rows = -1;
+        int batchSize = -1;
+        if (result instanceof int[]) {
+            batchSize = ((int[]) result).length;
+            rows = sumOfRowCounts((int[]) result);
+        } else if (result instanceof Integer) {
+            rows = (Integer) result;
+        }
+        SpanExporters.finish(span, SqlFingerprint.of(getSql(proxy, method, args)), rows, batchSize, t);
+    }
+
+    /**
+     * Total rows affected by a batch, ignoring unknown counts.
+     */
+    private static long sumOfRowCounts(int[] counts) {
+        long rows = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                rows += count;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * SQL of the statement invocation, or null if it is unknown.
+     */
+    protected String getSql(Object proxy, Method method, Object[] args) {
+        return null;
+    }
+
+    /**
+     * Current indexed parameters of the statement, or null if the statement takes no parameter.
+     */
+    protected Map<Integer, Object> getParameters() {
+        return null;
+    }
+
+    /**
+     * Current named parameters of the statement, or null if the statement takes no named parameter.
+     */
+    protected Map<String, Object> getNamedParameters() {
+        return null;
+    }
+
+    protected void applyConfiguredFetchSize(Object proxy, Method method, Object[] args, Configuration config) throws SQLException {
+        int fetchSize = FetchSizeAdvisor.configuredFetchSize(getFingerprint(proxy, method, args), config);
+        if (fetchSize > 0) {
+            target.setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * Context of the last statement execution for ResultSet returned from this statement, or null if nothing
+     * would use it.
+     */
+    protected StatementContext createResultSetContext(Object proxy, Method method, Object[] args) {
+        return StatementContext.isNeeded() ? createStatementContext(proxy, method, args) : null;
+    }
+
+    /**
+     * Create context of the last statement execution, for ResultSet returned from this statement.
+     */
+    protected StatementContext createStatementContext(Object proxy, Method method, Object[] args) {
+        return new StatementContext(null, null, null, lastExecuteStartTimeInNano, lastExecuteTimeInNano);
+    }
+
 
-    protected abstract void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args) ;
+    protected abstract void appendStatement(StringBuilder sb, Object proxy, Method method, Object[] args, Configuration config) ;
 
     protected boolean needsLogging(Object proxy, Method method, Object[] args) {
         return false;
     }
 
-    protected void logBeforeInvoke(Object proxy, Method method, Object[] args, StringBuilder sb) {
-        if (ConfigurationParameters.logBeforeStatement) {
+    protected void logBeforeInvoke(Object proxy, Method method, Object[] args, StringBuilder sb, Configuration config) {
+        if (config.logBeforeStatement) {
             getLogger().info(sb.toString());
         }
     }
@@ -130,23 +504,24 @@ public abstract class StatementLoggingHandlerTemplate<T extends Statement> exten
         return wrap(logMetaData, result);
     }
 
-    protected void logAfterInvoke(Object proxy, Method method, Object[] args, Object result, long elapsedTimeInNano, StringBuilder message) {
+    protected void logAfterInvoke(Object proxy, Method method, Object[] args, Object result, long elapsedTimeInNano, StringBuilder message,
+                                  Configuration config) {
 
         StringBuilder endMessage = message;
-        if ( ! ConfigurationParameters.logDetailAfterStatement) {
+        if ( ! config.logDetailAfterStatement) {
             // replace the log message to a simple message
 
             endMessage = new StringBuilder("END:    ")
                         .append(method.getDeclaringClass().getName()).append(".").append(method.getName())
                         .append(": ");
-            appendStackTrace(endMessage);
-            appendElapsedTime(endMessage, elapsedTimeInNano);
+            appendStackTrace(endMessage, config);
+            appendElapsedTime(endMessage, elapsedTimeInNano, config);
 
         }
 
         getLogger().info(endMessage.toString());
 
-        if (elapsedTimeInNano >= ConfigurationParameters.slowQueryThresholdInNano) {
+        if (elapsedTimeInNano >= config.slowQueryThresholdInNano) {
             getSlowQueryLogger().info(message.toString());       // log the original message
         }
 
@@ -156,8 +531,8 @@ public abstract class StatementLoggingHandlerTemplate<T extends Statement> exten
         return true;
     }
 
-    protected void handleException(Throwable t, Object proxy, Method method, Object[] args) throws Throwable {
-        LogUtils.handleException(t, getLogger(), LogUtils.createLogEntry(method, null, null, null));
+    protected void handleException(Throwable t, Object proxy, Method method, Object[] args, Configuration config) throws Throwable {
+        LogUtils.handleException(t, getLogger(), LogUtils.createLogEntry(method, null, null, null, config));
     }
 
     protected Logger getLogger() {
@@ -0,0 +1,138 @@
+package org.jdbcdslog;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampling of statement logging.  A sampled statement is logged as usual, while an unsampled one is only
+ * timed so that slow query logging still applies.  Errors are always logged.
+ *
+ * <ul>
+ * <li><code>jdbcdslog.sampling.rate</code>: ratio (0.0 - 1.0) of statements to be logged. Default 1.0, which
+ *      means sampling is disabled.</li>
+ * <li><code>jdbcdslog.sampling.scope</code>: <code>statement</code> (default) makes the decision for each
+ *      statement; <code>connection</code> makes it once per connection; <code>transaction</code> makes it once per
+ *      transaction, so that all statements of a sampled connection or transaction are logged together.</li>
+ * <li><code>jdbcdslog.sampling.fingerprintInterval</code>: if set, a statement is always logged if no statement of
+ *      the same fingerprint has been logged in this interval, so that every statement shape is seen.</li>
+ * </ul>
+ */
+public class StatementSampler {
+    public enum Scope {
+        STATEMENT, CONNECTION, TRANSACTION
+    }
+
+    private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private static final ConcurrentMap<String, AtomicLong> lastLoggedTimeInNano = new ConcurrentHashMap<String, AtomicLong>();
+
+    /** maximum number of fingerprints tracked for fingerprint interval */
+    static final int MAX_FINGERPRINTS = 10000;
+
+    public static boolean isEnabled() {
+        return isEnabled(ConfigurationParameters.current());
+    }
+
+    /**
+     * Whether sampling applies to connections of the given configuration.
+     */
+    static boolean isEnabled(Configuration config) {
+        return config.samplingRate < 1.0 || OverheadGovernor.isSampling();
+    }
+
+    /**
+     * Sampling rate in effect, which may be lowered by overhead governor.
+     */
+    static double effectiveRate() {
+        return effectiveRate(ConfigurationParameters.current());
+    }
+
+    static double effectiveRate(Configuration config) {
+        if (OverheadGovernor.isSampling()) {
+            return OverheadGovernor.isSlowQueryOnly() ? 0.0 : Math.min(config.samplingRate, config.governorSamplingRate);
+        }
+        return config.samplingRate;
+    }
+
+    public static boolean needsFingerprint() {
+        return needsFingerprint(ConfigurationParameters.current());
+    }
+
+    static boolean needsFingerprint(Configuration config) {
+        return config.samplingFingerprintIntervalInNano > 0;
+    }
+
+    /**
+     * Sampling decision for a new connection or transaction.
+     */
+    public static boolean sampleTrace() {
+        return sampleTrace(ConfigurationParameters.current());
+    }
+
+    static boolean sampleTrace(Configuration config) {
+        return config.samplingRate >= 1.0 || random.get().nextDouble() < config.samplingRate;
+    }
+
+    /**
+     * Sampling decision for a statement.
+     *
+     * @param logMetaData log meta data of connection of the statement, holding connection/transaction sampling decision
+     * @param fingerprint fingerprint of the statement, only needed when fingerprint interval is configured
+     */
+    public static boolean isSampled(LogMetaData logMetaData, SqlFingerprint fingerprint) {
+        return isSampled(logMetaData, fingerprint,
+                         logMetaData == null ? ConfigurationParameters.current() : logMetaData.getConfiguration());
+    }
+
+    static boolean isSampled(LogMetaData logMetaData, SqlFingerprint fingerprint, Configuration config) {
+        if (OverheadGovernor.isSlowQueryOnly()) {
+            return false;
+        }
+
+        boolean sampled;
+        if (config.samplingScope == Scope.STATEMENT || logMetaData == null || OverheadGovernor.isSampling()) {
+            sampled = random.get().nextDouble() < effectiveRate(config);
+        } else {
+            sampled = logMetaData.isSampled();
+        }
+
+        if (fingerprint != null && needsFingerprint(config)) {
+            sampled = claimFingerprint(fingerprint, sampled, config.samplingFingerprintIntervalInNano);
+        }
+        return sampled;
+    }
+
+    /**
+     * Track last logged time of fingerprint, and force sampling if fingerprint is not logged within interval.
+     */
+    private static boolean claimFingerprint(SqlFingerprint fingerprint, boolean sampled, long intervalInNano) {
+        long now = System.nanoTime();
+        AtomicLong lastLogged = lastLoggedTimeInNano.get(fingerprint.getId());
+        if (lastLogged == null) {
+            if (lastLoggedTimeInNano.size() >= MAX_FINGERPRINTS) {
+                lastLoggedTimeInNano.clear();
+            }
+            lastLogged = new AtomicLong(now);
+            AtomicLong existing = lastLoggedTimeInNano.putIfAbsent(fingerprint.getId(), lastLogged);
+            if (existing == null) {
+                return true;            // first occurrence
+            }
+            lastLogged = existing;
+        }
+
+        long last = lastLogged.get();
+        if (sampled) {
+            lastLogged.compareAndSet(last, now);
+            return true;
+        }
+        return now - last >= intervalInNano
+                && lastLogged.compareAndSet(last, now);
+    }
+}
@@ -0,0 +1,118 @@
+package org.jdbcdslog;
+
+import static org.jdbcdslog.Loggers.summaryLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a summary of JDBC activity every <code>jdbcdslog.summary.interval</code>: throughput and latency
+ * percentiles per statement category, slow queries, errors by SQLState, active connections and the
+ * statement shapes taking most time in the interval.  Figures are differences of {@link JdbcStatistics}
+ * snapshots, taken by a daemon thread, so handlers only update counters.
+ */
+public class SummaryReporter implements Runnable {
+    private static ScheduledExecutorService scheduler;
+
+    private JdbcStatistics.Snapshot previous = JdbcStatistics.snapshot();
+
+    static synchronized void startIfConfigured() {
+        if (scheduler != null || ConfigurationParameters.summaryIntervalInNano <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jdbcdslog-summary");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new SummaryReporter(),
+                                      ConfigurationParameters.summaryIntervalInNano,
+                                      ConfigurationParameters.summaryIntervalInNano,
+                                      TimeUnit.NANOSECONDS);
+    }
+
+    public void run() {
+        try {
+            JdbcStatistics.Snapshot current = JdbcStatistics.snapshot();
+            JdbcStatistics.Snapshot delta = current.minus(previous);
+            long intervalInNano = current.getTimeInNano() - previous.getTimeInNano();
+            previous = current;
+            if (summaryLogger.isInfoEnabled()) {
+                summaryLogger.info(format(delta, intervalInNano, ConfigurationParameters.summaryTopStatements));
+            }
+        } catch (RuntimeException e) {
+            summaryLogger.warn("Unable to report JDBC summary", e);    // keep the schedule going
+        }
+    }
+
+    static String format(JdbcStatistics.Snapshot delta, long intervalInNano, int topStatements) {
+        double seconds = Math.max(intervalInNano, 1) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("JDBC summary of last %.1f s: %d statements (%.1f/s), %d slow, %d errors, "
+                                + "%d active connections, %d connections opened, %d rows fetched",
+                                seconds, delta.getExecutionCount(), delta.getExecutionCount() / seconds,
+                                delta.getSlowCount(), delta.getErrorCount(), delta.getActiveConnections(),
+                                delta.getOpenedConnections(), delta.getFetchedRows()));
+
+        for (JdbcStatistics.Category category : JdbcStatistics.Category.values()) {
+            long count = delta.getExecutionCount(category);
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%n  %-6s %8d (%.1f/s) p50 %s p95 %s p99 %s",
+                                    category.getLabel(), count, count / seconds,
+                                    formatTime(delta.getPercentileInNano(category, 0.5)),
+                                    formatTime(delta.getPercentileInNano(category, 0.95)),
+                                    formatTime(delta.getPercentileInNano(category, 0.99))));
+        }
+
+        if (!delta.getErrors().isEmpty()) {
+            sb.append(String.format("%n  errors by SQLState: ")).append(new TreeMap<String, Long>(delta.getErrors()));
+        }
+
+        List<JdbcStatistics.ShapeSnapshot> shapes = topShapes(delta, topStatements);
+        if (!shapes.isEmpty()) {
+            sb.append(String.format("%n  top statements by total time:"));
+            for (JdbcStatistics.ShapeSnapshot shape : shapes) {
+                sb.append(String.format("%n    %s total, %d executions, %s avg [%s] %s",
+                                        formatTime(shape.getTotalTimeInNano()), shape.getCount(),
+                                        formatTime(shape.getTotalTimeInNano() / shape.getCount()),
+                                        shape.getId(), shape.getNormalizedSql()));
+            }
+        }
+        return sb.toString();
+    }
+
+    static List<JdbcStatistics.ShapeSnapshot> topShapes(JdbcStatistics.Snapshot delta, int count) {
+        List<JdbcStatistics.ShapeSnapshot> shapes = new ArrayList<JdbcStatistics.ShapeSnapshot>();
+        for (Map.Entry<String, JdbcStatistics.ShapeSnapshot> entry : delta.getShapes().entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                shapes.add(entry.getValue());
+            }
+        }
+        Collections.sort(shapes, new Comparator<JdbcStatistics.ShapeSnapshot>() {
+            public int compare(JdbcStatistics.ShapeSnapshot a, JdbcStatistics.ShapeSnapshot b) {
+                long diff = b.getTotalTimeInNano() - a.getTotalTimeInNano();
+                return diff > 0 ? 1 : (diff < 0 ? -1 : 0);
+            }
+        });
+        return shapes.size() > count ? shapes.subList(0, count) : shapes;
+    }
+
+    private static String formatTime(long timeInNano) {
+        if (timeInNano >= 1000000000L) {
+            return String.format("%.3f s", timeInNano / 1e9);
+        }
+        return String.format("%.3f ms", timeInNano / 1e6);
+    }
+}
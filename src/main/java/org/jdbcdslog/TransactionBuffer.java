@@ -0,0 +1,103 @@
+package org.jdbcdslog;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffer of unrendered statement events of the current transaction of a connection, for tail-based
+ * transaction logging.  At the end of transaction, the buffer is rendered only if the transaction was
+ * slow, not committed or had an error, and discarded otherwise.
+ */
+public class TransactionBuffer {
+    private final List<StatementEvent> events = new ArrayList<StatementEvent>();    // slots reused across transactions
+    private volatile boolean autoCommit = true;
+    private int count = 0;
+    private int dropped = 0;
+    private long startTimeInNano = 0;
+    private boolean failed = false;
+
+    /**
+     * @return a transaction buffer, or null if tail-based transaction logging is disabled
+     */
+    public static TransactionBuffer create() {
+        return ConfigurationParameters.transactionTail ? new TransactionBuffer() : null;
+    }
+
+    /**
+     * @return true if statements are executed in a transaction which is explicitly ended by commit or rollback
+     */
+    public boolean isInTransaction() {
+        return !autoCommit;
+    }
+
+    public void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+    }
+
+    /**
+     * Claim a slot to record a statement execution.  Caller fills it by {@link StatementEvent#set}.
+     *
+     * @return slot for event, or null if the buffer is full
+     */
+    public synchronized StatementEvent nextEvent() {
+        if (count == 0 && dropped == 0) {
+            startTimeInNano = System.nanoTime();
+        }
+        if (count >= ConfigurationParameters.transactionTailMaxStatements) {
+            ++dropped;
+            return null;
+        }
+        if (count == events.size()) {
+            events.add(new StatementEvent());
+        }
+        return events.get(count++);
+    }
+
+    public synchronized void markFailed() {
+        failed = true;
+    }
+
+    /**
+     * End current transaction and reset the buffer.
+     *
+     * @param outcome how the transaction ended, e.g. "committed"
+     * @param committed whether the transaction ended successfully
+     * @return rendered transaction if it needs to be logged, null otherwise
+     */
+    public synchronized String end(String outcome, boolean committed) {
+        if (count == 0 && dropped == 0) {
+            failed = false;
+            return null;
+        }
+        long elapsedTimeInNano = System.nanoTime() - startTimeInNano;
+        String result = null;
+
+        if (!committed || failed || elapsedTimeInNano >= ConfigurationParameters.transactionTailThresholdInNano) {
+            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+            StringBuilder sb = new StringBuilder("Transaction ").append(outcome);
+            if (failed) {
+                sb.append(" with errors");
+            }
+            sb.append(" after ").append(String.format("%.9f", elapsedTimeInNano/1000000000.0)).append(" s, ")
+              .append(count + dropped).append(" statements");
+            if (dropped > 0) {
+                sb.append(" (").append(dropped).append(" not recorded)");
+            }
+            sb.append(":");
+            for (int i = 0; i < count; ++i) {
+                sb.append("\n  [").append(i + 1).append("] ");
+                events.get(i).appendTo(sb, timeFormat);
+            }
+            result = sb.toString();
+        }
+
+        for (int i = 0; i < count; ++i) {
+            events.get(i).clear();
+        }
+        count = 0;
+        dropped = 0;
+        failed = false;
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BlackBoxRecorderTest {
+    private static jdbcDataSource ds;
+
+    private Connection con;
+    private LogCapture statementCapture;
+    private LogCapture slowQueryCapture;
+    private long originalSlowQueryThreshold;
+
+    @BeforeClass
+    public static void setUpDatabase() throws Exception {
+        ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:blackboxtest");
+        ds.setUser("sa");
+        Connection c = ds.getConnection();
+        c.createStatement().execute("create table black_box_test (a integer primary key)");
+        c.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationParameters.blackBoxSize = 3;
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+        slowQueryCapture = new LogCapture("org.jdbcdslog.SlowQueryLogger");
+        originalSlowQueryThreshold = ConfigurationParameters.slowQueryThresholdInNano;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        statementCapture.close();
+        slowQueryCapture.close();
+        con.close();
+        ConfigurationParameters.blackBoxSize = 0;
+        ConfigurationParameters.slowQueryThresholdInNano = originalSlowQueryThreshold;
+        ConfigurationParameters.publish();
+    }
+
+    @Test
+    public void testRingKeepsMostRecentInOrder() {
+        BlackBoxRecorder recorder = new BlackBoxRecorder(2);
+        assertNull(recorder.dump());
+
+        Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+        for (int i = 1; i <= 3; i++) {
+            parameters.put(1, i);
+            recorder.record("executeUpdate", "update t set a = ?", parameters, null, 0, false);
+        }
+        String dump = recorder.dump();
+        assertFalse(dump.contains("update t set a = 1"));
+        assertTrue(dump.indexOf("[1] ") < dump.indexOf("update t set a = 2"));
+        assertTrue(dump.indexOf("update t set a = 2") < dump.indexOf("[2] "));
+        assertTrue(dump.contains("update t set a = 3"));
+    }
+
+    @Test
+    public void testDumpedOnError() throws Exception {
+        PreparedStatement ps = con.prepareStatement("insert into black_box_test values(?)");
+        for (int i = 0; i < 4; i++) {
+            ps.setInt(1, i);
+            ps.executeUpdate();
+        }
+        ps.setInt(1, 3);
+        try {
+            ps.executeUpdate();
+            fail("duplicate key expected");
+        } catch (SQLException expected) {
+        }
+        ps.close();
+
+        List<String> dumps = statementCapture.getMessagesContaining("Recent statements");
+        assertEquals(1, dumps.size());
+        String dump = dumps.get(0);
+        assertFalse(dump.contains("insert into black_box_test values(1)"));
+        assertTrue(dump.indexOf("values(2)") < dump.indexOf("values(3)"));
+        assertTrue(dump.contains("values(3); (") && dump.endsWith("FAILED)"));
+    }
+
+    @Test
+    public void testDumpedOnSlowQuery() throws Exception {
+        con.createStatement().executeQuery("select * from black_box_test where a = 100").close();
+        ConfigurationParameters.slowQueryThresholdInNano = 0;
+        ConfigurationParameters.publish();
+        con.createStatement().executeQuery("select * from black_box_test where a = 200").close();
+
+        List<String> dumps = slowQueryCapture.getMessagesContaining("Recent statements");
+        assertEquals(1, dumps.size());
+        assertTrue(dumps.get(0).indexOf("a = 100") < dumps.get(0).indexOf("a = 200"));
+    }
+}
@@ -0,0 +1,68 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.junit.Test;
+
+public class ColumnUsageProfilerTest {
+
+    private static ResultSetMetaData metaData() throws Exception {
+        ResultSetMetaData md = mock(ResultSetMetaData.class);
+        when(md.getColumnCount()).thenReturn(4);
+        when(md.getColumnLabel(1)).thenReturn("ID");
+        when(md.getColumnLabel(2)).thenReturn("NAME");
+        when(md.getColumnLabel(3)).thenReturn("DESCRIPTION");
+        when(md.getColumnLabel(4)).thenReturn("CREATED");
+        when(md.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(md.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(md.getColumnDisplaySize(2)).thenReturn(40);
+        when(md.getColumnType(3)).thenReturn(Types.VARCHAR);
+        when(md.getColumnDisplaySize(3)).thenReturn(1000);
+        when(md.getColumnType(4)).thenReturn(Types.TIMESTAMP);
+        return md;
+    }
+
+    @Test
+    public void testMarkColumn() {
+        long[] columns = ColumnUsageProfiler.newColumnSet(70);
+        assertEquals(2, columns.length);
+        ColumnUsageProfiler.markColumn(columns, 1);
+        ColumnUsageProfiler.markColumn(columns, 66);
+        ColumnUsageProfiler.markColumn(columns, 500);       // out of range, ignored
+        assertEquals(1L, columns[0]);
+        assertEquals(2L, columns[1]);
+    }
+
+    @Test
+    public void testDescribeOverFetching() throws Exception {
+        ColumnUsageProfiler.ColumnUsage usage = new ColumnUsageProfiler.ColumnUsage("select * from t", metaData());
+        long[] used = ColumnUsageProfiler.newColumnSet(4);
+        ColumnUsageProfiler.markColumn(used, 1);
+        usage.merge(used);
+        used = ColumnUsageProfiler.newColumnSet(4);
+        ColumnUsageProfiler.markColumn(used, 2);
+        usage.merge(used);
+
+        assertEquals("Column usage: fingerprint abc reads 2 of 4 columns in 2 ResultSets; never read: [DESCRIPTION, CREATED], "
+                        + "~1012 of 1060 bytes per row.  SQL: select * from t",
+                ColumnUsageProfiler.describeOverFetching("abc", usage));
+    }
+
+    @Test
+    public void testNotOverFetching() throws Exception {
+        ColumnUsageProfiler.ColumnUsage usage = new ColumnUsageProfiler.ColumnUsage("select * from t", metaData());
+        long[] used = ColumnUsageProfiler.newColumnSet(4);
+        ColumnUsageProfiler.markColumn(used, 1);
+        ColumnUsageProfiler.markColumn(used, 2);
+        ColumnUsageProfiler.markColumn(used, 3);
+        usage.merge(used);
+
+        assertNull(ColumnUsageProfiler.describeOverFetching("abc", usage));
+    }
+}
@@ -18,15 +18,17 @@ public class ConfigurationParametersTest {
         // Given
         Properties mockProperties = mock(Properties.class);
         ConfigurationParameters.props = mockProperties;
-        long defaultThreshold = ConfigurationParameters.slowQueryThresholdInNano;
+        long oldThreshold = ConfigurationParameters.slowQueryThresholdInNano;
+        ConfigurationParameters.slowQueryThresholdInNano = 1000L * 1000000L;
 
         when(mockProperties.getProperty("jdbcdslog.slowQueryThreshold")).thenReturn(null);
 
         // When
         ConfigurationParameters.initSlowQueryThreshold();
 
-        // Then
-        assertEquals("slowQueryTheshold", defaultThreshold, ConfigurationParameters.slowQueryThresholdInNano);
+        // Then, the default as the setting may have been removed on reload
+        assertEquals("slowQueryTheshold", Long.MAX_VALUE, ConfigurationParameters.slowQueryThresholdInNano);
+        ConfigurationParameters.slowQueryThresholdInNano = oldThreshold;
     }
 
     @Test
@@ -0,0 +1,142 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigurationProfileTest {
+    private Properties oldProps;
+    private LogCapture slowQueryCapture;
+
+    @Before
+    public void setUp() throws Exception {
+        oldProps = ConfigurationParameters.props;
+        ConfigurationParameters.props = new Properties();
+        InputStream in = getClass().getClassLoader().getResourceAsStream("jdbcdslog.properties");
+        try {
+            ConfigurationParameters.props.load(in);
+        } finally {
+            in.close();
+        }
+        ConfigurationParameters.props.setProperty("jdbcdslog.profile.reporting.slowQueryThreshold", "1ns");
+        ConfigurationParameters.props.setProperty("jdbcdslog.profile.reporting.showTime", "true");
+        ConfigurationParameters.props.setProperty("jdbcdslog.profile.reporting.sampling.rate", "0.5");
+        ConfigurationParameters.publish();
+        slowQueryCapture = new LogCapture("org.jdbcdslog.SlowQueryLogger");
+    }
+
+    @After
+    public void tearDown() {
+        slowQueryCapture.close();
+        ConfigurationParameters.props = oldProps;
+        ConfigurationParameters.publish();
+    }
+
+    @Test
+    public void testProfileOverridesGlobalSettings() {
+        Configuration global = ConfigurationParameters.current();
+        Configuration reporting = ConfigurationProfile.forName("reporting").getConfiguration();
+
+        assertEquals(1L, reporting.getSlowQueryThresholdInNano());
+        assertTrue(reporting.isShowTime());
+        assertEquals(0.5, reporting.getSamplingRate(), 0.0);
+        assertEquals(global.isPrintStackTrace(), reporting.isPrintStackTrace());
+        assertEquals(global.isLogAddBatch(), reporting.isLogAddBatch());
+
+        assertSame(global, ConfigurationProfile.forName(null).getConfiguration());
+        assertEquals(global.getSlowQueryThresholdInNano(),
+                     ConfigurationProfile.forName("unknown").getConfiguration().getSlowQueryThresholdInNano());
+    }
+
+    @Test
+    public void testProfileFollowsGlobalChanges() {
+        ConfigurationProfile reporting = ConfigurationProfile.forName("reporting");
+        ConfigurationParameters.props.setProperty("jdbcdslog.profile.reporting.slowQueryThreshold", "2s");
+        ConfigurationParameters.props.setProperty("jdbcdslog.printStackTrace", "true");
+        ConfigurationParameters.printStackTrace = true;
+        ConfigurationParameters.publish();
+        try {
+            assertEquals(2000000000L, reporting.getConfiguration().getSlowQueryThresholdInNano());
+            assertTrue(reporting.getConfiguration().isPrintStackTrace());
+        } finally {
+            ConfigurationParameters.printStackTrace = false;
+        }
+    }
+
+    @Test
+    public void testInvalidProfileSettingRejectedOnReload() {
+        Properties newProps = new Properties();
+        newProps.setProperty("jdbcdslog.profile.batch.logAddBatch", "maybe");
+        newProps.setProperty("jdbcdslog.profile.batch.slowQueryThreshold", "soon");
+
+        List<String> problems = ConfigurationParameters.validate(newProps);
+        assertEquals(problems.toString(), 2, problems.size());
+        assertTrue(problems.toString(), problems.toString().contains("jdbcdslog.profile.batch.logAddBatch=maybe"));
+    }
+
+    @Test
+    public void testSplitUrl() {
+        String[] split = ConfigurationProfile.splitUrl("jdbc:hsqldb:mem:x;profile=reporting;targetDriver=org.hsqldb.jdbcDriver");
+        assertEquals("jdbc:hsqldb:mem:x;targetDriver=org.hsqldb.jdbcDriver", split[0]);
+        assertEquals("reporting", split[1]);
+
+        split = ConfigurationProfile.splitUrl("jdbc:postgresql://h/db?profile=reporting&ssl=true");
+        assertEquals("jdbc:postgresql://h/db?ssl=true", split[0]);
+        assertEquals("reporting", split[1]);
+
+        split = ConfigurationProfile.splitUrl("jdbc:postgresql://h/db?ssl=true&profile=reporting");
+        assertEquals("jdbc:postgresql://h/db?ssl=true", split[0]);
+
+        split = ConfigurationProfile.splitUrl("jdbc:hsqldb:mem:x");
+        assertEquals("jdbc:hsqldb:mem:x", split[0]);
+        assertNull(split[1]);
+    }
+
+    @Test
+    public void testDriverUrlProfile() throws Exception {
+        Properties info = new Properties();
+        info.put("user", "sa");
+        DriverLoggingProxy driver = new DriverLoggingProxy();
+        Connection reporting = driver.connect("jdbc:jdbcdslog:hsqldb:mem:profiletest;profile=reporting;targetDriver=org.hsqldb.jdbcDriver", info);
+        Connection plain = driver.connect("jdbc:jdbcdslog:hsqldb:mem:profiletest;targetDriver=org.hsqldb.jdbcDriver", info);
+        try {
+            plain.createStatement().execute("create table profile_test (a integer)");
+            plain.createStatement().executeQuery("select * from profile_test where a = 1").close();
+            assertFalse(slowQueryCapture.getMessages().toString(),
+                        slowQueryCapture.getMessages().toString().contains("profile_test"));
+
+            reporting.createStatement().executeQuery("select * from profile_test where a = 2").close();
+            assertEquals(1, slowQueryCapture.getMessagesContaining("profile_test where a = 2").size());
+        } finally {
+            reporting.close();
+            plain.close();
+        }
+    }
+
+    @Test
+    public void testDataSourceProfile() throws Exception {
+        ConnectionPoolXADataSourceProxy ds = new ConnectionPoolXADataSourceProxy();
+        ds.setDatabase("jdbc:hsqldb:mem:profiletest;profile=reporting;targetDS=org.hsqldb.jdbc.jdbcDataSource");
+        ds.setUser("sa");
+        assertEquals("reporting", ds.getProfile());
+
+        Connection con = ds.getConnection();
+        try {
+            con.createStatement().execute("create table profile_ds_test (a integer)");
+            assertEquals(1, slowQueryCapture.getMessagesContaining("create table profile_ds_test").size());
+        } finally {
+            con.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigurationWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Properties oldProps;
+    private File file;
+    private ConfigurationWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        oldProps = ConfigurationParameters.props;
+        file = folder.newFile("jdbcdslog.properties");
+        write("jdbcdslog.slowQueryThreshold=1000\n");
+        watcher = new ConfigurationWatcher(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Properties testProps = new Properties();
+        InputStream in = getClass().getClassLoader().getResourceAsStream("jdbcdslog.properties");
+        try {
+            testProps.load(in);
+        } finally {
+            in.close();
+        }
+        ConfigurationParameters.reload(testProps);
+        ConfigurationParameters.props = oldProps;
+    }
+
+    private void write(String content) throws Exception {
+        long lastModified = file.lastModified();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        file.setLastModified(lastModified + 2000);        // file systems with coarse timestamps
+    }
+
+    @Test
+    public void testReloadPublishesNewConfiguration() throws Exception {
+        Configuration before = ConfigurationParameters.current();
+        assertFalse(watcher.checkForChange());
+
+        write("jdbcdslog.slowQueryThreshold=250ms\n"
+              + "jdbcdslog.logBeforeStatement=true\n"
+              + "jdbcdslog.logDetailAfterStatement=false\n");
+        assertTrue(watcher.checkForChange());
+
+        Configuration after = ConfigurationParameters.current();
+        assertNotSame(before, after);
+        assertEquals(250L * 1000000L, after.getSlowQueryThresholdInNano());
+        assertTrue(after.isLogBeforeStatement());
+        assertFalse(after.isLogDetailAfterStatement());
+        assertEquals(1000L * 1000000L, before.getSlowQueryThresholdInNano());     // snapshots never change
+        assertFalse(before.isLogBeforeStatement());
+        assertFalse(watcher.checkForChange());
+    }
+
+    @Test
+    public void testRemovedPropertiesRevertToDefaults() throws Exception {
+        write("jdbcdslog.slowQueryThreshold=250ms\n"
+              + "jdbcdslog.showTime=true\n"
+              + "jdbcdslog.outputFormat=json\n"
+              + "jdbcdslog.sampling.rate=0.5\n");
+        assertTrue(watcher.checkForChange());
+        assertEquals(250L * 1000000L, ConfigurationParameters.current().getSlowQueryThresholdInNano());
+
+        write("# all settings removed\n");
+        assertTrue(watcher.checkForChange());
+        Configuration after = ConfigurationParameters.current();
+        assertEquals(Long.MAX_VALUE, after.getSlowQueryThresholdInNano());
+        assertFalse(after.isShowTime());
+        assertFalse(after.isJsonOutput());
+        assertEquals(1.0, after.getSamplingRate(), 0.0);
+    }
+
+    @Test
+    public void testInvalidPropertiesAreRejected() throws Exception {
+        Configuration before = ConfigurationParameters.current();
+        write("jdbcdslog.slowQueryThreshold=soon\n"
+              + "jdbcdslog.logBeforeStatement=yes\n");
+        assertFalse(watcher.checkForChange());
+        assertSame(before, ConfigurationParameters.current());
+
+        Properties props = new Properties();
+        props.setProperty("jdbcdslog.slowQueryThreshold", "soon");
+        props.setProperty("jdbcdslog.logBeforeStatement", "yes");
+        props.setProperty("jdbcdslog.printStackTracePattern", "(");
+        props.setProperty("jdbcdslog.sampling.rate", "2");
+        assertEquals(4, ConfigurationParameters.validate(props).size());
+    }
+
+    @Test
+    public void testOnlyFilesAreWatched() throws Exception {
+        assertEquals(file, ConfigurationWatcher.toFile(file.toURI().toURL()));
+        assertEquals(null, ConfigurationWatcher.toFile(new URL("jar:file:/tmp/a.jar!/jdbcdslog.properties")));
+    }
+}
@@ -0,0 +1,143 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<JournalReader.Record> readAll(File directory) throws Exception {
+        final List<JournalReader.Record> records = new ArrayList<JournalReader.Record>();
+        new JournalReader().readDirectory(directory, new JournalReader.Handler() {
+            public void handle(JournalReader.Record record) {
+                records.add(record);
+            }
+        });
+        return records;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        EventJournal journal = new EventJournal(folder.getRoot(), 64 * 1024, 2);
+        Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+        parameters.put(1, -5);
+        parameters.put(2, "日本");
+        parameters.put(3, null);
+        parameters.put(4, 1.5d);
+        parameters.put(5, new BigDecimal("12.30"));
+        parameters.put(6, new byte[] { 1, 2 });
+        parameters.put(7, Boolean.TRUE);
+
+        journal.append(EventJournal.TYPE_EXECUTE,
+                       JdbcEvent.acquire(null, "executeQuery").statement("select ?", parameters, null).elapsedTime(1234).rowCount(7));
+        journal.append(EventJournal.TYPE_ERROR,
+                       JdbcEvent.acquire(null, "executeUpdate").throwable(new IllegalStateException("boom")));
+
+        List<JournalReader.Record> records = readAll(folder.getRoot());
+        assertEquals(2, records.size());
+        JournalReader.Record record = records.get(0);
+        assertEquals("execute", record.getTypeName());
+        assertEquals("select ?", record.getSql());
+        assertEquals(1234, record.getElapsedTimeInNano());
+        assertEquals(7, record.getRowCount());
+        assertEquals(-1, record.getBatchSize());
+        assertEquals(-5L, record.getParameters().get(1));
+        assertEquals("日本", record.getParameters().get(2));
+        assertNull(record.getParameters().get(3));
+        assertEquals(1.5d, record.getParameters().get(4));
+        assertEquals(new BigDecimal("12.30"), record.getParameters().get(5));
+        assertArrayEquals(new byte[] { 1, 2 }, (byte[]) record.getParameters().get(6));
+        assertEquals(Boolean.TRUE, record.getParameters().get(7));
+        assertTrue(Math.abs(record.getTimestampInNano() / 1000000L - System.currentTimeMillis()) < 60000);
+
+        assertEquals("java.lang.IllegalStateException: boom", records.get(1).getError());
+        assertTrue(records.get(1).toString().contains("error executeUpdate"));
+    }
+
+    @Test
+    public void testConcurrentWritersAndRetention() throws Exception {
+        final EventJournal journal = new EventJournal(folder.getRoot(), 8 * 1024, 1000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int threadNo = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+                    for (int i = 0; i < 2000; i++) {
+                        parameters.put(1, threadNo * 10000 + i);
+                        journal.append(EventJournal.TYPE_EXECUTE,
+                                       JdbcEvent.acquire(null, "executeUpdate").statement("update t" + (i % 10) + " set a = ?", parameters, null));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<JournalReader.Record> records = readAll(folder.getRoot());
+        assertEquals(8000, records.size());
+        Set<Long> values = new HashSet<Long>();
+        for (JournalReader.Record record : records) {
+            assertTrue(record.getSql(), record.getSql().startsWith("update t"));
+            values.add((Long) record.getParameters().get(1));
+        }
+        assertEquals(8000, values.size());
+        assertEquals(0, journal.getDroppedRecords());
+        assertTrue(EventJournal.listSegments(folder.getRoot()).length > 1);
+
+        File retained = folder.newFolder("retained");
+        EventJournal small = new EventJournal(retained, 4 * 1024, 3);
+        for (int i = 0; i < 1000; i++) {
+            small.append(EventJournal.TYPE_COMMIT, JdbcEvent.acquire(null, "commit"));
+        }
+        assertEquals(3, EventJournal.listSegments(retained).length);
+    }
+
+    @Test
+    public void testJournalListener() throws Exception {
+        JournalListener listener = new JournalListener(new EventJournal(folder.getRoot(), 64 * 1024, 2));
+        JdbcEventListeners.register(listener);
+        try {
+            jdbcDataSource ds = new jdbcDataSource();
+            ds.setDatabase("jdbc:hsqldb:mem:journaltest");
+            ds.setUser("sa");
+            Connection con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+            PreparedStatement ps = con.prepareStatement("select count(*) from information_schema.system_tables where table_name = ?");
+            ps.setString(1, "SYSTEM_TABLES");
+            ps.executeQuery().close();
+            ps.close();
+            con.close();
+        } finally {
+            JdbcEventListeners.unregister(listener);
+        }
+
+        List<JournalReader.Record> records = readAll(folder.getRoot());
+        assertEquals(3, records.size());
+        assertEquals("connectionOpened", records.get(0).getTypeName());
+        assertTrue(records.get(1).toString(), records.get(1).toString().contains(
+                "execute executeQuery: select count(*) from information_schema.system_tables where table_name = ? parameters: {1=SYSTEM_TABLES}"));
+        assertEquals("resultSetClosed", records.get(2).getTypeName());
+    }
+}
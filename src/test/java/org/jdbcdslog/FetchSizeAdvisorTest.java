@@ -0,0 +1,59 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.PreparedStatement;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FetchSizeAdvisorTest {
+    @After
+    public void tearDown() {
+        ConfigurationParameters.fetchSizes.clear();
+        ConfigurationParameters.publish();
+    }
+
+    private static FetchSizeAdvisor.FetchStatistics statistics(int fetchSize, int resultSets, int rows, int stalls) {
+        FetchSizeAdvisor.FetchStatistics stat = new FetchSizeAdvisor.FetchStatistics("select * from t");
+        stat.fetchSize = fetchSize;
+        stat.resultSetCount.set(resultSets);
+        stat.rowCount.set(rows);
+        stat.stallCount.set(stalls);
+        return stat;
+    }
+
+    @Test
+    public void testRecommendForSmallFetchSize() {
+        assertEquals("Fetch size advice: fingerprint abc averages 40000 rows in 2 executions at fetch size 10; "
+                        + "~4000 round trips (3999 slow fetches) per execution.  Consider jdbcdslog.fetchSize.abc=1000 for: select * from t",
+                FetchSizeAdvisor.recommend("abc", statistics(10, 2, 80000, 7998)));
+    }
+
+    @Test
+    public void testNoRecommendForFewRows() {
+        assertNull(FetchSizeAdvisor.recommend("abc", statistics(10, 2, 100, 18)));
+    }
+
+    @Test
+    public void testNoRecommendForLargeFetchSize() {
+        assertNull(FetchSizeAdvisor.recommend("abc", statistics(5000, 2, 80000, 0)));
+    }
+
+    @Test
+    public void testConfiguredFetchSizeApplied() throws Exception {
+        String sql = "select * from t where a = ?";
+        ConfigurationParameters.fetchSizes.put(SqlFingerprint.of(sql).getId(), 123);
+        ConfigurationParameters.publish();
+
+        PreparedStatement target = mock(PreparedStatement.class);
+        PreparedStatement ps = ProxyUtils.wrapByPreparedStatementProxy(LogMetaData.create(), target, sql);
+        ps.setInt(1, 1);
+        ps.executeQuery();
+
+        verify(target).setFetchSize(123);
+    }
+}
@@ -0,0 +1,37 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FetchTimingsTest {
+    @Test
+    public void testNoRow() {
+        FetchTimings timings = new FetchTimings();
+        timings.recordNext(1000, false, 5000);
+
+        assertEquals(0, timings.getRowCount());
+        assertEquals(-1, timings.getTimeToFirstRowInNano());
+        assertEquals(0, timings.getStallCount());
+    }
+
+    @Test
+    public void testTimeToFirstRowAndStalls() {
+        FetchTimings timings = new FetchTimings();
+        timings.recordNext(100000, true, 900000);      // first row, fetched with first block
+        for (int i = 0; i < 9; ++i) {
+            timings.recordNext(1000, true, 0);
+        }
+        timings.recordNext(200000, true, 0);           // next block
+        for (int i = 0; i < 9; ++i) {
+            timings.recordNext(1100, true, 0);
+        }
+        timings.recordNext(900, false, 0);
+
+        assertEquals(20, timings.getRowCount());
+        assertEquals(21, timings.getNextCount());
+        assertEquals(900000, timings.getTimeToFirstRowInNano());
+        assertEquals(2, timings.getStallCount());
+        assertEquals(100000 + 9 * 1000 + 200000 + 9 * 1100 + 900, timings.getTotalFetchTimeInNano());
+    }
+}
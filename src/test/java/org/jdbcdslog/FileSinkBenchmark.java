@@ -0,0 +1,59 @@
+package org.jdbcdslog;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.PatternLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throughput comparison of synchronous log4j file appender through SLF4J against the file sink.  Not part
+ * of the unit tests, run it from the test class path:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.jdbcdslog.FileSinkBenchmark [directory]
+ * </pre>
+ */
+public class FileSinkBenchmark {
+    public static void main(String[] args) throws Exception {
+        File dir = args.length > 0 ? new File(args[0]) : createTempDir();
+        int threads = 4;
+        int linesPerThread = 50000;
+
+        org.apache.log4j.Logger log4jLogger = org.apache.log4j.Logger.getLogger("org.jdbcdslog.FileSinkBenchmark.Slf4j");
+        FileAppender appender = new FileAppender(new PatternLayout("%d{ISO8601} %-5p [%t] %c - %m%n"),
+                                                 new File(dir, "slf4j.log").getPath());
+        log4jLogger.addAppender(appender);
+        log4jLogger.setAdditivity(false);
+        Logger slf4jLogger = LoggerFactory.getLogger("org.jdbcdslog.FileSinkBenchmark.Slf4j");
+        long start = System.nanoTime();
+        try {
+            FileSinkTest.runInThreads(threads, linesPerThread, slf4jLogger);
+        } finally {
+            log4jLogger.removeAppender(appender);
+            appender.close();
+        }
+        long slf4jTime = System.nanoTime() - start;
+
+        FileSink sink = new FileSink(new File(dir, "sink.log"), Long.MAX_VALUE, 1, false, 200L * 1000000L);
+        Logger sinkLogger = new FileSinkLogger(slf4jLogger, sink);
+        start = System.nanoTime();
+        FileSinkTest.runInThreads(threads, linesPerThread, sinkLogger);
+        sink.close();
+        long sinkTime = System.nanoTime() - start;
+
+        int lines = threads * linesPerThread;
+        System.out.println(String.format("%d lines by %d threads: SLF4J/log4j FileAppender %.0f lines/s, file sink %.0f lines/s",
+                                         lines, threads, lines * 1e9 / slf4jTime, lines * 1e9 / sinkTime));
+    }
+
+    private static File createTempDir() throws IOException {
+        File dir = File.createTempFile("filesink", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        return dir;
+    }
+}
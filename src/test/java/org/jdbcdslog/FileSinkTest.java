@@ -0,0 +1,148 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.PatternLayout;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileSinkTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> readLines(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            List<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    static void runInThreads(int threadCount, final int linesPerThread, final Logger logger) throws InterruptedException {
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread("writer-" + t) {
+                @Override
+                public void run() {
+                    for (int i = 0; i < linesPerThread; i++) {
+                        logger.info("select * from test where a = " + i + " ; elapsed 0.000123 s.");
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesKeepOrderOfEachThread() throws Exception {
+        FileSink sink = new FileSink(folder.newFile("statement.log"), Long.MAX_VALUE, 1, false, 10L * 1000000L);
+        Logger logger = new FileSinkLogger(LoggerFactory.getLogger("org.jdbcdslog.StatementLogger"), sink);
+        runInThreads(4, 5000, logger);
+        sink.close();
+
+        List<String> lines = readLines(sink.getFile());
+        assertEquals(20000, lines.size());
+        int[] next = new int[4];
+        for (String line : lines) {
+            assertTrue(line, line.matches("\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d\\.\\d{3} INFO  \\[writer-\\d\\] org.jdbcdslog.StatementLogger - select .*"));
+            int thread = line.charAt(line.indexOf("[writer-") + 8) - '0';
+            assertTrue(line, line.contains("where a = " + next[thread] + " ;"));
+            next[thread]++;
+        }
+    }
+
+    @Test
+    public void testLoggerFormatsMessages() throws Exception {
+        FileSink sink = new FileSink(folder.newFile("connection.log"), Long.MAX_VALUE, 1, false, 1000L * 1000000L);
+        Logger logger = new FileSinkLogger(LoggerFactory.getLogger("org.jdbcdslog.ConnectionLogger"), sink);
+        logger.info("connect to {} as {}", "url", "sa");
+        logger.error("failed", new IllegalStateException("boom"));
+        sink.close();
+
+        List<String> lines = readLines(sink.getFile());
+        assertTrue(lines.get(0), lines.get(0).endsWith("INFO  [main] org.jdbcdslog.ConnectionLogger - connect to url as sa"));
+        assertTrue(lines.get(1), lines.get(1).endsWith("ERROR [main] org.jdbcdslog.ConnectionLogger - failed"));
+        assertEquals("java.lang.IllegalStateException: boom", lines.get(2));
+    }
+
+    @Test
+    public void testRollingWithCompression() throws Exception {
+        FileSink sink = new FileSink(new File(folder.getRoot(), "resultset.log"), 4 * 1024, 3, true, 5L * 1000000L);
+        Logger logger = new FileSinkLogger(LoggerFactory.getLogger("org.jdbcdslog.ResultSetLogger"), sink);
+        for (int i = 0; i < 2000; i++) {
+            logger.info("row " + i);
+            if (i % 100 == 0) {
+                sink.flush();
+            }
+        }
+        sink.close();
+
+        File[] rolled = sink.listRolledFiles();
+        assertEquals(3, rolled.length);
+        int lineCount = readLines(sink.getFile()).size();
+        String lastRolledLine = null;
+        for (File file : rolled) {
+            assertTrue(file.getName(), file.getName().matches("resultset\\.log\\.\\d+\\.gz"));
+            List<String> lines = readLines(file);
+            lineCount += lines.size();
+            lastRolledLine = lines.get(lines.size() - 1);
+        }
+        assertTrue(lastRolledLine, lastRolledLine.contains("row "));
+        assertTrue(lineCount > 100 && lineCount < 2000);
+    }
+
+    @Test
+    public void testSameLinesAsSlf4j() throws Exception {
+        int threads = 4;
+        int linesPerThread = 2000;
+
+        org.apache.log4j.Logger log4jLogger = org.apache.log4j.Logger.getLogger("org.jdbcdslog.FileSinkTest.Slf4j");
+        FileAppender appender = new FileAppender(new PatternLayout("%d{ISO8601} %-5p [%t] %c - %m%n"),
+                                                 new File(folder.getRoot(), "slf4j.log").getPath());
+        log4jLogger.addAppender(appender);
+        log4jLogger.setAdditivity(false);
+        Logger slf4jLogger = LoggerFactory.getLogger("org.jdbcdslog.FileSinkTest.Slf4j");
+        try {
+            runInThreads(threads, linesPerThread, slf4jLogger);
+        } finally {
+            log4jLogger.removeAppender(appender);
+            appender.close();
+        }
+
+        FileSink sink = new FileSink(new File(folder.getRoot(), "sink.log"), Long.MAX_VALUE, 1, false, 200L * 1000000L);
+        runInThreads(threads, linesPerThread, new FileSinkLogger(slf4jLogger, sink));
+        sink.close();
+
+        int lines = threads * linesPerThread;
+        assertEquals(lines, readLines(sink.getFile()).size());
+        assertEquals(lines, readLines(new File(folder.getRoot(), "slf4j.log")).size());
+    }
+}
@@ -0,0 +1,118 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcDsLogControlTest {
+    private Properties oldProps;
+    private boolean oldJmx;
+    private long oldSlowQueryThreshold;
+    private boolean oldPrintStackTrace;
+    private boolean oldLogBeforeStatement;
+    private boolean oldLogDetailAfterStatement;
+
+    @Before
+    public void setUp() throws Exception {
+        oldProps = ConfigurationParameters.props;
+        oldJmx = ConfigurationParameters.jmx;
+        oldSlowQueryThreshold = ConfigurationParameters.slowQueryThresholdInNano;
+        oldPrintStackTrace = ConfigurationParameters.printStackTrace;
+        oldLogBeforeStatement = ConfigurationParameters.logBeforeStatement;
+        oldLogDetailAfterStatement = ConfigurationParameters.logDetailAfterStatement;
+        ConfigurationParameters.props = new Properties();
+        InputStream in = getClass().getClassLoader().getResourceAsStream("jdbcdslog.properties");
+        try {
+            ConfigurationParameters.props.load(in);     // other settings are re-applied as configured
+        } finally {
+            in.close();
+        }
+        ConfigurationParameters.jmx = true;
+    }
+
+    @After
+    public void tearDown() {
+        ConfigurationParameters.props = oldProps;
+        ConfigurationParameters.jmx = oldJmx;
+        ConfigurationParameters.slowQueryThresholdInNano = oldSlowQueryThreshold;
+        ConfigurationParameters.printStackTrace = oldPrintStackTrace;
+        ConfigurationParameters.logBeforeStatement = oldLogBeforeStatement;
+        ConfigurationParameters.logDetailAfterStatement = oldLogDetailAfterStatement;
+        ConfigurationParameters.publish();
+    }
+
+    @Test
+    public void testChangeSettingsThroughMBeanServer() throws Exception {
+        JdbcDsLogControl.registerIfConfigured();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JdbcDsLogControl.OBJECT_NAME);
+        assertTrue(server.isRegistered(name));
+
+        server.setAttribute(name, new Attribute("SlowQueryThreshold", "250ms"));
+        assertEquals(250L * 1000000L, ConfigurationParameters.slowQueryThresholdInNano);
+        assertEquals("250ms", server.getAttribute(name, "SlowQueryThreshold"));
+
+        server.setAttribute(name, new Attribute("PrintStackTrace", true));
+        assertTrue(ConfigurationParameters.printStackTrace);
+        server.setAttribute(name, new Attribute("PrintStackTrace", false));
+        assertEquals(Boolean.FALSE, server.getAttribute(name, "PrintStackTrace"));
+
+        server.setAttribute(name, new Attribute("SlowQueryThreshold", "0"));
+        assertEquals(Long.MAX_VALUE, ConfigurationParameters.slowQueryThresholdInNano);
+        assertEquals("0", server.getAttribute(name, "SlowQueryThreshold"));
+    }
+
+    @Test
+    public void testInvalidValuesRejected() {
+        JdbcDsLogControl control = new JdbcDsLogControl();
+        control.setSlowQueryThreshold("250ms");
+        for (String threshold : new String[] { "5 ms", "abc" }) {
+            try {
+                control.setSlowQueryThreshold(threshold);
+                fail("rejected: " + threshold);
+            } catch (IllegalArgumentException e) {
+                assertEquals("250ms", control.getSlowQueryThreshold());
+            }
+        }
+        for (double rate : new double[] { -1, 7 }) {
+            try {
+                control.setSamplingRate(rate);
+                fail("rejected: " + rate);
+            } catch (IllegalArgumentException e) {
+                assertEquals(1.0, control.getSamplingRate(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testDetailAfterStatementFollowsLogBeforeStatement() {
+        JdbcDsLogControl control = new JdbcDsLogControl();
+        control.setLogDetailAfterStatement(false);
+        assertTrue(control.isLogDetailAfterStatement());      // always detailed unless logged before statement
+        control.setLogBeforeStatement(true);
+        assertTrue(control.isLogBeforeStatement());
+        assertEquals(false, control.isLogDetailAfterStatement());
+        control.setLogBeforeStatement(false);
+        assertTrue(control.isLogDetailAfterStatement());
+    }
+
+    @Test
+    public void testCounters() {
+        JdbcDsLogControl control = new JdbcDsLogControl();
+        long statements = control.getStatementCount();
+        JdbcStatistics.recordExecution("select 1 from dual", false, 1000L);
+        assertEquals(statements + 1, control.getStatementCount());
+    }
+}
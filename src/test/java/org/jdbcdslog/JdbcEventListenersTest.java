@@ -0,0 +1,136 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcEventListenersTest {
+    private final List<String> events = new ArrayList<String>();
+
+    private final JdbcEventListener listener = new JdbcEventListener() {
+        public void onConnectionOpened(JdbcEvent event) {
+            events.add("opened " + event.getConnectionId());
+        }
+
+        public void beforeExecute(JdbcEvent event) {
+            events.add("before " + event.getMethodName() + " " + event.getSql() + " " + event.getParameters());
+        }
+
+        public void afterExecute(JdbcEvent event) {
+            assertTrue(event.getElapsedTimeInNano() >= 0);
+            events.add("after " + event.getMethodName() + " rows=" + event.getRowCount());
+        }
+
+        public void onBatch(JdbcEvent event) {
+            events.add("batch size=" + event.getBatchSize() + " rows=" + event.getRowCount());
+        }
+
+        public void onResultSetClosed(JdbcEvent event) {
+            events.add("closed " + event.getSql() + " rows=" + event.getRowCount());
+        }
+
+        public void onCommit(JdbcEvent event) {
+            events.add("commit");
+        }
+
+        public void onRollback(JdbcEvent event) {
+            events.add("rollback");
+        }
+
+        public void onError(JdbcEvent event) {
+            events.add("error " + event.getMethodName() + " " + event.getThrowable().getClass().getSimpleName());
+        }
+    };
+
+    private Connection con;
+
+    @Before
+    public void setUp() throws Exception {
+        JdbcEventListeners.register(listener);
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:listenertest");
+        ds.setUser("sa");
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        con.createStatement().execute("drop table listener_test if exists");
+        con.createStatement().execute("create table listener_test (a integer primary key)");
+        con.setAutoCommit(false);
+        events.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        JdbcEventListeners.unregister(listener);
+        con.close();
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        PreparedStatement ps = con.prepareStatement("insert into listener_test values(?)");
+        ps.setInt(1, 1);
+        ps.executeUpdate();
+        ps.setInt(1, 2);
+        ps.addBatch();
+        ps.setInt(1, 3);
+        ps.addBatch();
+        ps.executeBatch();
+        ps.close();
+        con.commit();
+
+        ResultSet rs = con.createStatement().executeQuery("select * from listener_test");
+        while (rs.next()) {
+        }
+        rs.close();
+        con.rollback();
+
+        assertEquals("before executeUpdate insert into listener_test values(?) {1=1}", events.get(0));
+        assertEquals("after executeUpdate rows=1", events.get(1));
+        assertEquals("batch size=2 rows=2", events.get(2));
+        assertEquals("commit", events.get(3));
+        assertEquals("before executeQuery select * from listener_test {}", events.get(4));
+        assertEquals("after executeQuery rows=-1", events.get(5));
+        assertEquals("closed select * from listener_test rows=3", events.get(6));
+        assertEquals("rollback", events.get(7));
+        assertEquals(8, events.size());
+    }
+
+    @Test
+    public void testErrorAndFailingListener() throws Exception {
+        JdbcEventListener failing = new JdbcEventListenerAdapter() {
+            @Override
+            public void beforeExecute(JdbcEvent event) {
+                throw new IllegalStateException("listener failure must not break JDBC");
+            }
+        };
+        JdbcEventListeners.register(failing);
+        try {
+            con.createStatement().executeUpdate("insert into no_such_table values(1)");
+            fail("SQLException expected");
+        } catch (SQLException expected) {
+        } finally {
+            JdbcEventListeners.unregister(failing);
+        }
+        assertEquals("error executeUpdate SQLException", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void testConnectionOpened() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:listenertest");
+        ds.setUser("sa");
+        Connection c = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        c.close();
+        assertTrue(events.get(0).startsWith("opened "));
+    }
+}
@@ -0,0 +1,144 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JFR API is accessed by reflection, as tests are compiled for JVMs without JFR too.
+ */
+public class JdbcFlightRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Object call(Object target, String methodName, Object... args) throws Exception {
+        for (Method method : target.getClass().getMethods()) {
+            if (method.getName().equals(methodName) && accepts(method.getParameterTypes(), args)) {
+                return method.invoke(target, args);
+            }
+        }
+        throw new NoSuchMethodException(methodName);
+    }
+
+    private static boolean accepts(Class<?>[] types, Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!types[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> eventsOf(List<?> events, String name) throws Exception {
+        List<Object> result = new ArrayList<Object>();
+        for (Object event : events) {
+            if (name.equals(call(call(event, "getEventType"), "getName"))) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testNoEventWithoutRecording() {
+        assertFalse(JdbcFlightRecorder.isRecording());
+        assertNull(JdbcFlightRecorder.begin(JdbcFlightRecorder.STATEMENT));
+    }
+
+    @Test
+    public void testEventsOfJdbcOperations() throws Exception {
+        assumeTrue(JdbcFlightRecorder.isAvailable());
+
+        Object recording = Class.forName("jdk.jfr.Recording").newInstance();
+        for (JdbcFlightRecorder.Kind kind : new JdbcFlightRecorder.Kind[] { JdbcFlightRecorder.STATEMENT, JdbcFlightRecorder.BATCH,
+                JdbcFlightRecorder.RESULT_SET, JdbcFlightRecorder.CONNECTION_ACQUISITION, JdbcFlightRecorder.TRANSACTION }) {
+            call(recording, "enable", kind.getName());
+        }
+        call(recording, "start");
+        try {
+            assertTrue(JdbcFlightRecorder.isRecording());
+
+            jdbcDataSource targetDs = new jdbcDataSource();
+            targetDs.setDatabase("jdbc:hsqldb:mem:jfrtest");
+            targetDs.setUser("sa");
+            DataSourceProxy ds = new DataSourceProxy();
+            ds.setTargetDSDirect(targetDs);
+            Connection con = ds.getConnection();
+            con.setAutoCommit(false);
+            con.createStatement().execute("drop table jfr_test if exists");
+            con.createStatement().execute("create table jfr_test (a integer)");
+            PreparedStatement ps = con.prepareStatement("insert into jfr_test values(?)");
+            for (int i = 0; i < 3; i++) {
+                ps.setInt(1, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            con.commit();
+            ResultSet rs = con.createStatement().executeQuery("select a from jfr_test");
+            while (rs.next()) {
+                // fetch all rows
+            }
+            rs.close();
+            try {
+                con.createStatement().executeQuery("select * from no_such_table");
+            } catch (SQLException expected) {
+                // recorded with error
+            }
+            con.close();
+        } finally {
+            call(recording, "stop");
+        }
+        File file = new File(folder.getRoot(), "test.jfr");
+        call(recording, "dump", file.toPath());
+        call(recording, "close");
+        assertFalse(JdbcFlightRecorder.isRecording());
+
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Class.forName("java.nio.file.Path"))
+                                        .invoke(null, file.toPath());
+
+        assertEquals(1, eventsOf(events, "org.jdbcdslog.ConnectionAcquisition").size());
+        Object connection = eventsOf(events, "org.jdbcdslog.ConnectionAcquisition").get(0);
+        String connectionId = (String) call(connection, "getString", "connectionId");
+        assertTrue(connectionId != null);
+
+        List<Object> statements = eventsOf(events, "org.jdbcdslog.Statement");
+        assertEquals(4, statements.size());
+        Object select = statements.get(2);
+        assertEquals("select a from jfr_test", call(select, "getString", "sql"));
+        assertEquals(SqlFingerprint.of("select a from jfr_test").getId(), call(select, "getString", "fingerprint"));
+        assertEquals(connectionId, call(select, "getString", "connectionId"));
+        assertEquals("executeQuery", call(select, "getString", "method"));
+        assertTrue(((String) call(statements.get(3), "getString", "error")).contains("no_such_table"));
+
+        Object batch = eventsOf(events, "org.jdbcdslog.Batch").get(0);
+        assertEquals("insert into jfr_test values(?)", call(batch, "getString", "sql"));
+        assertEquals(3L, call(batch, "getLong", "batchSize"));
+        assertEquals(3L, call(batch, "getLong", "rows"));
+
+        Object resultSet = eventsOf(events, "org.jdbcdslog.ResultSet").get(0);
+        assertEquals(3L, call(resultSet, "getLong", "rows"));
+        assertEquals("select a from jfr_test", call(resultSet, "getString", "sql"));
+
+        Object transaction = eventsOf(events, "org.jdbcdslog.Transaction").get(0);
+        assertEquals("commit", call(transaction, "getString", "method"));
+    }
+}
@@ -0,0 +1,89 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.Test;
+
+public class JsonEventEncoderTest {
+
+    @Test
+    public void testTypedValuesAndEscaping() {
+        Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+        parameters.put(1, 42);
+        parameters.put(2, "a \"quoted\"\nline");
+        parameters.put(3, null);
+        parameters.put(4, Boolean.TRUE);
+        parameters.put(5, new BigDecimal("1.50"));
+        parameters.put(6, new byte[] { 0x0f, (byte) 0xa0 });
+        parameters.put(7, Double.NaN);
+
+        String event = JsonEventEncoder.begin("statement")
+                                       .field("sql", "select \\ from t")
+                                       .parameters("parameters", parameters)
+                                       .field("elapsedNanos", 123L)
+                                       .end();
+        assertEquals("{\"type\":\"statement\",\"sql\":\"select \\\\ from t\","
+                     + "\"parameters\":{\"1\":42,\"2\":\"a \\\"quoted\\\"\\nline\",\"3\":null,\"4\":true,\"5\":1.50,\"6\":\"0fa0\",\"7\":\"NaN\"},"
+                     + "\"elapsedNanos\":123}",
+                     event);
+    }
+
+    @Test
+    public void testNestedArraysAndReuse() {
+        String event = JsonEventEncoder.begin("row")
+                                       .beginArray("values").element(1).element("\u0001").endArray()
+                                       .beginObject("empty").endObject()
+                                       .field("last", false)
+                                       .end();
+        assertEquals("{\"type\":\"row\",\"values\":[1,\"\\u0001\"],\"empty\":{},\"last\":false}", event);
+
+        assertEquals("{\"type\":\"x\"}", JsonEventEncoder.begin("x").end());
+    }
+
+    @Test
+    public void testStatementAndErrorEvents() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:jsonoutputtest");
+        ds.setUser("sa");
+        ConfigurationParameters.jsonOutput = true;
+        ConfigurationParameters.publish();
+        Connection con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        LogCapture statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+        try {
+            con.createStatement().execute("create table json_output_test (a integer primary key, b varchar(10))");
+            PreparedStatement ps = con.prepareStatement("insert into json_output_test values(?, ?)");
+            ps.setInt(1, 1);
+            ps.setString(2, "x");
+            ps.executeUpdate();
+            try {
+                ps.executeUpdate();
+                fail("duplicate key expected");
+            } catch (SQLException expected) {
+            }
+            ps.close();
+
+            List<String> events = statementCapture.getMessagesContaining("insert into json_output_test");
+            assertEquals(2, events.size());
+            assertTrue(events.get(0), events.get(0).startsWith("{\"type\":\"statement\",\"connectionId\":\""));
+            assertTrue(events.get(0), events.get(0).contains("\"sql\":\"insert into json_output_test values(?, ?)\",\"parameters\":{\"1\":1,\"2\":\"x\"},\"elapsedNanos\":"));
+            assertTrue(events.get(0), events.get(0).contains(",\"rows\":1"));
+            assertTrue(events.get(1), events.get(1).startsWith("{\"type\":\"error\",\"connectionId\":\""));
+        } finally {
+            ConfigurationParameters.jsonOutput = false;
+            ConfigurationParameters.publish();
+            statementCapture.close();
+            con.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.jdbcdslog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Test helper capturing messages logged to a log4j logger.
+ */
+public class LogCapture extends AppenderSkeleton {
+    private final Logger logger;
+    private final List<String> messages = new ArrayList<String>();
+
+    public LogCapture(String loggerName) {
+        this.logger = Logger.getLogger(loggerName);
+        this.logger.addAppender(this);
+    }
+
+    @Override
+    protected synchronized void append(LoggingEvent event) {
+        messages.add(event.getRenderedMessage());
+    }
+
+    public synchronized List<String> getMessages() {
+        return new ArrayList<String>(messages);
+    }
+
+    public synchronized List<String> getMessagesContaining(String text) {
+        List<String> result = new ArrayList<String>();
+        for (String message : messages) {
+            if (message.contains(text)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    public void close() {
+        logger.removeAppender(this);
+    }
+
+    public boolean requiresLayout() {
+        return false;
+    }
+}
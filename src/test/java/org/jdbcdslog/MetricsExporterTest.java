@@ -0,0 +1,135 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsExporterTest {
+    private long oldInterval;
+    private MetricsExporter exporter;
+
+    @Before
+    public void setUp() throws Exception {
+        oldInterval = ConfigurationParameters.summaryIntervalInNano;
+        ConfigurationParameters.summaryIntervalInNano = 3600L * 1000000000L;      // enable statistics
+        exporter = new MetricsExporter("127.0.0.1", 0);
+    }
+
+    @After
+    public void tearDown() {
+        exporter.stop();
+        ConfigurationParameters.summaryIntervalInNano = oldInterval;
+    }
+
+    private static String scrape(int port) throws Exception {
+        HttpURLConnection http = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/metrics").openConnection();
+        assertEquals(200, http.getResponseCode());
+        assertEquals(MetricsExporter.CONTENT_TYPE, http.getContentType());
+        InputStream in = http.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void testScrape() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:metricstest");
+        ds.setUser("sa");
+        Connection con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        Statement st = con.createStatement();
+        st.executeQuery("select count(*) from information_schema.system_tables").close();
+        try {
+            st.executeQuery("select * from no_such_table");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        String text = scrape(exporter.getPort());
+        String id = SqlFingerprint.of("select count(*) from information_schema.system_tables").getId();
+        assertTrue(text, text.contains("# TYPE jdbcdslog_statement_seconds histogram\n"));
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_bucket{category=\"select\",le=\"+Inf\"} "));
+        assertTrue(text, text.contains("jdbcdslog_statement_fingerprint_seconds_count{fingerprint=\"" + id + "\",category=\"select\"} "));
+        assertTrue(text, text.contains("jdbcdslog_errors_total{sqlstate=\""));
+        assertTrue(text, text.contains("jdbcdslog_connections_active "));
+        assertTrue(text, text.contains("jdbcdslog_result_set_rows_total "));
+        assertTrue(text, text.endsWith("# EOF\n"));
+        con.close();
+    }
+
+    @Test
+    public void testFingerprintCardinalityCap() {
+        for (int i = 0; i < 5; i++) {
+            JdbcStatistics.recordExecution("select * from cap_sample_" + i + " where a = 1", false, 1000000L);
+        }
+        String text = MetricsExporter.format(JdbcStatistics.snapshot(), 2);
+        int fingerprints = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("jdbcdslog_statement_fingerprint_seconds_count{")) {
+                fingerprints++;
+            }
+        }
+        assertEquals(3, fingerprints);      // 2 fingerprints and others
+        assertTrue(text, text.contains("jdbcdslog_statement_fingerprint_seconds_count{fingerprint=\"other\",category=\"other\"} "));
+    }
+
+    @Test
+    public void testExportedFingerprintsFixedWhenFirstSeen() {
+        JdbcStatistics.recordExecution("select * from fixed_sample_first where a = 1", false, 1000L);
+        int cap = JdbcStatistics.snapshot().getShapes().size();
+        String first = SqlFingerprint.of("select * from fixed_sample_first where a = 1").getId();
+        String second = SqlFingerprint.of("select * from fixed_sample_second where a = 1").getId();
+        for (int i = 0; i < 10; i++) {
+            JdbcStatistics.recordExecution("select * from fixed_sample_second where a = 1", false, 1000000000L);
+        }
+
+        String text = MetricsExporter.format(JdbcStatistics.snapshot(), cap);
+        assertTrue(text, text.contains("jdbcdslog_statement_fingerprint_seconds_count{fingerprint=\"" + first + "\""));
+        assertFalse(text, text.contains("fingerprint=\"" + second + "\""));
+    }
+
+    @Test
+    public void testHistogramBucketsAreCumulative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(50000L);           // 0.05 ms
+        histogram.record(2000000L);         // 2 ms
+        long[][] categories = new long[JdbcStatistics.Category.values().length][];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new LatencyHistogram().snapshot();
+        }
+        categories[JdbcStatistics.Category.DELETE.ordinal()] = histogram.snapshot();
+        JdbcStatistics.Snapshot snapshot = new JdbcStatistics.Snapshot(0, categories, 0, new HashMap<String, Long>(), 0, 0, 0,
+                                                                       new HashMap<String, JdbcStatistics.ShapeSnapshot>());
+
+        String text = MetricsExporter.format(snapshot, 10);
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_bucket{category=\"delete\",le=\"1.0E-4\"} 1\n"));
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_bucket{category=\"delete\",le=\"0.001\"} 1\n"));
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_bucket{category=\"delete\",le=\"0.0025\"} 2\n"));
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_count{category=\"delete\"} 2\n"));
+        assertTrue(text, text.contains("jdbcdslog_statement_seconds_sum{category=\"delete\"} 0.00205\n"));
+        assertTrue(text, text.contains("jdbcdslog_slow_statements_total 0\n"));
+    }
+
+    @Test
+    public void testEscapeLabelValue() {
+        assertEquals("a\\\"b\\\\c\\n", MetricsExporter.escape("a\"b\\c\n"));
+    }
+}
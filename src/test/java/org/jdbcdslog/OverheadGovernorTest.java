@@ -0,0 +1,101 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OverheadGovernorTest {
+    private LogCapture governorCapture;
+
+    @Before
+    public void setUp() {
+        governorCapture = new LogCapture("org.jdbcdslog.OverheadGovernor");
+        ConfigurationParameters.governor = true;
+        OverheadGovernor.evaluate();        // discard time recorded by other tests
+    }
+
+    @After
+    public void tearDown() {
+        governorCapture.close();
+        OverheadGovernor.level = OverheadGovernor.Level.FULL;
+        ConfigurationParameters.governor = false;
+    }
+
+    private void recordInterval(long handlerTime, long driverTime) {
+        OverheadGovernor.record(handlerTime, driverTime);
+        OverheadGovernor.evaluate();
+    }
+
+    @Test
+    public void testDetailReducedWhenOverBudget() {
+        recordInterval(1200, 1000);
+        assertEquals(OverheadGovernor.Level.NO_STACK_TRACE, OverheadGovernor.getLevel());
+        assertTrue(OverheadGovernor.suppressesStackTrace());
+        assertFalse(OverheadGovernor.suppressesInlineParams());
+
+        recordInterval(1200, 1000);
+        recordInterval(1200, 1000);
+        recordInterval(1200, 1000);
+        assertEquals(OverheadGovernor.Level.SLOW_QUERY_ONLY, OverheadGovernor.getLevel());
+
+        recordInterval(1200, 1000);
+        assertEquals(OverheadGovernor.Level.SLOW_QUERY_ONLY, OverheadGovernor.getLevel());
+        assertEquals(4, governorCapture.getMessagesContaining("Logging detail reduced").size());
+    }
+
+    @Test
+    public void testDetailRestoredAfterCalmIntervals() {
+        recordInterval(1200, 1000);
+        recordInterval(1200, 1000);
+        assertEquals(OverheadGovernor.Level.NO_INLINE_PARAMS, OverheadGovernor.getLevel());
+
+        for (int i = 0; i < OverheadGovernor.CALM_INTERVALS_TO_RESTORE - 1; i++) {
+            recordInterval(1001, 1000);
+        }
+        assertEquals(OverheadGovernor.Level.NO_INLINE_PARAMS, OverheadGovernor.getLevel());
+        recordInterval(1001, 1000);
+        assertEquals(OverheadGovernor.Level.NO_STACK_TRACE, OverheadGovernor.getLevel());
+
+        // within budget but not calm enough, detail is kept as is
+        for (int i = 0; i < OverheadGovernor.CALM_INTERVALS_TO_RESTORE; i++) {
+            recordInterval(1040, 1000);
+        }
+        assertEquals(OverheadGovernor.Level.NO_STACK_TRACE, OverheadGovernor.getLevel());
+        assertEquals(1, governorCapture.getMessagesContaining("Logging detail restored").size());
+    }
+
+    @Test
+    public void testSlowQueryOnlySuppressesStatementLog() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:governortest");
+        ds.setUser("sa");
+        Connection con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        LogCapture statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+        try {
+            OverheadGovernor.level = OverheadGovernor.Level.SLOW_QUERY_ONLY;
+            PreparedStatement ps = con.prepareStatement("select count(*) from information_schema.system_tables where table_name = ?");
+            ps.setString(1, "SYSTEM_TABLES");
+            ps.executeQuery().close();
+            ps.close();
+            assertEquals(0, statementCapture.getMessagesContaining("information_schema.system_tables").size());
+
+            OverheadGovernor.level = OverheadGovernor.Level.NO_INLINE_PARAMS;
+            ps = con.prepareStatement("select count(*) from information_schema.system_tables where table_name = ?");
+            ps.setString(1, "SYSTEM_TABLES");
+            ps.executeQuery().close();
+            ps.close();
+            assertEquals(1, statementCapture.getMessagesContaining("table_name = ? parameters: {1=").size());
+        } finally {
+            statementCapture.close();
+            con.close();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PassthroughTest {
+    private static final String[] LOGGER_NAMES = { "org.jdbcdslog.StatementLogger", "org.jdbcdslog.SlowQueryLogger",
+                                                   "org.jdbcdslog.ResultSetLogger", "org.jdbcdslog.ConnectionLogger" };
+
+    private ConnectionPoolXADataSourceProxy ds;
+    private Properties oldProps;
+
+    @Before
+    public void setUp() throws Exception {
+        ds = new ConnectionPoolXADataSourceProxy();
+        ds.setDatabase("jdbc:hsqldb:mem:passthroughtest;targetDS=org.hsqldb.jdbc.jdbcDataSource");
+        ds.setUser("sa");
+        oldProps = ConfigurationParameters.props;
+        ConfigurationParameters.props = new Properties();
+        ConfigurationParameters.props.putAll(oldProps);
+        ConfigurationParameters.passthrough = true;
+        ConfigurationParameters.publish();
+    }
+
+    @After
+    public void tearDown() {
+        setLoggerLevel(null);
+        ConfigurationParameters.props = oldProps;
+        ConfigurationParameters.passthrough = false;
+        ConfigurationParameters.publish();
+        Passthrough.refresh();
+    }
+
+    private static void setLoggerLevel(Level level) {
+        for (String name : LOGGER_NAMES) {
+            Logger.getLogger(name).setLevel(level);
+        }
+    }
+
+    @Test
+    public void testRawConnectionWhenNothingLogged() throws Exception {
+        setLoggerLevel(Level.WARN);
+
+        Connection con = ds.getConnection();
+        try {
+            assertTrue(Passthrough.isActive());
+            assertFalse(Proxy.isProxyClass(con.getClass()));
+        } finally {
+            con.close();
+        }
+    }
+
+    @Test
+    public void testWrappedConnectionPassesThrough() throws Exception {
+        Connection con = ds.getConnection();
+        try {
+            assertTrue(Proxy.isProxyClass(con.getClass()));
+            con.createStatement().execute("create table passthrough_test (a integer)");
+
+            setLoggerLevel(Level.WARN);
+            ds.getConnection().close();         // acquisition re-evaluates the mode
+            assertTrue(Passthrough.isActive());
+
+            Statement st = con.createStatement();
+            assertFalse(Proxy.isProxyClass(st.getClass()));
+            st.execute("insert into passthrough_test values(1)");
+            ResultSet rs = st.executeQuery("select count(*) from passthrough_test");
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            rs.close();
+            st.close();
+
+            try {
+                con.createStatement().execute("select * from no_such_table");
+                assertTrue("exception expected", false);
+            } catch (SQLException e) {
+                // thrown as by the driver
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    @Test
+    public void testLoggingEnabledForNewConnections() throws Exception {
+        setLoggerLevel(Level.WARN);
+        Connection raw = ds.getConnection();
+        raw.close();
+        assertFalse(Proxy.isProxyClass(raw.getClass()));
+
+        setLoggerLevel(null);
+        LogCapture capture = new LogCapture("org.jdbcdslog.StatementLogger");
+        Connection con = ds.getConnection();
+        try {
+            assertFalse(Passthrough.isActive());
+            assertTrue(Proxy.isProxyClass(con.getClass()));
+            con.createStatement().executeQuery("select * from information_schema.system_tables where 1 = 0").close();
+            assertEquals(1, capture.getMessagesContaining("from information_schema.system_tables").size());
+        } finally {
+            con.close();
+            capture.close();
+        }
+    }
+
+    @Test
+    public void testDriverHandsBackRawConnection() throws Exception {
+        setLoggerLevel(Level.WARN);
+        Properties info = new Properties();
+        info.put("user", "sa");
+        Connection con = new DriverLoggingProxy().connect("jdbc:jdbcdslog:hsqldb:mem:passthroughtest;targetDriver=org.hsqldb.jdbcDriver", info);
+        try {
+            assertFalse(Proxy.isProxyClass(con.getClass()));
+        } finally {
+            con.close();
+        }
+    }
+
+    @Test
+    public void testWrappedStatementKeepsParameters() throws Exception {
+        LogCapture capture = new LogCapture("org.jdbcdslog.StatementLogger");
+        Connection con = ds.getConnection();
+        try {
+            con.createStatement().execute("create table passthrough_params (a integer)");
+            PreparedStatement ps = con.prepareStatement("insert into passthrough_params values(?)");
+            ps.setInt(1, 5);
+
+            setLoggerLevel(Level.WARN);
+            ds.getConnection().close();
+            assertTrue(Passthrough.isActive());
+            ps.setInt(1, 7);                    // recorded by the wrapped statement while passing through
+
+            setLoggerLevel(null);
+            ds.getConnection().close();
+            assertFalse(Passthrough.isActive());
+            ps.execute();
+            assertEquals(1, capture.getMessagesContaining("insert into passthrough_params values(7)").size());
+        } finally {
+            con.close();
+            capture.close();
+        }
+    }
+
+    @Test
+    public void testProfilePassthrough() throws Exception {
+        ConfigurationParameters.passthrough = false;
+        ConfigurationParameters.props.setProperty("jdbcdslog.profile.quiet.passthrough", "true");
+        ConfigurationParameters.publish();
+        setLoggerLevel(Level.WARN);
+
+        Properties info = new Properties();
+        info.put("user", "sa");
+        DriverLoggingProxy driver = new DriverLoggingProxy();
+        Connection quiet = driver.connect("jdbc:jdbcdslog:hsqldb:mem:passthroughtest;profile=quiet;targetDriver=org.hsqldb.jdbcDriver", info);
+        Connection plain = driver.connect("jdbc:jdbcdslog:hsqldb:mem:passthroughtest;targetDriver=org.hsqldb.jdbcDriver", info);
+        try {
+            assertFalse(Proxy.isProxyClass(quiet.getClass()));
+            assertTrue(Proxy.isProxyClass(plain.getClass()));
+            assertFalse(Passthrough.isActive());
+        } finally {
+            quiet.close();
+            plain.close();
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        ConfigurationParameters.passthrough = false;
+        ConfigurationParameters.publish();
+        setLoggerLevel(Level.WARN);
+
+        Connection con = ds.getConnection();
+        try {
+            assertFalse(Passthrough.isActive());
+            assertTrue(Proxy.isProxyClass(con.getClass()));
+        } finally {
+            con.close();
+        }
+    }
+}
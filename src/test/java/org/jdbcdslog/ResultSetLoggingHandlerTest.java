@@ -0,0 +1,184 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResultSetLoggingHandlerTest {
+    private static Connection con;
+    private LogCapture capture;
+
+    @BeforeClass
+    public static void setUpDatabase() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:resultsettest");
+        ds.setUser("sa");
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        Statement st = con.createStatement();
+        st.execute("create table rs_sample (a integer, b varchar(10))");
+        for (int i = 1; i <= 100; i++) {
+            st.executeUpdate("insert into rs_sample values(" + i + ", 'row" + i + "')");
+        }
+        st.close();
+    }
+
+    @AfterClass
+    public static void tearDownDatabase() throws Exception {
+        con.close();
+    }
+
+    @Before
+    public void setUp() {
+        capture = new LogCapture("org.jdbcdslog.ResultSetLogger");
+    }
+
+    @After
+    public void tearDown() {
+        capture.close();
+        ConfigurationParameters.resultSetRowSampling = ResultSetRowSampling.ALL;
+        ConfigurationParameters.resultSetRowSampleSize = 10;
+        ConfigurationParameters.logFetchTimings = false;
+        ConfigurationParameters.columnUsageProfiler = false;
+        ConfigurationParameters.resultSizeGuard = false;
+        ConfigurationParameters.resultSetRowWarnThreshold = 0;
+        ConfigurationParameters.resultSetRowLimit = 0;
+        ConfigurationParameters.resultSetRowLimitEnforced = false;
+    }
+
+    private List<String> readAllRows() throws Exception {
+        ResultSet rs = con.createStatement().executeQuery("select * from rs_sample order by a");
+        while (rs.next()) {
+            // fetch only
+        }
+        rs.close();
+        return capture.getMessagesContaining("Row Number:");
+    }
+
+    @Test
+    public void testAllRows() throws Exception {
+        assertEquals(100, readAllRows().size());
+    }
+
+    @Test
+    public void testFirstRows() throws Exception {
+        ConfigurationParameters.resultSetRowSampling = ResultSetRowSampling.FIRST;
+        ConfigurationParameters.resultSetRowSampleSize = 5;
+
+        List<String> rows = readAllRows();
+        assertEquals(5, rows.size());
+        assertTrue(rows.get(4).contains("{5, 'row5'} Row Number: 5"));
+    }
+
+    @Test
+    public void testEveryRows() throws Exception {
+        ConfigurationParameters.resultSetRowSampling = ResultSetRowSampling.EVERY;
+        ConfigurationParameters.resultSetRowSampleSize = 10;
+
+        List<String> rows = readAllRows();
+        assertEquals(10, rows.size());
+        assertTrue(rows.get(1).contains("Row Number: 11"));
+    }
+
+    @Test
+    public void testReservoirRows() throws Exception {
+        ConfigurationParameters.resultSetRowSampling = ResultSetRowSampling.RESERVOIR;
+        ConfigurationParameters.resultSetRowSampleSize = 7;
+
+        List<String> rows = readAllRows();
+        assertEquals(7, rows.size());
+        List<String> messages = capture.getMessages();
+        assertTrue("reservoir logged before summary",
+                messages.indexOf(rows.get(6)) < messages.indexOf(capture.getMessagesContaining("Total Results").get(0)));
+    }
+
+    @Test
+    public void testFetchTimingsLoggedOnClose() throws Exception {
+        ConfigurationParameters.logFetchTimings = true;
+
+        readAllRows();
+        List<String> timings = capture.getMessagesContaining("Time To First Row");
+        assertEquals(1, timings.size());
+        assertTrue(timings.get(0).contains("select * from rs_sample order by a;"));
+        assertTrue(timings.get(0).contains("Rows: 100."));
+    }
+
+    @Test
+    public void testColumnUsageProfiled() throws Exception {
+        ConfigurationParameters.columnUsageProfiler = true;
+        LogCapture advisorCapture = new LogCapture("org.jdbcdslog.AdvisorLogger");
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select a, b from rs_sample where a < 3");
+            while (rs.next()) {
+                rs.getInt("a");
+            }
+            rs.close();
+            ColumnUsageProfiler.report();
+
+            List<String> messages = advisorCapture.getMessagesContaining("select a, b from rs_sample where a < ?");
+            assertEquals(1, messages.size());
+            assertTrue(messages.get(0).contains("reads 1 of 2 columns in 1 ResultSets; never read: [B]"));
+        } finally {
+            advisorCapture.close();
+        }
+    }
+
+    @Test
+    public void testResultSizeGuard() throws Exception {
+        ConfigurationParameters.resultSizeGuard = true;
+        ConfigurationParameters.resultSetRowWarnThreshold = 5;
+        ConfigurationParameters.resultSetRowLimit = 10;
+        ConfigurationParameters.resultSetRowLimitEnforced = true;
+
+        PreparedStatement ps = con.prepareStatement("select * from rs_sample where a > ?");
+        ps.setInt(1, 0);
+        ResultSet rs = ps.executeQuery();
+        int rows = 0;
+        try {
+            while (rs.next()) {
+                ++rows;
+            }
+            fail("row limit not enforced");
+        } catch (SQLException expected) {
+            assertEquals(10, rows);
+        } finally {
+            rs.close();
+            ps.close();
+        }
+
+        List<String> warnings = capture.getMessagesContaining("warning threshold of 5 rows");
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("select * from rs_sample where a > 0;"));
+        assertTrue(warnings.get(0).contains("at org.jdbcdslog.ResultSetLoggingHandlerTest.testResultSizeGuard"));
+        assertEquals(1, capture.getMessagesContaining("exceeded row limit of 10 rows").size());
+    }
+
+    @Test
+    public void testCloseNotPreventedByRecordingProblem() throws Exception {
+        ConfigurationParameters.columnUsageProfiler = true;
+        ResultSet target = mock(ResultSet.class);
+        when(target.getMetaData()).thenThrow(new SQLException("ResultSet is closed"));
+        ResultSet rs = ProxyUtils.wrapByResultSetProxy(LogMetaData.create(), target,
+                                                       new StatementContext("select a from rs_sample", null, null, System.nanoTime(), 0));
+
+        rs.close();         // meta data is only needed after the driver closed the ResultSet
+        verify(target).close();
+        assertEquals(1, capture.getMessagesContaining("Problem recording close of ResultSet").size());
+    }
+}
@@ -0,0 +1,134 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpanExportersTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemorySpanExporter exporter = new InMemorySpanExporter(100);
+    private Connection con;
+
+    @Before
+    public void setUp() throws Exception {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:spantest");
+        ds.setUser("sa");
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        con.createStatement().execute("drop table span_test if exists");
+        con.createStatement().execute("create table span_test (a integer)");
+        SpanExporters.register(exporter);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SpanExporters.unregister(exporter);
+        con.close();
+    }
+
+    @Test
+    public void testSpansAreChildrenOfAttachedContext() throws Exception {
+        SpanContext parent = SpanContext.fromTraceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        SpanContext previous = SpanContext.attach(parent);
+        try {
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement("insert into span_test values(?)");
+            for (int i = 0; i < 2; i++) {
+                ps.setInt(1, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.setInt(1, 5);
+            ps.executeUpdate();
+            con.commit();
+        } finally {
+            SpanContext.detach(previous);
+        }
+        assertNull(SpanContext.current());
+
+        List<Span> spans = exporter.getSpans();
+        assertEquals(3, spans.size());
+        for (Span span : spans) {
+            assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getTraceId());
+            assertEquals("00f067aa0ba902b7", span.getParentSpanId());
+            assertTrue(span.getDurationInNano() >= 0);
+            assertNull(span.getError());
+        }
+        assertEquals("executeBatch", spans.get(0).getName());
+        assertEquals(2, spans.get(0).getBatchSize());
+        assertEquals(2, spans.get(0).getRowCount());
+        assertEquals(SqlFingerprint.of("insert into span_test values(?)"), spans.get(0).getFingerprint());
+        assertEquals("executeUpdate", spans.get(1).getName());
+        assertEquals(1, spans.get(1).getRowCount());
+        assertEquals("commit", spans.get(2).getName());
+        assertFalse(spans.get(1).getSpanId().equals(spans.get(2).getSpanId()));
+    }
+
+    @Test
+    public void testRootSpanWithError() throws Exception {
+        try {
+            con.createStatement().executeQuery("select * from no_such_table");
+        } catch (SQLException expected) {
+            // span is exported with error
+        }
+        con.createStatement().executeQuery("select * from span_test").close();
+
+        List<Span> spans = exporter.getSpans();
+        assertEquals(2, spans.size());
+        assertNull(spans.get(0).getParentSpanId());
+        assertTrue(spans.get(0).getError(), spans.get(0).getError().contains("no_such_table"));
+        assertEquals(32, spans.get(0).getTraceId().length());
+        assertFalse(spans.get(0).getTraceId().equals(spans.get(1).getTraceId()));
+        assertEquals(spans.get(1).getTraceId(), SpanContext.fromTraceParent(spans.get(1).getContext().toTraceParent()).getTraceId());
+    }
+
+    @Test
+    public void testInMemoryExporterIsBounded() {
+        InMemorySpanExporter small = new InMemorySpanExporter(2);
+        for (int i = 0; i < 5; i++) {
+            small.export(SpanExporters.start(null, "execute" + i));
+        }
+        assertEquals(2, small.getSpans().size());
+        assertEquals("execute3", small.getSpans().get(0).getName());
+        assertEquals("execute4", small.getSpans().get(1).getName());
+        assertEquals(3, small.getDroppedSpans());
+    }
+
+    @Test
+    public void testFileExporter() throws Exception {
+        File file = new File(folder.getRoot(), "spans.log");
+        FileSpanExporter fileExporter = new FileSpanExporter(file);
+        SpanExporters.register(fileExporter);
+        try {
+            con.createStatement().executeUpdate("insert into span_test values(1)");
+        } finally {
+            SpanExporters.unregister(fileExporter);
+            fileExporter.close();
+        }
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        String line = reader.readLine();
+        reader.close();
+        assertTrue(line, line.startsWith("{\"type\":\"span\",\"connectionId\":"));
+        assertTrue(line, line.contains("\"name\":\"executeUpdate\""));
+        assertTrue(line, line.contains("\"parentSpanId\":null"));
+        assertTrue(line, line.contains("\"rows\":1"));
+    }
+}
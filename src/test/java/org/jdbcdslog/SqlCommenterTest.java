@@ -0,0 +1,103 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+public class SqlCommenterTest {
+
+    @After
+    public void tearDown() {
+        ConfigurationParameters.sqlCommentConnectionId = false;
+        ConfigurationParameters.sqlCommentCallSite = false;
+        ConfigurationParameters.sqlCommentTraceId = false;
+    }
+
+    @Test
+    public void testCommentIsCachedPerSqlAndTag() {
+        ConfigurationParameters.sqlCommentConnectionId = true;
+        LogMetaData md1 = LogMetaData.create();
+        LogMetaData md2 = LogMetaData.create();
+
+        String commented = SqlCommenter.comment(md1, "select 1 from dual");
+        assertEquals("select 1 from dual /*connection='" + md1.getConnectionId() + "'*/", commented);
+        assertSame(commented, SqlCommenter.comment(md1, "select 1 from dual"));
+        assertEquals("select 1 from dual /*connection='" + md2.getConnectionId() + "'*/", SqlCommenter.comment(md2, "select 1 from dual"));
+    }
+
+    @Test
+    public void testCallSiteAndTraceTags() throws Exception {
+        ConfigurationParameters.sqlCommentCallSite = true;
+        ConfigurationParameters.sqlCommentTraceId = true;
+        SpanContext previous = SpanContext.attach(SpanContext.fromTraceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        try {
+            // call site is the first frame outside of org.jdbcdslog
+            FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+                public String call() {
+                    return SqlCommenter.comment(null, "select 1 from dual");
+                }
+            });
+            task.run();
+            String commented = task.get();
+            assertTrue(commented, commented.startsWith("select 1 from dual /*site='java.util.concurrent.FutureTask.run:"));
+            assertTrue(commented, commented.endsWith(",traceparent='00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01'*/"));
+        } finally {
+            SpanContext.detach(previous);
+        }
+        assertTrue(SqlCommenter.comment(null, "select 1 from dual").indexOf("traceparent") < 0);
+    }
+
+    @Test
+    public void testCommentIsSentToDriver() throws Exception {
+        ConfigurationParameters.sqlCommentConnectionId = true;
+        Connection target = mock(Connection.class);
+        when(target.getMetaData()).thenReturn(mock(DatabaseMetaData.class));
+        when(target.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        LogMetaData md = LogMetaData.create();
+        Connection con = ProxyUtils.wrapByConnectionProxy(md, target);
+
+        con.prepareStatement("select ?");
+        verify(target).prepareStatement("select ? /*connection='" + md.getConnectionId() + "'*/");
+    }
+
+    @Test
+    public void testCommentIsLogged() throws Exception {
+        ConfigurationParameters.sqlCommentConnectionId = true;
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:sqlcommenttest");
+        ds.setUser("sa");
+        LogCapture capture = new LogCapture("org.jdbcdslog.StatementLogger");
+        try {
+            LogMetaData md = LogMetaData.create();
+            Connection con = ProxyUtils.wrapByConnectionProxy(md, ds.getConnection());
+            Statement st = con.createStatement();
+            st.execute("drop table comment_test if exists");
+            st.execute("create table comment_test (a integer)");
+            PreparedStatement ps = con.prepareStatement("insert into comment_test values(?)");
+            ps.setInt(1, 1);
+            ps.execute();
+            con.close();
+
+            String comment = "/*connection='" + md.getConnectionId() + "'*/";
+            assertEquals(1, capture.getMessagesContaining("create table comment_test (a integer) " + comment).size());
+            assertEquals(1, capture.getMessagesContaining("insert into comment_test values(1) " + comment).size());
+        } finally {
+            capture.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SqlDictionaryTest {
+    private Connection con;
+    private LogCapture statementCapture;
+    private LogCapture dictionaryCapture;
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationParameters.sqlDictionary = true;
+        SqlDictionary.clear();
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:sqldictionarytest");
+        ds.setUser("sa");
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+        dictionaryCapture = new LogCapture("org.jdbcdslog.SqlDictionaryLogger");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        statementCapture.close();
+        dictionaryCapture.close();
+        con.close();
+        ConfigurationParameters.sqlDictionary = false;
+        ConfigurationParameters.sqlDictionaryMaxEntries = 10000;
+        SqlDictionary.clear();
+    }
+
+    private void query(String sql, String parameter) throws Exception {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setString(1, parameter);
+        ps.executeQuery().close();
+        ps.close();
+    }
+
+    @Test
+    public void testTextLoggedOnce() throws Exception {
+        String sql = "select * from information_schema.system_tables\nwhere table_name = ?";
+        query(sql, "A");
+        query(sql, "B");
+
+        List<String> entries = dictionaryCapture.getMessagesContaining("information_schema.system_tables");
+        assertEquals(1, entries.size());
+        String id = entries.get(0).substring(0, entries.get(0).indexOf(' '));
+        assertTrue(entries.get(0).endsWith("system_tables\\nwhere table_name = ?"));
+
+        List<String> statements = statementCapture.getMessagesContaining(id + " parameters: {1=");
+        assertEquals(2, statements.size());
+        assertEquals(0, statementCapture.getMessagesContaining("system_tables").size());
+    }
+
+    @Test
+    public void testEvictedTextGetsNewId() throws Exception {
+        ConfigurationParameters.sqlDictionaryMaxEntries = 2;
+        int first = SqlDictionary.idOf("select 1");
+        SqlDictionary.idOf("select 2");
+        assertEquals(first, SqlDictionary.idOf("select 1"));
+        SqlDictionary.idOf("select 3");      // evicts "select 2"
+        assertEquals(first, SqlDictionary.idOf("select 1"));
+
+        int second = SqlDictionary.idOf("select 2");
+        assertTrue(second > first + 2);
+        assertEquals(2, dictionaryCapture.getMessagesContaining("text=select 2").size());
+    }
+
+    @Test
+    public void testExpander() throws Exception {
+        String log = "INFO sqlid=1 text=select *\\n from t where a = ?\n"
+                   + "INFO executeQuery: sqlid=1 parameters: {1=5}\n"
+                   + "INFO sqlid=1 text=select 2\n"
+                   + "INFO executeQuery: sqlid=1 sqlid=7\n";
+        StringWriter out = new StringWriter();
+        new SqlDictionaryExpander().expand(new StringReader(log), out);
+
+        assertEquals("INFO executeQuery: select *\n from t where a = ? parameters: {1=5}\n"
+                   + "INFO executeQuery: select 2 sqlid=7\n", out.toString());
+    }
+
+    @Test
+    public void testExpanderIgnoresReferencesInValues() throws Exception {
+        String log = "INFO sqlid=1 text=select ? from t\n"
+                   + "INFO executeQuery: sqlid=1 parameters: {1=sqlid=1 text=x}\n"
+                   + "INFO executeQuery: sqlid=1 parameters: {1=a: sqlid=1}\n"
+                   + "INFO ResultSet.next: {1=sqlid=1}\n";
+        StringWriter out = new StringWriter();
+        new SqlDictionaryExpander().expand(new StringReader(log), out);
+
+        assertEquals("INFO executeQuery: select ? from t parameters: {1=sqlid=1 text=x}\n"
+                   + "INFO executeQuery: select ? from t parameters: {1=a: sqlid=1}\n"
+                   + "INFO ResultSet.next: {1=sqlid=1}\n", out.toString());
+    }
+}
@@ -0,0 +1,41 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SqlFingerprintTest {
+    @Test
+    public void testLiteralsReplaced() {
+        assertEquals("select * from t where a = ? and b = ? and c3 = ?",
+                SqlFingerprint.normalize("SELECT *  FROM t\n WHERE a = 'it''s' AND b = 12.5 and c3 = ?"));
+    }
+
+    @Test
+    public void testInListFolded() {
+        assertEquals("select a from t where b in (?) and c in (?)",
+                SqlFingerprint.normalize("select a from t where b in (1, 2, 3) and c in (?,?)"));
+    }
+
+    @Test
+    public void testCommentsAndQuotedIdentifiersKept() {
+        assertEquals("select \"Col 1\" from t",
+                SqlFingerprint.normalize("select /* conn=1 */ \"Col 1\" from t -- trailing\n;"));
+    }
+
+    @Test
+    public void testSameShapeSameId() {
+        SqlFingerprint f1 = SqlFingerprint.of("select * from t where a = 1");
+        SqlFingerprint f2 = SqlFingerprint.of("select * from t where a = 2");
+        assertEquals(f1.getId(), f2.getId());
+        assertEquals(16, f1.getId().length());
+        assertSame(f1, SqlFingerprint.of("select * from t where a = 1"));
+    }
+
+    @Test
+    public void testFnv1a64Hash() {
+        assertEquals(0xcbf29ce484222325L, SqlFingerprint.hash(""));
+        assertEquals(0xaf63dc4c8601ec8cL, SqlFingerprint.hash("a"));
+    }
+}
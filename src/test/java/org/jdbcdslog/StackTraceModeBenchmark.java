@@ -0,0 +1,52 @@
+package org.jdbcdslog;
+
+/**
+ * Checks of disabled stack trace and elapsed time as done before, on mutable static fields, against
+ * modes resolved per configuration snapshot.  Both loops read the published snapshot once per call,
+ * as a statement invocation does, so that the JIT cannot hoist static field reads out of the loop.
+ * Not part of the unit tests, run it from the test class path:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.jdbcdslog.StackTraceModeBenchmark
+ * </pre>
+ */
+public class StackTraceModeBenchmark {
+    public static void main(String[] args) {
+        ConfigurationParameters.printStackTrace = false;
+        ConfigurationParameters.printFullStackTrace = false;
+        ConfigurationParameters.printStackTracePattern = "";
+        ConfigurationParameters.showTime = false;
+        ConfigurationParameters.publish();
+        StringBuilder sb = new StringBuilder("msg");
+        int iterations = 20000000;
+        long staticTime = 0;
+        long modeTime = 0;
+        for (int round = 0; round < 3; round++) {      // first rounds are warm up
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                ConfigurationParameters.current();      // like the snapshot read, keeps static reads in the loop
+                appendWithStaticChecks(sb, i);
+            }
+            staticTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                StackTraceModeTest.appendDecorations(sb, ConfigurationParameters.current());
+            }
+            modeTime = System.nanoTime() - start;
+        }
+        System.out.println(String.format("Disabled stack trace and elapsed time: static field checks %.2f ns/call, "
+                                         + "configuration modes %.2f ns/call",
+                                         (double) staticTime / iterations, (double) modeTime / iterations));
+    }
+
+    private static StringBuilder appendWithStaticChecks(StringBuilder sb, long elapsedTimeInNano) {
+        if (ConfigurationParameters.printStackTrace && !OverheadGovernor.suppressesStackTrace()) {
+            sb.append("\nat ").append(new Throwable().getStackTrace()[0]);
+        }
+        if (ConfigurationParameters.showTime) {
+            sb.append("\nElapsed Time: ").append(String.format("%.9f", elapsedTimeInNano / 1000000000.0)).append(" s.");
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,89 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StackTraceModeTest {
+    private boolean oldPrintStackTrace;
+    private boolean oldPrintFullStackTrace;
+    private String oldPrintStackTracePattern;
+    private Boolean oldShowTime;
+
+    @Before
+    public void setUp() {
+        oldPrintStackTrace = ConfigurationParameters.printStackTrace;
+        oldPrintFullStackTrace = ConfigurationParameters.printFullStackTrace;
+        oldPrintStackTracePattern = ConfigurationParameters.printStackTracePattern;
+        oldShowTime = ConfigurationParameters.showTime;
+    }
+
+    @After
+    public void tearDown() {
+        ConfigurationParameters.printStackTrace = oldPrintStackTrace;
+        ConfigurationParameters.printFullStackTrace = oldPrintFullStackTrace;
+        ConfigurationParameters.printStackTracePattern = oldPrintStackTracePattern;
+        ConfigurationParameters.showTime = oldShowTime;
+        ConfigurationParameters.publish();
+    }
+
+    private static Configuration publish(boolean printStackTrace, boolean printFullStackTrace, String pattern, boolean showTime) {
+        ConfigurationParameters.printStackTrace = printStackTrace;
+        ConfigurationParameters.printFullStackTrace = printFullStackTrace;
+        ConfigurationParameters.printStackTracePattern = pattern;
+        ConfigurationParameters.showTime = showTime;
+        ConfigurationParameters.publish();
+        return ConfigurationParameters.current();
+    }
+
+    @Test
+    public void testModesResolvedFromSettings() {
+        assertEquals(StackTraceMode.NONE, publish(false, true, "x", false).stackTraceMode);
+        assertEquals(StackTraceMode.FULL, publish(true, true, "", false).stackTraceMode);
+        assertEquals(StackTraceMode.CALLER, publish(true, false, "", false).stackTraceMode);
+        assertEquals(StackTraceMode.PATTERN, publish(true, false, "org\\.junit\\..*", false).stackTraceMode);
+        assertEquals(StackTraceMode.CALLER, publish(true, false, "(", false).stackTraceMode);
+        assertEquals(ElapsedTimeMode.SHOWN, publish(false, false, "", true).elapsedTimeMode);
+    }
+
+    @Test
+    public void testAppend() {
+        Configuration config = publish(false, false, "", false);
+        assertEquals("msg", LogUtils.appendElapsedTime(LogUtils.appendStackTrace(new StringBuilder("msg"), config), 1, config).toString());
+
+        config = publish(true, false, "", true);
+        String message = LogUtils.appendElapsedTime(LogUtils.appendStackTrace(new StringBuilder("msg"), config), 1500000000L, config).toString();
+        assertTrue(message, message.startsWith("msg\nat sun.") || message.startsWith("msg\nat jdk.")
+                            || message.startsWith("msg\nat java."));
+        assertTrue(message, message.endsWith("\nElapsed Time: 1.500000000 s."));
+
+        config = publish(true, false, "org\\.junit\\..*", false);
+        message = LogUtils.appendStackTrace(new StringBuilder("msg"), config).toString();
+        assertTrue(message, message.startsWith("msg\nat org.junit."));
+    }
+
+    @Test
+    public void testChangeTakesEffectAfterWarmUp() {
+        Configuration config = publish(false, false, "", false);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.setLength(0);
+            appendDecorations(sb, ConfigurationParameters.current());
+        }
+        assertEquals(0, sb.length());
+
+        publish(false, false, "", true);
+        sb.setLength(0);
+        appendDecorations(sb, ConfigurationParameters.current());
+        assertTrue(sb.toString(), sb.toString().startsWith("\nElapsed Time: "));
+        assertEquals(0, appendDecorations(new StringBuilder(), config).length());     // old snapshot is unchanged
+    }
+
+    static StringBuilder appendDecorations(StringBuilder sb, Configuration config) {
+        LogUtils.appendStackTrace(sb, config);
+        return LogUtils.appendElapsedTime(sb, 1000L, config);
+    }
+}
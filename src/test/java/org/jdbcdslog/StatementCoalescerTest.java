@@ -0,0 +1,85 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class StatementCoalescerTest {
+    private static jdbcDataSource ds;
+    private Connection con;
+    private LogCapture capture;
+
+    @BeforeClass
+    public static void setUpDatabase() throws Exception {
+        ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:coalescetest");
+        ds.setUser("sa");
+        Connection c = ds.getConnection();
+        c.createStatement().execute("create table coalesce_test (a integer)");
+        c.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationParameters.coalesce = true;
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        capture = new LogCapture("org.jdbcdslog.StatementLogger");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        capture.close();
+        ConfigurationParameters.coalesce = false;
+        ConfigurationParameters.coalesceWindowInNano = 1000L * 1000000L;
+    }
+
+    private void insertRows(int count) throws Exception {
+        PreparedStatement ps = con.prepareStatement("insert into coalesce_test values(?)");
+        for (int i = 0; i < count; i++) {
+            ps.setInt(1, i);
+            ps.execute();
+        }
+        ps.close();
+    }
+
+    @Test
+    public void testFlushedOnShapeChangeAndClose() throws Exception {
+        ConfigurationParameters.coalesceWindowInNano = 3600L * 1000000000L;
+
+        insertRows(100);
+        assertEquals(0, capture.getMessagesContaining("insert into coalesce_test").size());
+
+        con.createStatement().executeQuery("select * from coalesce_test where a = 1").close();
+        List<String> inserts = capture.getMessagesContaining("insert into coalesce_test");
+        assertEquals(1, inserts.size());
+        assertTrue(inserts.get(0).contains("100 executions"));
+        assertTrue(inserts.get(0).contains("First: insert into coalesce_test values(0);"));
+        assertTrue(inserts.get(0).contains("Last: insert into coalesce_test values(99);"));
+
+        con.close();
+        List<String> selects = capture.getMessagesContaining("select * from coalesce_test");
+        assertEquals(1, selects.size());
+        assertTrue(selects.get(0).contains("executeQuery: select * from coalesce_test where a = 1;"));
+    }
+
+    @Test
+    public void testFlushedOnWindowExpiry() throws Exception {
+        ConfigurationParameters.coalesceWindowInNano = 50L * 1000000L;
+
+        insertRows(5);
+        Thread.sleep(500);
+        List<String> inserts = capture.getMessagesContaining("insert into coalesce_test");
+        assertEquals(1, inserts.size());
+        assertTrue(inserts.get(0).contains("5 executions"));
+        con.close();
+    }
+}
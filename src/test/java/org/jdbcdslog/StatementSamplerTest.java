@@ -0,0 +1,106 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class StatementSamplerTest {
+    private Connection con;
+    private LogCapture statementCapture;
+    private LogCapture slowQueryCapture;
+    private long originalSlowQueryThreshold;
+
+    private static jdbcDataSource ds;
+
+    @BeforeClass
+    public static void setUpDatabase() throws Exception {
+        ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:samplingtest");
+        ds.setUser("sa");
+        Connection c = ds.getConnection();
+        c.createStatement().execute("create table sampling_test (a integer)");
+        c.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+        slowQueryCapture = new LogCapture("org.jdbcdslog.SlowQueryLogger");
+        originalSlowQueryThreshold = ConfigurationParameters.slowQueryThresholdInNano;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        statementCapture.close();
+        slowQueryCapture.close();
+        con.close();
+        ConfigurationParameters.samplingRate = 1.0;
+        ConfigurationParameters.samplingScope = StatementSampler.Scope.STATEMENT;
+        ConfigurationParameters.samplingFingerprintIntervalInNano = 0;
+        ConfigurationParameters.slowQueryThresholdInNano = originalSlowQueryThreshold;
+        ConfigurationParameters.publish();
+    }
+
+    private void insertRows(int count) throws Exception {
+        PreparedStatement ps = con.prepareStatement("insert into sampling_test values(?)");
+        for (int i = 0; i < count; i++) {
+            ps.setInt(1, i);
+            ps.execute();
+        }
+        ps.close();
+    }
+
+    @Test
+    public void testUnsampledNotLogged() throws Exception {
+        ConfigurationParameters.samplingRate = 0.0;
+        ConfigurationParameters.publish();
+
+        insertRows(10);
+        assertEquals(0, statementCapture.getMessagesContaining("insert into sampling_test").size());
+    }
+
+    @Test
+    public void testFingerprintLoggedOncePerInterval() throws Exception {
+        ConfigurationParameters.samplingRate = 0.0;
+        ConfigurationParameters.samplingFingerprintIntervalInNano = 3600L * 1000000000L;
+        ConfigurationParameters.publish();
+
+        insertRows(10);
+        con.createStatement().executeQuery("select * from sampling_test where a = 1").close();
+        con.createStatement().executeQuery("select * from sampling_test where a = 2").close();
+
+        assertEquals(1, statementCapture.getMessagesContaining("insert into sampling_test").size());
+        assertEquals(1, statementCapture.getMessagesContaining("select * from sampling_test").size());
+    }
+
+    @Test
+    public void testConnectionScope() throws Exception {
+        ConfigurationParameters.samplingRate = 0.5;
+        ConfigurationParameters.samplingScope = StatementSampler.Scope.CONNECTION;
+        ConfigurationParameters.publish();
+
+        insertRows(20);
+        int logged = statementCapture.getMessagesContaining("insert into sampling_test").size();
+        assertTrue("all or none logged: " + logged, logged == 0 || logged == 20);
+    }
+
+    @Test
+    public void testSlowQueryLoggedWhenUnsampled() throws Exception {
+        ConfigurationParameters.samplingRate = 0.0;
+        ConfigurationParameters.slowQueryThresholdInNano = 1;
+        ConfigurationParameters.publish();
+
+        insertRows(3);
+        assertEquals(0, statementCapture.getMessagesContaining("insert into sampling_test").size());
+        assertEquals(3, slowQueryCapture.getMessagesContaining("insert into sampling_test").size());
+    }
+}
@@ -0,0 +1,135 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SummaryReporterTest {
+    private long oldInterval;
+    private LogCapture capture;
+
+    @Before
+    public void setUp() {
+        oldInterval = ConfigurationParameters.summaryIntervalInNano;
+        ConfigurationParameters.summaryIntervalInNano = 3600L * 1000000000L;
+        capture = new LogCapture("org.jdbcdslog.SummaryLogger");
+    }
+
+    @After
+    public void tearDown() {
+        capture.close();
+        ConfigurationParameters.summaryIntervalInNano = oldInterval;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        jdbcDataSource ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:summarytest");
+        ds.setUser("sa");
+        return ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+    }
+
+    @Test
+    public void testIntervalDeltas() throws Exception {
+        JdbcStatistics.Snapshot before = JdbcStatistics.snapshot();
+
+        Connection con = openConnection();
+        Statement st = con.createStatement();
+        st.execute("drop table summary_sample if exists");
+        st.execute("create table summary_sample (a integer)");
+        PreparedStatement ps = con.prepareStatement("insert into summary_sample values(?)");
+        for (int i = 0; i < 10; i++) {
+            ps.setInt(1, i);
+            ps.executeUpdate();
+        }
+        ps.setInt(1, 10);
+        ps.addBatch();
+        ps.executeBatch();
+        ResultSet rs = st.executeQuery("select * from summary_sample");
+        while (rs.next()) {
+            // fetch all rows
+        }
+        rs.close();
+        try {
+            st.executeQuery("select * from no_such_table");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        assertEquals(before.getActiveConnections() + 1, JdbcStatistics.snapshot().getActiveConnections());
+        con.close();
+
+        JdbcStatistics.Snapshot delta = JdbcStatistics.snapshot().minus(before);
+        assertEquals(10, delta.getExecutionCount(JdbcStatistics.Category.INSERT));
+        assertEquals(1, delta.getExecutionCount(JdbcStatistics.Category.SELECT));
+        assertEquals(1, delta.getExecutionCount(JdbcStatistics.Category.BATCH));
+        assertEquals(2, delta.getExecutionCount(JdbcStatistics.Category.OTHER));
+        assertEquals(1, delta.getErrorCount());
+        assertEquals(1, delta.getOpenedConnections());
+        assertEquals(before.getActiveConnections(), delta.getActiveConnections());
+        assertEquals(11, delta.getFetchedRows());
+
+        String insertId = SqlFingerprint.of("insert into summary_sample values(?)").getId();
+        assertEquals(11, delta.getShapes().get(insertId).getCount());     // batch of the same shape included
+        assertTrue(delta.getPercentileInNano(JdbcStatistics.Category.INSERT, 0.99)
+                   >= delta.getPercentileInNano(JdbcStatistics.Category.INSERT, 0.5));
+    }
+
+    @Test
+    public void testReportLogsSummary() throws Exception {
+        SummaryReporter reporter = new SummaryReporter();
+        Connection con = openConnection();
+        Statement st = con.createStatement();
+        st.executeQuery("select count(*) from information_schema.system_tables").close();
+        con.close();
+        reporter.run();
+
+        List<String> messages = capture.getMessages();
+        assertEquals(1, messages.size());
+        String summary = messages.get(0);
+        assertTrue(summary, summary.startsWith("JDBC summary of last "));
+        assertTrue(summary, summary.contains("1 statements"));
+        assertTrue(summary, summary.contains("select        1"));
+        assertTrue(summary, summary.contains("top statements by total time:"));
+        assertTrue(summary, summary.contains("select count(*) from information_schema.system_tables"));
+    }
+
+    @Test
+    public void testTopShapesByTotalTime() {
+        JdbcStatistics.Snapshot delta = JdbcStatistics.snapshot().minus(null);
+        List<JdbcStatistics.ShapeSnapshot> top = SummaryReporter.topShapes(delta, 3);
+        assertTrue(top.size() <= 3);
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).getTotalTimeInNano() >= top.get(i).getTotalTimeInNano());
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(200000L);          // 0.2 ms
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(20000000L);        // 20 ms
+        }
+        long[] snapshot = histogram.snapshot();
+        assertEquals(100, LatencyHistogram.countOf(snapshot));
+        assertEquals(90 * 200000L + 10 * 20000000L, LatencyHistogram.sumOf(snapshot));
+        long p50 = LatencyHistogram.percentileOf(snapshot, 0.5);
+        assertTrue(String.valueOf(p50), p50 > 100000L && p50 <= 250000L);
+        long p99 = LatencyHistogram.percentileOf(snapshot, 0.99);
+        assertTrue(String.valueOf(p99), p99 > 10000000L && p99 <= 25000000L);
+        assertEquals(0, LatencyHistogram.percentileOf(new LatencyHistogram().snapshot(), 0.5));
+    }
+}
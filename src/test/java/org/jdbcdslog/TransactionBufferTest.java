@@ -0,0 +1,119 @@
+package org.jdbcdslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TransactionBufferTest {
+    private static jdbcDataSource ds;
+
+    private Connection con;
+    private LogCapture statementCapture;
+
+    @BeforeClass
+    public static void setUpDatabase() throws Exception {
+        ds = new jdbcDataSource();
+        ds.setDatabase("jdbc:hsqldb:mem:transactiontailtest");
+        ds.setUser("sa");
+        Connection c = ds.getConnection();
+        c.createStatement().execute("create table transaction_tail_test (a integer primary key)");
+        c.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ConfigurationParameters.transactionTail = true;
+        con = ProxyUtils.wrapByConnectionProxy(ds.getConnection());
+        con.createStatement().execute("delete from transaction_tail_test");
+        con.setAutoCommit(false);
+        statementCapture = new LogCapture("org.jdbcdslog.StatementLogger");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        statementCapture.close();
+        con.close();
+        ConfigurationParameters.transactionTail = false;
+        ConfigurationParameters.transactionTailThresholdInNano = 1000L * 1000000L;
+        ConfigurationParameters.transactionTailMaxStatements = 1000;
+    }
+
+    private void insertRows(int from, int to) throws SQLException {
+        PreparedStatement ps = con.prepareStatement("insert into transaction_tail_test values(?)");
+        for (int i = from; i < to; i++) {
+            ps.setInt(1, i);
+            ps.executeUpdate();
+        }
+        ps.close();
+    }
+
+    @Test
+    public void testFastCommittedTransactionDiscarded() throws Exception {
+        insertRows(0, 3);
+        con.commit();
+
+        assertEquals(0, statementCapture.getMessagesContaining("insert into transaction_tail_test").size());
+        assertEquals(0, statementCapture.getMessagesContaining("Transaction ").size());
+    }
+
+    @Test
+    public void testRolledBackTransactionLogged() throws Exception {
+        insertRows(0, 3);
+        con.rollback();
+
+        List<String> messages = statementCapture.getMessagesContaining("insert into transaction_tail_test");
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).startsWith("Transaction rolled back after "));
+        assertTrue(messages.get(0).contains("3 statements:"));
+        assertTrue(messages.get(0).indexOf("values(0)") < messages.get(0).indexOf("values(2)"));
+    }
+
+    @Test
+    public void testFailedTransactionLogged() throws Exception {
+        insertRows(0, 2);
+        try {
+            insertRows(1, 2);
+            fail("duplicate key expected");
+        } catch (SQLException expected) {
+        }
+        con.commit();
+
+        List<String> messages = statementCapture.getMessagesContaining("Transaction committed with errors");
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("values(1); (") && messages.get(0).endsWith("FAILED)"));
+    }
+
+    @Test
+    public void testSlowTransactionLoggedWithCap() throws Exception {
+        ConfigurationParameters.transactionTailThresholdInNano = 0;
+        ConfigurationParameters.transactionTailMaxStatements = 2;
+        insertRows(0, 5);
+        con.commit();
+
+        List<String> messages = statementCapture.getMessagesContaining("Transaction committed after");
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("5 statements (3 not recorded):"));
+        assertTrue(messages.get(0).contains("[2] "));
+        assertTrue(!messages.get(0).contains("[3] "));
+    }
+
+    @Test
+    public void testAutoCommitStatementsLoggedAsUsual() throws Exception {
+        con.setAutoCommit(true);
+        insertRows(0, 2);
+
+        assertEquals(2, statementCapture.getMessagesContaining("insert into transaction_tail_test").size());
+        assertEquals(0, statementCapture.getMessagesContaining("Transaction ").size());
+    }
+}